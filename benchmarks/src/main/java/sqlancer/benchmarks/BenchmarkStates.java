@@ -0,0 +1,139 @@
+package sqlancer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.beust.jcommander.JCommander;
+
+import sqlancer.IgnoreMeException;
+import sqlancer.Main;
+import sqlancer.MainOptions;
+import sqlancer.Randomly;
+import sqlancer.SQLConnection;
+import sqlancer.StateLogger;
+import sqlancer.mysql.MySQLGlobalState;
+import sqlancer.mysql.MySQLOptions;
+import sqlancer.mysql.MySQLSchema;
+import sqlancer.mysql.MySQLSchema.MySQLColumn;
+import sqlancer.mysql.MySQLSchema.MySQLDataType;
+import sqlancer.mysql.MySQLSchema.MySQLTable;
+import sqlancer.mysql.MySQLSchema.MySQLTable.MySQLEngine;
+import sqlancer.sqlite3.SQLite3GlobalState;
+import sqlancer.sqlite3.SQLite3Options;
+import sqlancer.sqlite3.SQLite3Options.SQLite3Storage;
+import sqlancer.sqlite3.SQLite3Provider;
+import sqlancer.tidb.TiDBOptions;
+import sqlancer.tidb.TiDBProvider.TiDBGlobalState;
+import sqlancer.tidb.TiDBSchema;
+import sqlancer.tidb.TiDBSchema.TiDBColumn;
+import sqlancer.tidb.TiDBSchema.TiDBCompositeDataType;
+import sqlancer.tidb.TiDBSchema.TiDBDataType;
+import sqlancer.tidb.TiDBSchema.TiDBTable;
+
+/**
+ * Creates the global states that the benchmarks run on.
+ *
+ * The SQLite3 state uses a real, in-memory database that is generated as in a normal run. The TiDB and MySQL states
+ * use a fixed schema instead, since generating expressions for them does not need a server.
+ */
+final class BenchmarkStates {
+
+    static final int NR_TABLES = 3;
+    static final int NR_COLUMNS = 4;
+    private static final int MAX_GENERATION_ATTEMPTS = 100;
+
+    private BenchmarkStates() {
+    }
+
+    static MainOptions createMainOptions() {
+        MainOptions options = new MainOptions();
+        JCommander.newBuilder().addObject(options).build().parse();
+        Randomly.initialize(options);
+        return options;
+    }
+
+    /**
+     * Creates an in-memory SQLite database with at least one row in each table, as required by the EDC oracle.
+     */
+    static SQLite3GlobalState createSQLite3State(String databaseName, long seed) throws Exception {
+        MainOptions options = createMainOptions();
+        SQLite3Options sqliteOptions = new SQLite3Options();
+        sqliteOptions.storage = SQLite3Storage.MEMORY;
+        SQLite3Provider provider = new SQLite3Provider();
+        Randomly randomly = new Randomly(seed);
+        for (int i = 0; i < MAX_GENERATION_ATTEMPTS; i++) {
+            SQLite3GlobalState state = new SQLite3GlobalState();
+            state.setState(provider.getStateToReproduce(databaseName));
+            state.setRandomly(randomly);
+            state.setDatabaseName(databaseName);
+            state.setMainOptions(options);
+            state.setDbmsSpecificOptions(sqliteOptions);
+            SQLConnection con = provider.createDatabase(state);
+            state.setConnection(con);
+            state.setStateLogger(new StateLogger(databaseName, provider, options));
+            state.setManager(new Main.QueryManager<>(state));
+            try {
+                provider.generateDatabase(state);
+                if (!state.getSchema().containsTableWithZeroRows(state)) {
+                    return state;
+                }
+            } catch (IgnoreMeException e) {
+                // try another database
+            }
+            con.close();
+        }
+        throw new AssertionError("could not generate a database without empty tables");
+    }
+
+    static TiDBGlobalState createTiDBState(long seed) {
+        List<TiDBTable> tables = new ArrayList<>();
+        for (int i = 0; i < NR_TABLES; i++) {
+            List<TiDBColumn> columns = new ArrayList<>();
+            for (int j = 0; j < NR_COLUMNS; j++) {
+                TiDBDataType type = TiDBDataType.values()[j % TiDBDataType.values().length];
+                columns.add(new TiDBColumn("c" + j, new TiDBCompositeDataType(type), j == 0, j != 0));
+            }
+            TiDBTable table = new TiDBTable("t" + i, columns, Collections.emptyList(), false);
+            columns.forEach(c -> c.setTable(table));
+            tables.add(table);
+        }
+        TiDBSchema schema = new TiDBSchema(tables);
+        TiDBGlobalState state = new TiDBGlobalState() {
+            @Override
+            protected TiDBSchema readSchema() {
+                return schema;
+            }
+        };
+        state.setRandomly(new Randomly(seed));
+        state.setMainOptions(createMainOptions());
+        state.setDbmsSpecificOptions(new TiDBOptions());
+        return state;
+    }
+
+    static MySQLGlobalState createMySQLState(long seed) {
+        MySQLDataType[] types = { MySQLDataType.INT, MySQLDataType.VARCHAR, MySQLDataType.DOUBLE };
+        List<MySQLTable> tables = new ArrayList<>();
+        for (int i = 0; i < NR_TABLES; i++) {
+            List<MySQLColumn> columns = new ArrayList<>();
+            for (int j = 0; j < NR_COLUMNS; j++) {
+                columns.add(new MySQLColumn("c" + j, types[j % types.length], j == 0, 0));
+            }
+            MySQLTable table = new MySQLTable("t" + i, columns, Collections.emptyList(), MySQLEngine.INNO_DB);
+            columns.forEach(c -> c.setTable(table));
+            tables.add(table);
+        }
+        MySQLSchema schema = new MySQLSchema(tables);
+        MySQLGlobalState state = new MySQLGlobalState() {
+            @Override
+            protected MySQLSchema readSchema() {
+                return schema;
+            }
+        };
+        state.setRandomly(new Randomly(seed));
+        state.setMainOptions(createMainOptions());
+        state.setDbmsSpecificOptions(new MySQLOptions());
+        return state;
+    }
+
+}
@@ -0,0 +1,67 @@
+package sqlancer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sqlancer.ComparatorHelper;
+
+/**
+ * Measures the comparison of two equal result sets, which is the common case of every oracle check. The rows are
+ * shuffled in the second result set, as the order of the rows is not defined without an ORDER BY clause.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparatorHelperBenchmark {
+
+    private static final String QUERY = "SELECT t0.c0 FROM t0";
+    private static final List<String> COMBINED_QUERIES = List.of("SELECT t0.c0 FROM t0");
+
+    @Param({ "10", "1000", "100000" })
+    public int nrRows;
+
+    private List<String> resultSet;
+    private List<String> shuffledResultSet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(0);
+        resultSet = new ArrayList<>(nrRows);
+        for (int i = 0; i < nrRows; i++) {
+            resultSet.add(Integer.toString(random.nextInt(nrRows)));
+        }
+        shuffledResultSet = new ArrayList<>(resultSet);
+        Collections.shuffle(shuffledResultSet, random);
+    }
+
+    @Benchmark
+    public void assumeResultSetsAreEqual() {
+        // the state is only used to log a mismatch
+        ComparatorHelper.assumeResultSetsAreEqual(resultSet, shuffledResultSet, QUERY, COMBINED_QUERIES, null);
+    }
+
+    @Benchmark
+    public void assumeResultMultisetsAreEqual() {
+        ComparatorHelper.assumeResultMultisetsAreEqual(resultSet, shuffledResultSet, QUERY, COMBINED_QUERIES, null);
+    }
+
+}
@@ -0,0 +1,83 @@
+package sqlancer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sqlancer.common.query.ExpectedErrors;
+import sqlancer.sqlite3.SQLite3Errors;
+import sqlancer.tidb.TiDBErrors;
+
+/**
+ * Measures the matching of error messages against the expected errors of a query. A hit is the common case for
+ * queries that fail; a miss (i.e., a potential bug) scans all expected errors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpectedErrorsBenchmark {
+
+    private static final String SQLITE3_HIT = "[SQLITE_ERROR] SQL error or missing database (integer overflow)";
+    private static final String TIDB_HIT = "Data truncation: Truncated incorrect DOUBLE value: 'a'";
+    private static final String MISS = "Lost connection to MySQL server during query (an unexpected internal error)";
+
+    private ExpectedErrors sqliteErrors;
+    private ExpectedErrors tidbErrors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sqliteErrors = new ExpectedErrors();
+        SQLite3Errors.addExpectedExpressionErrors(sqliteErrors);
+        SQLite3Errors.addMatchQueryErrors(sqliteErrors);
+        SQLite3Errors.addQueryErrors(sqliteErrors);
+        tidbErrors = new ExpectedErrors();
+        TiDBErrors.addExpressionErrors(tidbErrors);
+        TiDBErrors.addInsertErrors(tidbErrors);
+    }
+
+    @Benchmark
+    public boolean sqlite3Hit() {
+        return sqliteErrors.errorIsExpected(SQLITE3_HIT);
+    }
+
+    @Benchmark
+    public boolean sqlite3Miss() {
+        return sqliteErrors.errorIsExpected(MISS);
+    }
+
+    /**
+     * Creates the expected errors of a statement as the generators do, which happens for almost every statement.
+     */
+    @Benchmark
+    public boolean sqlite3CreateAndMiss() {
+        ExpectedErrors errors = new ExpectedErrors();
+        SQLite3Errors.addExpectedExpressionErrors(errors);
+        SQLite3Errors.addMatchQueryErrors(errors);
+        SQLite3Errors.addQueryErrors(errors);
+        return errors.errorIsExpected(MISS);
+    }
+
+    @Benchmark
+    public boolean tidbHit() {
+        return tidbErrors.errorIsExpected(TIDB_HIT);
+    }
+
+    @Benchmark
+    public boolean tidbMiss() {
+        return tidbErrors.errorIsExpected(MISS);
+    }
+
+}
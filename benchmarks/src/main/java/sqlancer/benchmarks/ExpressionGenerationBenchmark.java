@@ -0,0 +1,98 @@
+package sqlancer.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import sqlancer.IgnoreMeException;
+import sqlancer.mysql.MySQLGlobalState;
+import sqlancer.mysql.MySQLSchema.MySQLColumn;
+import sqlancer.mysql.gen.MySQLExpressionGenerator;
+import sqlancer.sqlite3.SQLite3GlobalState;
+import sqlancer.sqlite3.gen.SQLite3ExpressionGenerator;
+import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Column;
+import sqlancer.tidb.TiDBExpressionGenerator;
+import sqlancer.tidb.TiDBProvider.TiDBGlobalState;
+import sqlancer.tidb.TiDBSchema.TiDBColumn;
+
+/**
+ * Measures the generation of random WHERE conditions over the columns of a table, as done by the EDC, TLP, and NoREC
+ * oracles for every query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionGenerationBenchmark {
+
+    private SQLite3GlobalState sqliteState;
+    private List<SQLite3Column> sqliteColumns;
+    private TiDBGlobalState tidbState;
+    private List<TiDBColumn> tidbColumns;
+    private MySQLGlobalState mysqlState;
+    private List<MySQLColumn> mysqlColumns;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sqliteState = BenchmarkStates.createSQLite3State("bench_expression_generation", 0);
+        sqliteColumns = sqliteState.getSchema().getRandomTableNonEmptyTables().getColumns();
+        tidbState = BenchmarkStates.createTiDBState(0);
+        tidbColumns = tidbState.getSchema().getDatabaseTables().get(0).getColumns();
+        mysqlState = BenchmarkStates.createMySQLState(0);
+        mysqlColumns = mysqlState.getSchema().getDatabaseTables().get(0).getColumns();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        sqliteState.getConnection().close();
+    }
+
+    /*
+     * The generators throw an IgnoreMeException for expressions that are not supported, which the oracles catch
+     * like any other skipped query.
+     */
+
+    @Benchmark
+    public void sqlite3(Blackhole bh) {
+        try {
+            bh.consume(new SQLite3ExpressionGenerator(sqliteState).setColumns(sqliteColumns).deterministicOnly()
+                    .generateExpression());
+        } catch (IgnoreMeException e) {
+            bh.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void tidb(Blackhole bh) {
+        try {
+            bh.consume(new TiDBExpressionGenerator(tidbState).setColumns(tidbColumns).generateExpression());
+        } catch (IgnoreMeException e) {
+            bh.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void mysql(Blackhole bh) {
+        try {
+            bh.consume(new MySQLExpressionGenerator(mysqlState).setColumns(mysqlColumns).generateExpression());
+        } catch (IgnoreMeException e) {
+            bh.consume(e);
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package sqlancer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sqlancer.Randomly;
+
+/**
+ * Measures the generation of random constants with the default options, which includes the constant cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomlyBenchmark {
+
+    private Randomly randomly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkStates.createMainOptions();
+        randomly = new Randomly(0);
+    }
+
+    @Benchmark
+    public long getInteger() {
+        return randomly.getInteger();
+    }
+
+    @Benchmark
+    public long getIntegerInRange() {
+        return randomly.getInteger(0, 100);
+    }
+
+    @Benchmark
+    public double getDouble() {
+        return randomly.getDouble();
+    }
+
+    @Benchmark
+    public String getString() {
+        return randomly.getString();
+    }
+
+    @Benchmark
+    public boolean getBoolean() {
+        return Randomly.getBoolean();
+    }
+
+}
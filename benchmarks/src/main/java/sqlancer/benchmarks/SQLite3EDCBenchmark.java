@@ -0,0 +1,113 @@
+package sqlancer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import sqlancer.IgnoreMeException;
+import sqlancer.common.query.Query;
+import sqlancer.sqlite3.SQLite3GlobalState;
+import sqlancer.sqlite3.oracle.SQLite3EDCOracle;
+
+/**
+ * Measures end-to-end EDC iterations against an embedded, in-memory SQLite database, so that the overhead of the
+ * oracle (i.e., query generation, execution on both databases, and result comparison) can be tracked without a
+ * server.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SQLite3EDCBenchmark {
+
+    /**
+     * An original database with its equivalent database, which is reused across the checks.
+     */
+    @State(Scope.Thread)
+    public static class CheckState {
+
+        SQLite3GlobalState state;
+        SQLite3EDCOracle oracle;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            state = BenchmarkStates.createSQLite3State("bench_edc_check", 0);
+            oracle = new SQLite3EDCOracle(state);
+            oracle.constructEquivalentState();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            oracle.closeEquStates();
+            state.getConnection().close();
+        }
+    }
+
+    /**
+     * An original database whose equivalent database is built by each invocation. It uses its own database name, as
+     * an in-memory database lives as long as a connection to it is open.
+     */
+    @State(Scope.Thread)
+    public static class ConstructionState {
+
+        SQLite3GlobalState state;
+        private List<Query<?>> statements;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            state = BenchmarkStates.createSQLite3State("bench_edc_construction", 0);
+            statements = new ArrayList<>(state.getState().getStatements());
+        }
+
+        // building the equivalent database logs its statements to the original state, which are replayed by the next
+        // build, so the log is restored to keep the invocations equally expensive
+        @TearDown(Level.Invocation)
+        public void restoreStatements() {
+            state.getState().clearStatements();
+            statements.forEach(state.getState()::logStatement);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            state.getConnection().close();
+        }
+    }
+
+    /**
+     * A single check, which reuses the equivalent database like the checks of a database in a normal run.
+     */
+    @Benchmark
+    public void check(CheckState s, Blackhole bh) throws Exception {
+        try {
+            s.oracle.check();
+        } catch (IgnoreMeException | AssertionError e) {
+            bh.consume(e); // a mismatch must not abort the benchmark
+        }
+    }
+
+    /**
+     * Builds the equivalent database from the original one, which is done once per database in a normal run.
+     */
+    @Benchmark
+    public void constructEquivalentState(ConstructionState s) throws Exception {
+        SQLite3EDCOracle oracle = new SQLite3EDCOracle(s.state);
+        oracle.constructEquivalentState();
+        oracle.closeEquStates();
+    }
+
+}
@@ -0,0 +1,95 @@
+package sqlancer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import sqlancer.IgnoreMeException;
+import sqlancer.sqlite3.SQLite3GlobalState;
+import sqlancer.sqlite3.SQLite3Visitor;
+import sqlancer.sqlite3.ast.SQLite3Expression;
+import sqlancer.sqlite3.gen.SQLite3ExpressionGenerator;
+import sqlancer.tidb.TiDBExpressionGenerator;
+import sqlancer.tidb.TiDBProvider.TiDBGlobalState;
+import sqlancer.tidb.ast.TiDBExpression;
+import sqlancer.tidb.visitor.TiDBVisitor;
+
+/**
+ * Measures the rendering of generated expressions to SQL strings. The expressions are generated once, so that only
+ * the visitors are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToStringVisitorBenchmark {
+
+    private static final int NR_EXPRESSIONS = 256;
+
+    private SQLite3GlobalState sqliteState;
+    private final List<SQLite3Expression> sqliteExpressions = new ArrayList<>();
+    private final List<TiDBExpression> tidbExpressions = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sqliteState = BenchmarkStates.createSQLite3State("bench_to_string_visitor", 0);
+        SQLite3ExpressionGenerator sqliteGen = new SQLite3ExpressionGenerator(sqliteState)
+                .setColumns(sqliteState.getSchema().getRandomTableNonEmptyTables().getColumns());
+        TiDBGlobalState tidbState = BenchmarkStates.createTiDBState(0);
+        TiDBExpressionGenerator tidbGen = new TiDBExpressionGenerator(tidbState)
+                .setColumns(tidbState.getSchema().getDatabaseTables().get(0).getColumns());
+        while (sqliteExpressions.size() < NR_EXPRESSIONS) {
+            try {
+                sqliteExpressions.add(sqliteGen.generateExpression());
+            } catch (IgnoreMeException e) {
+                // generate another expression
+            }
+        }
+        while (tidbExpressions.size() < NR_EXPRESSIONS) {
+            try {
+                tidbExpressions.add(tidbGen.generateExpression());
+            } catch (IgnoreMeException e) {
+                // generate another expression
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        sqliteState.getConnection().close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NR_EXPRESSIONS)
+    public void sqlite3(Blackhole bh) {
+        for (SQLite3Expression expression : sqliteExpressions) {
+            bh.consume(SQLite3Visitor.asString(expression));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NR_EXPRESSIONS)
+    public void tidb(Blackhole bh) {
+        for (TiDBExpression expression : tidbExpressions) {
+            bh.consume(TiDBVisitor.asString(expression));
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+package sqlancer;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A single background thread that writes the buffered output of all {@link StateLogger}s in asynchronous mode. The
+ * loggers only append to their buffers; this thread drains them in large chunks and flushes the files on a timer, so
+ * that the threads that test the DBMS do not block on file I/O.
+ *
+ * All accesses to the current-log file writers happen on this thread, which also preserves the order of the output.
+ */
+final class AsyncLogWriter implements Runnable {
+
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
+    private static AsyncLogWriter instance;
+
+    private enum Kind {
+        DRAIN, SYNC, CLOSE, SYNC_ALL
+    }
+
+    private static final class Request {
+        private final StateLogger logger;
+        private final Kind kind;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Request(StateLogger logger, Kind kind) {
+            this.logger = logger;
+            this.kind = kind;
+        }
+    }
+
+    private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+    private final Set<StateLogger> loggers = ConcurrentHashMap.newKeySet();
+    private final long flushIntervalMillis;
+
+    private AsyncLogWriter(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    static synchronized AsyncLogWriter getInstance(MainOptions options) {
+        if (instance == null) {
+            instance = new AsyncLogWriter(options.getLogFlushIntervalMillis());
+            Thread thread = new Thread(instance, "sqlancer-log-writer");
+            thread.setDaemon(true);
+            thread.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    instance.submit(null, Kind.SYNC_ALL).get(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                    e.printStackTrace();
+                }
+            }));
+        }
+        return instance;
+    }
+
+    void register(StateLogger logger) {
+        loggers.add(logger);
+    }
+
+    /**
+     * Asks the writer thread to write the logger's buffer soon, without waiting for it.
+     */
+    void drain(StateLogger logger) {
+        submit(logger, Kind.DRAIN);
+    }
+
+    /**
+     * Writes and flushes the logger's buffer, and waits until the output is on disk.
+     */
+    void sync(StateLogger logger) {
+        await(submit(logger, Kind.SYNC));
+    }
+
+    /**
+     * Writes the logger's buffer, closes its file, and waits until this has happened.
+     */
+    void close(StateLogger logger) {
+        await(submit(logger, Kind.CLOSE));
+    }
+
+    private CompletableFuture<Void> submit(StateLogger logger, Kind kind) {
+        Request request = new Request(logger, kind);
+        requests.add(request);
+        return request.done;
+    }
+
+    private static void await(CompletableFuture<Void> done) {
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        } catch (ExecutionException e) {
+            throw new AssertionError(e.getCause());
+        }
+    }
+
+    @Override
+    public void run() {
+        long nextFlush = System.currentTimeMillis() + flushIntervalMillis;
+        while (true) {
+            try {
+                Request request = requests.poll(Math.max(0, nextFlush - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+                if (request != null) {
+                    handle(request);
+                }
+                if (System.currentTimeMillis() >= nextFlush) {
+                    for (StateLogger logger : loggers) {
+                        logger.writePendingOutput();
+                        logger.flushCurrentFileWriter();
+                    }
+                    nextFlush = System.currentTimeMillis() + flushIntervalMillis;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace(); // keep the writer alive, the next flush might succeed
+            }
+        }
+    }
+
+    private void handle(Request request) {
+        try {
+            switch (request.kind) {
+            case DRAIN:
+                request.logger.writePendingOutput();
+                break;
+            case SYNC:
+                request.logger.writePendingOutput();
+                request.logger.flushCurrentFileWriter();
+                break;
+            case CLOSE:
+                loggers.remove(request.logger);
+                request.logger.writePendingOutput();
+                request.logger.closeCurrentFileWriterNow();
+                break;
+            case SYNC_ALL:
+                for (StateLogger logger : loggers) {
+                    logger.writePendingOutput();
+                    logger.flushCurrentFileWriter();
+                }
+                break;
+            default:
+                throw new AssertionError(request.kind);
+            }
+            request.done.complete(null);
+        } catch (IOException | RuntimeException e) {
+            request.done.completeExceptionally(e);
+        }
+    }
+
+}
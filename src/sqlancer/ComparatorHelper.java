@@ -1,15 +1,17 @@
 package sqlancer;
 
-import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 import sqlancer.common.query.ExpectedErrors;
+import sqlancer.common.query.ResultSetDigest;
 import sqlancer.common.query.SQLQueryAdapter;
 import sqlancer.common.query.SQLancerResultSet;
 
@@ -41,12 +43,7 @@ public final class ComparatorHelper {
         if (state.getOptions().logEachSelect()) {
             // TODO: refactor me
             state.getLogger().writeCurrent(queryString);
-            try {
-                state.getLogger().getCurrentFileWriter().flush();
-            } catch (IOException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
+            state.getLogger().flush();
         }
         SQLQueryAdapter q = new SQLQueryAdapter(queryString, errors);
         List<String> resultSet = new ArrayList<>();
@@ -59,8 +56,8 @@ public final class ComparatorHelper {
             while (result.next()) {
                 String resultTemp = result.getString(1);
                 if (resultTemp != null) {
-                    resultTemp = resultTemp.replaceAll("[\\.]0+$", ""); // Remove the trailing zeros as many DBMS treat
-                                                                        // it as non-bugs
+                    resultTemp = ResultSetDigest.removeTrailingZeros(resultTemp); // Remove the trailing zeros as many
+                                                                                  // DBMS treat it as non-bugs
                 }
                 resultSet.add(resultTemp);
             }
@@ -117,6 +114,35 @@ public final class ComparatorHelper {
         }
     }
 
+    /**
+     * Like {@link #assumeResultSetsAreEqual(List, List, String, List, SQLGlobalState)}, but also checks that each row
+     * occurs equally often in both result sets.
+     */
+    public static void assumeResultMultisetsAreEqual(List<String> resultSet, List<String> secondResultSet,
+            String originalQueryString, List<String> combinedString, SQLGlobalState<?, ?> state) {
+        assumeResultSetsAreEqual(resultSet, secondResultSet, originalQueryString, combinedString, state);
+        Map<String, Integer> multiplicities = new HashMap<>();
+        for (String row : resultSet) {
+            multiplicities.merge(row, 1, Integer::sum);
+        }
+        for (String row : secondResultSet) {
+            multiplicities.merge(row, -1, Integer::sum);
+        }
+        multiplicities.values().removeIf(count -> count == 0);
+        if (!multiplicities.isEmpty()) {
+            String queryFormatString = "-- %s;";
+            String firstQueryString = String.format(queryFormatString, originalQueryString);
+            String secondQueryString = String.format(queryFormatString,
+                    combinedString.stream().collect(Collectors.joining(";")));
+            String differenceString = String.format("-- multiplicity differences: %s", multiplicities);
+            state.getState().getLocalState()
+                    .log(String.format("%s\n%s\n%s", firstQueryString, secondQueryString, differenceString));
+            String assertionMessage = String.format("the multiplicities of the result sets mismatch!\n%s\n%s\n%s",
+                    firstQueryString, secondQueryString, differenceString);
+            throw new AssertionError(assertionMessage);
+        }
+    }
+
     public static void assumeResultSetsAreEqual(List<String> resultSet, List<String> secondResultSet,
             String originalQueryString, List<String> combinedString, SQLGlobalState<?, ?> state,
             UnaryOperator<String> canonicalizationRule) {
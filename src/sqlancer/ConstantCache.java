@@ -0,0 +1,187 @@
+package sqlancer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import sqlancer.Randomly.CacheEvictionPolicy;
+
+/**
+ * A bounded set of constants that {@link Randomly} reuses with a certain probability. The constants are kept in a
+ * dense array, from which a random one is sampled in constant time, while a separate structure answers membership
+ * queries in constant time. Once the cache is full, a new constant replaces an existing one according to the eviction
+ * policy.
+ */
+abstract class ConstantCache {
+
+    private final int capacity;
+    private final CacheEvictionPolicy evictionPolicy;
+    private int size;
+    private int nextToEvict;
+
+    ConstantCache(int capacity, CacheEvictionPolicy evictionPolicy) {
+        this.capacity = capacity;
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    final int size() {
+        return size;
+    }
+
+    final boolean isEmpty() {
+        return size == 0;
+    }
+
+    final int getRandomIndex() {
+        return (int) Randomly.getNotCachedInteger(0, size);
+    }
+
+    /**
+     * Determines where a new constant is stored.
+     *
+     * @return the index in the dense array, which holds a constant that must be evicted if the cache is full, or -1 if
+     *         the constant is not cached
+     */
+    final int claimIndex() {
+        if (size < capacity) {
+            return size++;
+        }
+        if (capacity == 0) {
+            return -1;
+        }
+        switch (evictionPolicy) {
+        case FIFO:
+            int index = nextToEvict;
+            nextToEvict = (nextToEvict + 1) % capacity;
+            return index;
+        case RANDOM:
+            return getRandomIndex();
+        case NONE:
+            return -1;
+        default:
+            throw new AssertionError(evictionPolicy);
+        }
+    }
+
+    /**
+     * A cache of long values, which is also used for doubles by their bit patterns (which is how {@link Double#equals}
+     * compares them). Membership is determined by an open-addressing hash table with linear probing, whose slots refer
+     * to the indexes of the dense array.
+     */
+    static final class Longs extends ConstantCache {
+
+        private static final int EMPTY = -1;
+
+        private final long[] values;
+        private final int[] slots;
+        private final int mask;
+
+        Longs(int capacity, CacheEvictionPolicy evictionPolicy) {
+            super(capacity, evictionPolicy);
+            values = new long[capacity];
+            int nrSlots = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) << 1;
+            slots = new int[nrSlots];
+            Arrays.fill(slots, EMPTY);
+            mask = nrSlots - 1;
+        }
+
+        long getRandom() {
+            return values[getRandomIndex()];
+        }
+
+        boolean contains(long value) {
+            return findSlot(value) != EMPTY;
+        }
+
+        void add(long value) {
+            if (contains(value)) {
+                return;
+            }
+            boolean isFull = size() == values.length;
+            int index = claimIndex();
+            if (index == -1) {
+                return;
+            }
+            if (isFull) {
+                removeSlot(findSlot(values[index]));
+            }
+            values[index] = value;
+            int slot = hash(value) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = index;
+        }
+
+        private int findSlot(long value) {
+            int slot = hash(value) & mask;
+            while (slots[slot] != EMPTY) {
+                if (values[slots[slot]] == value) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return EMPTY;
+        }
+
+        // backward-shift deletion, which keeps the probe sequences intact without tombstones
+        private void removeSlot(int slot) {
+            int next = (slot + 1) & mask;
+            while (slots[next] != EMPTY) {
+                int home = hash(values[slots[next]]) & mask;
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    slots[slot] = slots[next];
+                    slot = next;
+                }
+                next = (next + 1) & mask;
+            }
+            slots[slot] = EMPTY;
+        }
+
+        // MurmurHash3 finalizer
+        private static int hash(long value) {
+            long h = value;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return (int) h;
+        }
+    }
+
+    /**
+     * A cache of strings, whose membership is determined by a hash set.
+     */
+    static final class Strings extends ConstantCache {
+
+        private final String[] values;
+        private final Set<String> members = new HashSet<>();
+
+        Strings(int capacity, CacheEvictionPolicy evictionPolicy) {
+            super(capacity, evictionPolicy);
+            values = new String[capacity];
+        }
+
+        String getRandom() {
+            return values[getRandomIndex()];
+        }
+
+        void add(String value) {
+            if (members.contains(value)) {
+                return;
+            }
+            boolean isFull = size() == values.length;
+            int index = claimIndex();
+            if (index == -1) {
+                return;
+            }
+            if (isFull) {
+                members.remove(values[index]);
+            }
+            values[index] = value;
+            members.add(value);
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package sqlancer;
+
+import java.util.List;
+
+import sqlancer.common.query.Query;
+
+/**
+ * A saved copy of a database, which can be restored into a newly created database instead of executing the statements
+ * that led to it again.
+ *
+ * @see DatabaseProvider#createCheckpoint(GlobalState)
+ */
+public interface DatabaseCheckpoint<G extends GlobalState<?, ?, C>, C extends SQLancerDBConnection>
+        extends AutoCloseable {
+
+    /**
+     * Restores the saved database into the database of the given state, which has just been created.
+     *
+     * @param globalState
+     *            the state whose database is overwritten
+     * @param statements
+     *            the statements that led to the checkpoint, of which those whose effect is not stored in the database
+     *            (e.g., session settings) are executed again
+     *
+     * @throws Exception
+     *             if the database cannot be restored
+     */
+    void restore(G globalState, List<Query<C>> statements) throws Exception;
+
+    /**
+     * Deletes the saved database.
+     */
+    @Override
+    void close();
+
+}
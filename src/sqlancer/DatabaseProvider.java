@@ -1,12 +1,7 @@
 package sqlancer;
 
 import sqlancer.common.log.LoggableFactory;
-import sqlancer.common.oracle.EDCBase;
-
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
+import sqlancer.common.oracle.DatabaseStructureIndex;
 
 public interface DatabaseProvider<
 		G extends GlobalState<O, ?, C>, O extends DBMSSpecificOptions<?>, C extends SQLancerDBConnection> {
@@ -30,6 +25,8 @@ public interface DatabaseProvider<
      *
      * @param globalState
      *            the state created and is valid for this method call.
+     * @param databaseStructureIndex
+     *            the database structures that have already been tested, shared by all threads.
      *
      * @return Reproducer if a bug is found and a reproducer is available.
      *
@@ -38,10 +35,26 @@ public interface DatabaseProvider<
      *
      */
 
-    Reproducer<G> generateAndTestDatabase(G globalState, Set<Integer> databaseStructureSet) throws Exception;
+    Reproducer<G> generateAndTestDatabase(G globalState, DatabaseStructureIndex databaseStructureIndex) throws Exception;
 
     C createDatabase(G globalState) throws Exception;
 
+    /**
+     * Saves the database of the given state, so that the {@link StatementReducer} can restore it instead of executing
+     * the statements that led to it for every candidate.
+     *
+     * @param globalState
+     *            the state whose database is saved
+     *
+     * @return the checkpoint, or null if the DBMS does not support checkpoints
+     *
+     * @throws Exception
+     *             if saving the database fails
+     */
+    default DatabaseCheckpoint<G, C> createCheckpoint(G globalState) throws Exception {
+        return null;
+    }
+
     /**
      * The DBMS name is used to name the log directory and command to test the respective DBMS.
      *
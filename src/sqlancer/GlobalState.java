@@ -1,5 +1,9 @@
 package sqlancer;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import sqlancer.common.query.Query;
 import sqlancer.common.query.SQLancerResultSet;
 import sqlancer.common.schema.AbstractSchema;
@@ -17,6 +21,7 @@ public abstract class GlobalState<
     private StateToReproduce state;
     private Main.QueryManager<C> manager;
     private String databaseName;
+    private long dataVersion;
 
     public void setConnection(C con) {
         this.databaseConnection = con;
@@ -140,15 +145,106 @@ public abstract class GlobalState<
         return schema;
     }
 
+    /**
+     * A counter that changes whenever a statement that might have changed the rows of a table is executed, which
+     * allows caching data (e.g., sampled pivot rows) until it becomes stale.
+     *
+     * @return the data version
+     */
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
     protected void setSchema(S schema) {
         this.schema = schema;
     }
 
     public void updateSchema() throws Exception {
+        S previousSchema = schema;
         setSchema(readSchema());
+        if (previousSchema != null) {
+            // reading the schema does not change any rows, so the counts that are still known remain valid
+            Map<String, AbstractTable<?, ?, ?>> previousTables = new HashMap<>();
+            for (AbstractTable<?, ?, ?> table : previousSchema.getDatabaseTables()) {
+                previousTables.put(table.getName(), table);
+            }
+            for (AbstractTable<?, ?, ?> table : schema.getDatabaseTables()) {
+                AbstractTable<?, ?, ?> previousTable = previousTables.get(table.getName());
+                if (previousTable != null) {
+                    table.takeRowCountFrom(previousTable);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets the row counts of all tables and advances the data version, since a statement that might have changed
+     * the rows has been executed.
+     */
+    public void invalidateRowCounts() {
+        dataVersion++;
+        if (schema != null) {
+            for (AbstractTable<?, ?, ?> table : schema.getDatabaseTables()) {
+                table.recomputeCount();
+            }
+        }
+    }
+
+    /**
+     * Updates the schema after executing a statement that could affect it. If the DBMS knows the effect of the
+     * statement (see {@link #applySchemaChange(Query, boolean)}), it is applied to the cached schema; otherwise, the
+     * whole schema is read again.
+     *
+     * @param q
+     *            the executed statement
+     * @param success
+     *            whether the statement was executed successfully
+     *
+     * @throws Exception
+     *             if reading the schema fails
+     */
+    public void updateSchema(Query<?> q, boolean success) throws Exception {
+        if (schema == null || !applySchemaChange(q, success)) {
+            updateSchema();
+            return;
+        }
+        invalidateRowCounts();
+        if (getOptions().verifySchemaCache()) {
+            String cachedSchema = describeSchema(schema);
+            String actualSchema = describeSchema(readSchema());
+            if (!cachedSchema.equals(actualSchema)) {
+                throw new AssertionError(String.format("the cached schema differs from the DBMS' schema after %s\n%s\n%s",
+                        q.getQueryString(), cachedSchema, actualSchema));
+            }
+        }
+    }
+
+    /**
+     * Applies the effect of a statement to the cached schema, by calling {@link #setSchema(AbstractSchema)}.
+     *
+     * @param q
+     *            the executed statement
+     * @param success
+     *            whether the statement was executed successfully
+     *
+     * @return whether the effect was known and applied; if false, the schema is read again from the DBMS
+     *
+     * @throws Exception
+     *             if reading parts of the schema fails
+     */
+    protected boolean applySchemaChange(Query<?> q, boolean success) throws Exception {
+        return false;
+    }
+
+    private static String describeSchema(AbstractSchema<?, ?> schema) {
+        StringBuilder sb = new StringBuilder();
         for (AbstractTable<?, ?, ?> table : schema.getDatabaseTables()) {
-            table.recomputeCount();
+            sb.append(table);
+            sb.append("\tview: ").append(table.isView()).append(", indexes: ");
+            sb.append(table.getIndexes().stream().map(i -> i.getIndexName()).sorted().collect(Collectors.toList()));
+            sb.append("\n");
         }
+        return sb.toString();
     }
 
     protected abstract S readSchema() throws Exception;
@@ -2,16 +2,16 @@ package sqlancer;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
-import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -22,6 +22,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.JCommander.Builder;
 
+import sqlancer.common.oracle.DatabaseStructureIndex;
 import sqlancer.common.query.Query;
 import sqlancer.common.query.SQLancerResultSet;
 
@@ -49,7 +50,7 @@ public final class Main {
 
         private final GlobalState<?, ?, C> globalState;
 
-        QueryManager(GlobalState<?, ?, C> globalState) {
+        public QueryManager(GlobalState<?, ?, C> globalState) {
             this.globalState = globalState;
         }
 
@@ -72,7 +73,11 @@ public final class Main {
         }
 
         public void incrementSelectQueryCount() {
-            Main.nrQueries.addAndGet(1);
+            incrementSelectQueryCount(1);
+        }
+
+        public void incrementSelectQueryCount(int count) {
+            Main.nrQueries.addAndGet(count);
         }
 
         public void incrementCreateDatabase() {
@@ -96,7 +101,7 @@ public final class Main {
         private StateToReproduce stateToRepro;
         private final Randomly random;
 
-        protected Set<Integer> databaseStructureSet;
+        protected DatabaseStructureIndex databaseStructureIndex;
 
         public DBMSExecutor(DatabaseProvider<G, O, C> provider, MainOptions options, O dbmsSpecificOptions,
                             String databaseName, Randomly r) {
@@ -107,8 +112,8 @@ public final class Main {
             this.random = r;
         }
 
-        public void setDatabaseStructureSet(Set<Integer> databaseStructureSet) {
-            this.databaseStructureSet = databaseStructureSet;
+        public void setDatabaseStructureIndex(DatabaseStructureIndex databaseStructureIndex) {
+            this.databaseStructureIndex = databaseStructureIndex;
         }
 
         private G createGlobalState() {
@@ -149,10 +154,9 @@ public final class Main {
                 if (options.logEachSelect()) {
                     logger.writeCurrent(state.getState());
                 }
-                Reproducer<G> reproducer = provider.generateAndTestDatabase(state, databaseStructureSet);
+                Reproducer<G> reproducer = provider.generateAndTestDatabase(state, databaseStructureIndex);
                 try {
-                    logger.getCurrentFileWriter().close();
-                    logger.currentFileWriter = null;
+                    logger.closeCurrentFileWriter();
                 } catch (IOException e) {
                     throw new AssertionError(e);
                 }
@@ -303,7 +307,14 @@ public final class Main {
             }
         }
         final AtomicBoolean someOneFails = new AtomicBoolean(false);
-        Set<Integer> dbHashset = new HashSet<>();
+        final DatabaseStructureIndex dbIndex;
+        try {
+            dbIndex = createDatabaseStructureIndex(options);
+        } catch (IOException e) {
+            System.err.println("SQLancer failed opening the database structure index " + options.getStructureIndexFile());
+            e.printStackTrace();
+            return options.getErrorExitCode();
+        }
 
         for (int i = 0; i < options.getTotalNumberTries(); i++) {
             final String databaseName = options.getDatabasePrefix() + i;
@@ -322,12 +333,14 @@ public final class Main {
                 }
 
                 private void runThread(final String databaseName) {
-                    Randomly r = new Randomly(seed);
+                    // every database gets its own seed, so that the seed in its log reproduces it as the first one
+                    SplittableRandom databaseSeeds = new SplittableRandom(seed);
                     try {
                         int maxNrDbs = options.getMaxGeneratedDatabases();
                         // run without a limit if maxNrDbs == -1
                         for (int i = 0; i < maxNrDbs || maxNrDbs == -1; i++) {
-                            Boolean continueRunning = run(options, execService, executorFactory, r, databaseName, dbHashset);
+                            Randomly r = new Randomly(i == 0 ? seed : databaseSeeds.nextLong());
+                            Boolean continueRunning = run(options, execService, executorFactory, r, databaseName, dbIndex);
                             if (!continueRunning) {
                                 someOneFails.set(true);
                                 break;
@@ -343,9 +356,9 @@ public final class Main {
 
                 private boolean run(MainOptions options, ExecutorService execService,
                                     DBMSExecutorFactory<?, ?, ?> executorFactory, Randomly r, final String databaseName,
-                                    Set<Integer> databaseStructureSet) {
+                                    DatabaseStructureIndex databaseStructureIndex) {
                     DBMSExecutor<?, ?, ?> executor = executorFactory.getDBMSExecutor(databaseName, r);
-                    executor.setDatabaseStructureSet(databaseStructureSet);
+                    executor.setDatabaseStructureIndex(databaseStructureIndex);
                     try {
                         executor.run();
                         return true;
@@ -360,10 +373,7 @@ public final class Main {
                     } finally {
                         try {
                             if (options.logEachSelect()) {
-                                if (executor.getLogger().currentFileWriter != null) {
-                                    executor.getLogger().currentFileWriter.close();
-                                }
-                                executor.getLogger().currentFileWriter = null;
+                                executor.getLogger().closeCurrentFileWriter();
                             }
                         } catch (IOException e) {
                             e.printStackTrace();
@@ -382,10 +392,27 @@ public final class Main {
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        SQLConnectionPool.closeAll();
+        try {
+            dbIndex.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
 
         return someOneFails.get() ? options.getErrorExitCode() : 0;
     }
 
+    private static DatabaseStructureIndex createDatabaseStructureIndex(MainOptions options) throws IOException {
+        if (options.getStructureIndexFile().isEmpty()) {
+            return DatabaseStructureIndex.inMemory(options.getStructureIndexCapacity());
+        }
+        DatabaseStructureIndex index = DatabaseStructureIndex.mapped(Paths.get(options.getStructureIndexFile()),
+                options.getStructureIndexCapacity());
+        // the index is also written back when the campaign is killed, e.g., by --timeout-seconds
+        Runtime.getRuntime().addShutdownHook(new Thread(index::force));
+        return index;
+    }
+
     /**
      * To register a new provider, it is necessary to implement the DatabaseProvider interface and add an additional
      * configuration file, see https://docs.oracle.com/javase/9/docs/api/java/util/ServiceLoader.html. Currently, we use
@@ -5,6 +5,7 @@ import java.util.Objects;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 
+import sqlancer.Randomly.CacheEvictionPolicy;
 import sqlancer.Randomly.StringGenerationStrategy;
 
 @Parameters(separators = "=", commandDescription = "Options applicable to all DBMS")
@@ -40,6 +41,21 @@ public class MainOptions {
     @Parameter(names = {"--adaptive"}, description = "Specifies whether calculate the test rounds based on the metadata model", arity = 1)
     private boolean isAdaptive = true;
 
+    @Parameter(names = { "--pipelined-check" }, description = "Specifies whether EDC sends the query to the original and the equivalent database concurrently", arity = 1)
+    private boolean pipelinedCheck = true; // NOPMD
+
+    @Parameter(names = { "--edc-batch-size" }, description = "Specifies how many EDC queries are sent to each database in one multi-statement request, for the DBMS whose connections support them (1: send each query on its own)")
+    private int edcBatchSize = 1; // NOPMD
+
+    @Parameter(names = { "--edc-query-queue-size" }, description = "Specifies how many EDC queries a separate thread generates ahead of their execution, so that generating them overlaps with waiting for the DBMS (0: generate each query right before it is executed)")
+    private int edcQueryQueueSize = 16; // NOPMD
+
+    @Parameter(names = { "--structure-index-file" }, description = "Specifies a file in which the database structures seen by --adaptive are persisted, so that restarted or parallel runs skip them (empty: keep them in memory only)")
+    private String structureIndexFile = ""; // NOPMD
+
+    @Parameter(names = { "--structure-index-capacity" }, description = "Specifies the number of database structures the structure index can hold")
+    private int structureIndexCapacity = 1 << 20; // NOPMD
+
     @Parameter(names = {
             "--num-statement-kind-retries" }, description = "Specifies the number of times a specific statement kind (e.g., INSERT) should be retried when the DBMS indicates that it failed")
     private int nrStatementRetryCount = 1000; // NOPMD
@@ -47,9 +63,24 @@ public class MainOptions {
     @Parameter(names = "--log-each-select", description = "Logs every statement issued", arity = 1)
     private boolean logEachSelect = true; // NOPMD
 
+    @Parameter(names = "--async-logging", description = "Writes the statements logged by --log-each-select in a background thread, which flushes them periodically and whenever a bug is found", arity = 1)
+    private boolean asyncLogging = true; // NOPMD
+
+    @Parameter(names = "--log-flush-interval-ms", description = "Specifies how often the background thread of --async-logging flushes the logs")
+    private int logFlushIntervalMillis = 1000; // NOPMD
+
+    @Parameter(names = "--connection-pool", description = "Reuses the connections to a DBMS server across databases, instead of establishing a new connection for each database and EDC state", arity = 1)
+    private boolean connectionPool = true; // NOPMD
+
+    @Parameter(names = "--max-idle-connections", description = "Specifies the number of idle connections --connection-pool keeps per server")
+    private int maxIdleConnections = 16; // NOPMD
+
     @Parameter(names = "--log-execution-time", description = "Logs the execution time of each statement (requires --log-each-select to be enabled)", arity = 1)
     private boolean logExecutionTime = true; // NOPMD
 
+    @Parameter(names = "--verify-schema-cache", description = "Compares the incrementally-updated schema with the DBMS' schema after each statement that could affect it (for debugging)", arity = 1)
+    private boolean verifySchemaCache; // NOPMD
+
     @Parameter(names = "--print-failed", description = "Logs failed insert, create and other statements without results", arity = 1)
     private boolean loggerPrintFailed = true; // NOPMD
 
@@ -107,12 +138,18 @@ public class MainOptions {
     @Parameter(names = "--constant-cache-size", description = "Specifies the size of the constant cache. This option only takes effect when constant caching is enabled")
     private int constantCacheSize = 100; // NOPMD
 
+    @Parameter(names = "--constant-cache-eviction", description = "Specifies which cached constant a new one replaces once the constant cache is full (NONE: the cache is no longer updated)")
+    private CacheEvictionPolicy constantCacheEvictionPolicy = CacheEvictionPolicy.FIFO; // NOPMD
+
     @Parameter(names = "--database-prefix", description = "The prefix used for each database created")
     private String databasePrefix = "database"; // NOPMD
 
     @Parameter(names = "--use-reducer", description = "EXPERIMENTAL Attempt to reduce queries using a simple reducer")
     private boolean useReducer = false; // NOPMD
 
+    @Parameter(names = "--reducer-threads", description = "The number of scratch databases on which the reducer tests candidates in parallel")
+    private int nrReducerThreads = 4; // NOPMD
+
     @Parameter(names = { "--set-case" }, description = "Whether use a specified case")
     private boolean setCase = false;
 
@@ -138,6 +175,14 @@ public class MainOptions {
         return logEachSelect;
     }
 
+    public boolean useAsyncLogging() {
+        return asyncLogging;
+    }
+
+    public int getLogFlushIntervalMillis() {
+        return logFlushIntervalMillis;
+    }
+
     public boolean printAllStatements() {
         if (printSucceedingStatements && printStatements) {
             throw new AssertionError();
@@ -159,6 +204,10 @@ public class MainOptions {
         return logExecutionTime;
     }
 
+    public boolean verifySchemaCache() {
+        return verifySchemaCache;
+    }
+
     public boolean loggerPrintFailed() {
         return loggerPrintFailed;
     }
@@ -171,6 +220,38 @@ public class MainOptions {
         return isAdaptive;
     }
 
+    public boolean usePipelinedCheck() {
+        return pipelinedCheck;
+    }
+
+    public int getEDCBatchSize() {
+        return edcBatchSize;
+    }
+
+    public boolean useEDCBatches() {
+        return edcBatchSize > 1;
+    }
+
+    public int getEDCQueryQueueSize() {
+        return edcQueryQueueSize;
+    }
+
+    public String getStructureIndexFile() {
+        return structureIndexFile;
+    }
+
+    public int getStructureIndexCapacity() {
+        return structureIndexCapacity;
+    }
+
+    public boolean useConnectionPool() {
+        return connectionPool;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
     public int getMaxNumberInserts() {
         return maxNumberInserts;
     }
@@ -243,6 +324,10 @@ public class MainOptions {
         return constantCacheSize;
     }
 
+    public CacheEvictionPolicy getConstantCacheEvictionPolicy() {
+        return constantCacheEvictionPolicy;
+    }
+
     public boolean isHelp() {
         return help;
     }
@@ -266,6 +351,11 @@ public class MainOptions {
     public boolean useReducer() {
         return useReducer;
     }
+
+    public int getNrReducerThreads() {
+        return nrReducerThreads;
+    }
+
     public boolean isSetCase() {
         return setCase;
     }
@@ -2,12 +2,12 @@ package sqlancer;
 
 import sqlancer.StateToReproduce.OracleRunReproductionState;
 import sqlancer.common.oracle.CompositeTestOracle;
+import sqlancer.common.oracle.DatabaseStructureIndex;
 import sqlancer.common.oracle.EDCBase;
 import sqlancer.common.oracle.TestOracle;
 import sqlancer.common.schema.AbstractSchema;
 
 import java.util.List;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 public abstract class ProviderAdapter<
@@ -39,7 +39,7 @@ public abstract class ProviderAdapter<
     }
 
     @Override
-    public Reproducer<G> generateAndTestDatabase(G globalState, Set<Integer> databaseStructureSet) throws Exception {
+    public Reproducer<G> generateAndTestDatabase(G globalState, DatabaseStructureIndex databaseStructureIndex) throws Exception {
         TestOracle<G> oracle = null;
         boolean isEDCOracle = false;
         try {
@@ -51,7 +51,7 @@ public abstract class ProviderAdapter<
             int nrQueries = globalState.getOptions().getNrQueries();
             if (oracle instanceof EDCBase) {
                 isEDCOracle = true;
-                boolean findNew = ((EDCBase) oracle).containsNewDatabaseStructure(databaseStructureSet);
+                boolean findNew = ((EDCBase) oracle).containsNewDatabaseStructure(databaseStructureIndex);
                 if (!findNew) {
                     if (globalState.getOptions().isAdaptive()) {
                         return null;
@@ -59,17 +59,22 @@ public abstract class ProviderAdapter<
                 }
                 ((EDCBase) oracle).constructEquivalentState();
             }
-            for (int i = 0; i < nrQueries; i++) {
+            int queriesPerCheck = isEDCOracle ? ((EDCBase<?>) oracle).getQueriesPerCheck() : 1;
+            if (isEDCOracle) {
+                ((EDCBase<?>) oracle).prepareChecks((nrQueries + queriesPerCheck - 1) / queriesPerCheck);
+            }
+            for (int i = 0; i < nrQueries; i += queriesPerCheck) {
                 try (OracleRunReproductionState localState = globalState.getState().createLocalState()) {
                     assert localState != null;
                     try {
                         oracle.check();
-                        globalState.getManager().incrementSelectQueryCount();
+                        globalState.getManager().incrementSelectQueryCount(queriesPerCheck);
                     } catch (IgnoreMeException e) {
 
                     } catch (AssertionError e) {
                         Reproducer<G> reproducer = oracle.getLastReproducer();
                         if (reproducer != null) {
+                            keepDatabases(globalState, oracle);
                             return reproducer;
                         }
                         throw e;
@@ -78,11 +83,14 @@ public abstract class ProviderAdapter<
                     localState.executedWithoutError();
                 }
             }
+        } catch (AssertionError e) {
+            keepDatabases(globalState, oracle);
+            throw e;
         } finally {
             if (isEDCOracle) {
                 ((EDCBase<?>) oracle).closeEquStates();
-                if (!databaseStructureSet.isEmpty()) {
-                    globalState.getLogger().writeCurrent(String.format("===== unique databases: %d =====", databaseStructureSet.size()));
+                if (!databaseStructureIndex.isEmpty()) {
+                    globalState.getLogger().writeCurrent(String.format("===== unique databases: %d =====", databaseStructureIndex.size()));
                 }
             }
             globalState.getConnection().close();
@@ -92,6 +100,18 @@ public abstract class ProviderAdapter<
 
     protected abstract void checkViewsAreValid(G globalState);
 
+    /**
+     * Is called when a bug is found, before the connections are closed, so that a DBMS whose databases do not outlive
+     * their connections (e.g., in-memory databases) can store them for reproducing the bug.
+     *
+     * @param globalState
+     *            the state of the original database
+     * @param oracle
+     *            the oracle that found the bug, or null if the bug was found while generating the database
+     */
+    protected void keepDatabases(G globalState, TestOracle<G> oracle) {
+    }
+
     protected TestOracle getTestOracle(G globalState) throws Exception {
         List<? extends OracleFactory<G>> testOracleFactory = globalState.getDbmsSpecificOptions()
                 .getTestOracleFactory();
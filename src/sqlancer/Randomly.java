@@ -4,7 +4,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.function.Supplier;
 
 public final class Randomly {
@@ -13,68 +13,59 @@ public final class Randomly {
     private static int maxStringLength = 10;
     private static boolean useCaching = true;
     private static int cacheSize = 100;
+    private static CacheEvictionPolicy cacheEvictionPolicy = CacheEvictionPolicy.FIFO;
 
-    private final List<Long> cachedLongs = new ArrayList<>();
-    private final List<String> cachedStrings = new ArrayList<>();
-    private final List<Double> cachedDoubles = new ArrayList<>();
+    private final ConstantCache.Longs cachedLongs = new ConstantCache.Longs(cacheSize, cacheEvictionPolicy);
+    private final ConstantCache.Strings cachedStrings = new ConstantCache.Strings(cacheSize, cacheEvictionPolicy);
+    // the bit patterns of the cached doubles
+    private final ConstantCache.Longs cachedDoubles = new ConstantCache.Longs(cacheSize, cacheEvictionPolicy);
     private final List<byte[]> cachedBytes = new ArrayList<>();
     private Supplier<String> provider;
 
-    private static final ThreadLocal<Random> THREAD_RANDOM = new ThreadLocal<>();
+    // a static method might be called before Randomly is instantiated on a thread
+    private static final ThreadLocal<SplittableRandom> THREAD_RANDOM = ThreadLocal.withInitial(SplittableRandom::new);
     private long seed;
 
+    public enum CacheEvictionPolicy {
+        /** The cache is no longer updated once it is full. */
+        NONE,
+        /** A new constant replaces the oldest one. */
+        FIFO,
+        /** A new constant replaces a random one. */
+        RANDOM
+    }
+
     private void addToCache(long val) {
-        if (useCaching && cachedLongs.size() < cacheSize && !cachedLongs.contains(val)) {
+        if (useCaching) {
             cachedLongs.add(val);
         }
     }
 
     private void addToCache(double val) {
-        if (useCaching && cachedDoubles.size() < cacheSize && !cachedDoubles.contains(val)) {
-            cachedDoubles.add(val);
+        if (useCaching) {
+            cachedDoubles.add(Double.doubleToLongBits(val));
         }
     }
 
     private void addToCache(String val) {
-        if (useCaching && cachedStrings.size() < cacheSize && !cachedStrings.contains(val)) {
+        if (useCaching) {
             cachedStrings.add(val);
         }
     }
 
-    private Long getFromLongCache() {
-        if (!useCaching || cachedLongs.isEmpty()) {
-            return null;
-        } else {
-            return Randomly.fromList(cachedLongs);
-        }
-    }
-
-    private Double getFromDoubleCache() {
-        if (!useCaching) {
-            return null;
-        }
-        if (Randomly.getBoolean() && !cachedLongs.isEmpty()) {
-            return (double) Randomly.fromList(cachedLongs);
-        } else if (!cachedDoubles.isEmpty()) {
-            return Randomly.fromList(cachedDoubles);
-        } else {
-            return null;
-        }
-    }
-
     private String getFromStringCache() {
         if (!useCaching) {
             return null;
         }
         if (Randomly.getBoolean() && !cachedLongs.isEmpty()) {
-            return String.valueOf(Randomly.fromList(cachedLongs));
+            return String.valueOf(cachedLongs.getRandom());
         } else if (Randomly.getBoolean() && !cachedDoubles.isEmpty()) {
-            return String.valueOf(Randomly.fromList(cachedDoubles));
+            return String.valueOf(Double.longBitsToDouble(cachedDoubles.getRandom()));
         } else if (Randomly.getBoolean() && !cachedBytes.isEmpty()
                 && stringGenerationStrategy == StringGenerationStrategy.SOPHISTICATED) {
             return new String(Randomly.fromList(cachedBytes));
         } else if (!cachedStrings.isEmpty()) {
-            String randomString = Randomly.fromList(cachedStrings);
+            String randomString = cachedStrings.getRandom();
             if (Randomly.getBoolean()) {
                 return randomString;
             } else {
@@ -159,36 +150,63 @@ public final class Randomly {
 
     public static int smallNumber() {
         // no need to cache for small numbers
-        return (int) (Math.abs(getThreadRandom().get().nextGaussian())) * 2;
+        return (int) (Math.abs(nextGaussian(getThreadRandom()))) * 2;
     }
 
     public static boolean getBoolean() {
-        return getThreadRandom().get().nextBoolean();
+        return getThreadRandom().nextBoolean();
     }
 
     public static double getPercentage() {
-        return getThreadRandom().get().nextDouble();
+        return getThreadRandom().nextDouble();
+    }
+
+    /**
+     * Splits a new random number generator off the one that the static methods use on the calling thread, so that
+     * another thread can draw random values concurrently (see {@link #setRandomOfCurrentThread(SplittableRandom)}).
+     * Both sequences only depend on the seed, regardless of how the threads interleave.
+     *
+     * @return an independent random number generator
+     */
+    public static SplittableRandom splitRandomOfCurrentThread() {
+        return getThreadRandom().split();
+    }
+
+    /**
+     * Makes the static methods use the given random number generator on the calling thread. It must not be used by
+     * another thread, since {@link SplittableRandom} is not thread-safe.
+     *
+     * @param random
+     *            the random number generator, typically split off the one of another thread
+     */
+    public static void setRandomOfCurrentThread(SplittableRandom random) {
+        THREAD_RANDOM.set(random);
+    }
+
+    private static SplittableRandom getThreadRandom() {
+        return THREAD_RANDOM.get();
     }
 
-    private static ThreadLocal<Random> getThreadRandom() {
-        if (THREAD_RANDOM.get() == null) {
-            // a static method has been called, before Randomly was instantiated
-            THREAD_RANDOM.set(new Random());
+    // Marsaglia's polar method, since SplittableRandom does not provide Gaussian values
+    private static double nextGaussian(SplittableRandom random) {
+        while (true) {
+            double v1 = 2 * random.nextDouble() - 1;
+            double v2 = 2 * random.nextDouble() - 1;
+            double s = v1 * v1 + v2 * v2;
+            if (s < 1 && s != 0) {
+                return v1 * Math.sqrt(-2 * Math.log(s) / s);
+            }
         }
-        return THREAD_RANDOM;
     }
 
     public long getInteger() {
         if (smallBiasProbability()) {
             return Randomly.fromOptions(-1L, Long.MAX_VALUE, Long.MIN_VALUE, 1L, 0L);
         } else {
-            if (cacheProbability()) {
-                Long l = getFromLongCache();
-                if (l != null) {
-                    return l;
-                }
+            if (cacheProbability() && !cachedLongs.isEmpty()) {
+                return cachedLongs.getRandom();
             }
-            long nextLong = getThreadRandom().get().nextInt();
+            long nextLong = getThreadRandom().nextInt();
             addToCache(nextLong);
             return nextLong;
         }
@@ -332,7 +350,7 @@ public final class Randomly {
     public byte[] getBytes() {
         int size = Randomly.smallNumber();
         byte[] arr = new byte[size];
-        getThreadRandom().get().nextBytes(arr);
+        getThreadRandom().nextBytes(arr);
         return arr;
     }
 
@@ -341,9 +359,9 @@ public final class Randomly {
         if (smallBiasProbability()) {
             return Randomly.fromOptions(-1L, Long.MAX_VALUE, Long.MIN_VALUE, 1L);
         }
-        if (cacheProbability()) {
-            Long l = getFromLongCache();
-            if (l != null && l != 0) {
+        if (cacheProbability() && !cachedLongs.isEmpty()) {
+            long l = cachedLongs.getRandom();
+            if (l != 0) {
                 return l;
             }
         }
@@ -356,9 +374,9 @@ public final class Randomly {
     }
 
     public long getPositiveInteger() {
-        if (cacheProbability()) {
-            Long value = getFromLongCache();
-            if (value != null && value >= 0) {
+        if (cacheProbability() && !cachedLongs.isEmpty()) {
+            long value = cachedLongs.getRandom();
+            if (value >= 0) {
                 return value;
             }
         }
@@ -387,22 +405,23 @@ public final class Randomly {
             return Randomly.fromOptions(0.0, -0.0, Double.MAX_VALUE, -Double.MAX_VALUE, Double.POSITIVE_INFINITY,
                     Double.NEGATIVE_INFINITY);
         } else if (cacheProbability()) {
-            Double d = getFromDoubleCache();
-            if (d != null) {
-                return d;
+            if (Randomly.getBoolean() && !cachedLongs.isEmpty()) {
+                return cachedLongs.getRandom();
+            } else if (!cachedDoubles.isEmpty()) {
+                return Double.longBitsToDouble(cachedDoubles.getRandom());
             }
         }
-        double value = getThreadRandom().get().nextDouble();
+        double value = getThreadRandom().nextDouble();
         addToCache(value);
         return value;
     }
 
     private static boolean smallBiasProbability() {
-        return getThreadRandom().get().nextInt(100) == 1;
+        return getThreadRandom().nextInt(100) == 1;
     }
 
     public static boolean getBooleanWithRatherLowProbability() {
-        return getThreadRandom().get().nextInt(10) == 1;
+        return getThreadRandom().nextInt(10) == 1;
     }
 
     public static boolean getBooleanWithSmallProbability() {
@@ -425,7 +444,7 @@ public final class Randomly {
     }
 
     public BigDecimal getRandomBigDecimal() {
-        return new BigDecimal(getThreadRandom().get().nextDouble());
+        return new BigDecimal(getThreadRandom().nextDouble());
     }
 
     public long getPositiveIntegerNotNull() {
@@ -438,7 +457,7 @@ public final class Randomly {
     }
 
     public static long getNonCachedInteger() {
-        return getThreadRandom().get().nextLong();
+        return getThreadRandom().nextLong();
     }
 
     public static long getPositiveOrZeroNonCachedInteger() {
@@ -454,16 +473,16 @@ public final class Randomly {
     }
 
     public Randomly() {
-        THREAD_RANDOM.set(new Random());
+        THREAD_RANDOM.set(new SplittableRandom());
     }
 
     public Randomly(long seed) {
         this.seed = seed;
-        THREAD_RANDOM.set(new Random(seed));
+        THREAD_RANDOM.set(new SplittableRandom(seed));
     }
 
     public static double getUncachedDouble() {
-        return getThreadRandom().get().nextDouble();
+        return getThreadRandom().nextDouble();
     }
 
     public String getChar() {
@@ -484,9 +503,6 @@ public final class Randomly {
         }
     }
 
-    // see https://stackoverflow.com/a/2546158
-    // uniformity does not seem to be important for us
-    // SQLancer previously used ThreadLocalRandom.current().nextLong(lower, upper)
     private static long getNextLong(long lower, long upper) {
         if (lower > upper) {
             throw new IllegalArgumentException(lower + " " + upper);
@@ -494,7 +510,7 @@ public final class Randomly {
         if (lower == upper) {
             return lower;
         }
-        return (long) (getThreadRandom().get().longs(lower, upper).findFirst().getAsLong());
+        return getThreadRandom().nextLong(lower, upper);
     }
 
     private static int getNextInt(int lower, int upper) {
@@ -510,6 +526,7 @@ public final class Randomly {
         maxStringLength = options.getMaxStringConstantLength();
         useCaching = options.useConstantCaching();
         cacheSize = options.getConstantCacheSize();
+        cacheEvictionPolicy = options.getConstantCacheEvictionPolicy();
     }
 
 }
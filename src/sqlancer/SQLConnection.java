@@ -8,9 +8,16 @@ import java.sql.Statement;
 public class SQLConnection implements SQLancerDBConnection {
 
     private final Connection connection;
+    private final SQLConnectionPool pool;
+    private volatile boolean closed;
 
     public SQLConnection(Connection connection) {
+        this(connection, null);
+    }
+
+    SQLConnection(Connection connection, SQLConnectionPool pool) {
         this.connection = connection;
+        this.pool = pool;
     }
 
     @Override
@@ -19,16 +26,50 @@ public class SQLConnection implements SQLancerDBConnection {
         return meta.getDatabaseProductVersion();
     }
 
+    /**
+     * Switches the connection to another database, which avoids establishing a new connection.
+     *
+     * @param databaseName
+     *            the name of the database to be used
+     *
+     * @throws SQLException
+     *             if the database cannot be used
+     */
+    public void useDatabase(String databaseName) throws SQLException {
+        if (pool == null) {
+            connection.setCatalog(databaseName);
+        } else {
+            pool.useDatabase(connection, databaseName);
+        }
+    }
+
     @Override
-    public void close() throws SQLException {
-        connection.close();
+    public synchronized void close() throws SQLException {
+        if (closed) {
+            return; // a pooled connection must not be returned twice
+        }
+        closed = true;
+        if (pool == null) {
+            connection.close();
+        } else {
+            pool.release(connection);
+        }
     }
 
     public Statement prepareStatement(String arg) throws SQLException {
+        checkNotClosed();
         return connection.prepareStatement(arg);
     }
 
     public Statement createStatement() throws SQLException {
+        checkNotClosed();
         return connection.createStatement();
     }
+
+    // a pooled connection is still open after it has been released, but might already be used by someone else
+    private void checkNotClosed() throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection has been closed");
+        }
+    }
 }
@@ -0,0 +1,176 @@
+package sqlancer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * A pool of idle JDBC connections per server endpoint (i.e., URL and user). Establishing a connection is expensive,
+ * especially against TLS-enabled clusters, while the original, raw, equivalent, and transaction states only differ in
+ * the database they use. Thus, a pooled connection is switched to the requested database (by a USE statement or a
+ * catalog change) instead of opening a new one, and its session state is reset when it is returned to the pool.
+ *
+ * A {@link SQLConnection} obtained from a pool returns its connection to the pool when it is closed.
+ */
+public final class SQLConnectionPool {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    private static final Map<String, SQLConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * The DBMS-specific operations on a pooled connection.
+     */
+    public interface Dialect {
+
+        /**
+         * Makes the given database the current database of the connection.
+         *
+         * @param connection
+         *            the connection
+         * @param databaseName
+         *            the database name
+         *
+         * @throws SQLException
+         *             if the database cannot be used, for example, since the connection is broken
+         */
+        void useDatabase(Connection connection, String databaseName) throws SQLException;
+
+        /**
+         * Resets the session state (e.g., variables set by SET statements), so that it does not leak into the next
+         * database that uses the connection.
+         *
+         * @param connection
+         *            the connection
+         *
+         * @throws SQLException
+         *             if the session cannot be reset, in which case the connection is closed
+         */
+        void resetSession(Connection connection) throws SQLException;
+    }
+
+    private final String url;
+    private final String userName;
+    private final String password;
+    private final Dialect dialect;
+    private final int maxIdleConnections;
+    private final BlockingDeque<Connection> idleConnections = new LinkedBlockingDeque<>();
+
+    private SQLConnectionPool(String url, String userName, String password, Dialect dialect, int maxIdleConnections) {
+        this.url = url;
+        this.userName = userName;
+        this.password = password;
+        this.dialect = dialect;
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    /**
+     * Returns the pool of the given endpoint, which is created on first use.
+     *
+     * @param options
+     *            the options that determine whether and how many connections are kept
+     * @param url
+     *            the JDBC URL of the endpoint
+     * @param userName
+     *            the user name
+     * @param password
+     *            the password
+     * @param dialect
+     *            the DBMS-specific operations
+     *
+     * @return the connection pool
+     */
+    public static SQLConnectionPool forEndpoint(MainOptions options, String url, String userName, String password,
+            Dialect dialect) {
+        int maxIdleConnections = options.useConnectionPool() ? options.getMaxIdleConnections() : 0;
+        return POOLS.computeIfAbsent(url + "\u0000" + userName,
+                k -> new SQLConnectionPool(url, userName, password, dialect, maxIdleConnections));
+    }
+
+    /**
+     * Closes the idle connections of all pools.
+     */
+    public static void closeAll() {
+        for (SQLConnectionPool pool : POOLS.values()) {
+            Connection connection;
+            while ((connection = pool.idleConnections.pollFirst()) != null) {
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    /**
+     * Hands out a warm connection, or opens a new one if no idle connection is available.
+     *
+     * @param databaseName
+     *            the database to be used, or null if the connection is used to create or drop databases
+     *
+     * @return the connection, which is returned to this pool when it is closed
+     *
+     * @throws SQLException
+     *             if a new connection cannot be established
+     */
+    public SQLConnection getConnection(String databaseName) throws SQLException {
+        Connection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            try {
+                // switching the database also validates the connection, which might have been closed by the server
+                if (databaseName != null) {
+                    dialect.useDatabase(connection, databaseName);
+                    return new SQLConnection(connection, this);
+                } else if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    return new SQLConnection(connection, this);
+                }
+            } catch (SQLException e) {
+                // fall through and try the next idle connection
+            }
+            closeQuietly(connection);
+        }
+        connection = DriverManager.getConnection(url, userName, password);
+        if (databaseName != null) {
+            try {
+                dialect.useDatabase(connection, databaseName);
+            } catch (SQLException e) {
+                closeQuietly(connection);
+                throw e;
+            }
+        }
+        return new SQLConnection(connection, this);
+    }
+
+    void useDatabase(Connection connection, String databaseName) throws SQLException {
+        dialect.useDatabase(connection, databaseName);
+    }
+
+    void release(Connection connection) throws SQLException {
+        if (connection.isClosed()) {
+            return;
+        }
+        if (idleConnections.size() >= maxIdleConnections) {
+            connection.close();
+            return;
+        }
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            dialect.resetSession(connection);
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            return;
+        }
+        idleConnections.offerFirst(connection); // LIFO, so that the most recently used connections stay warm
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+}
@@ -7,6 +7,7 @@ import java.io.Writer;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import sqlancer.common.log.Loggable;
 import sqlancer.common.query.Query;
@@ -20,6 +21,12 @@ public final class StateLogger {
     private static final List<String> INITIALIZED_PROVIDER_NAMES = new ArrayList<>();
     private final boolean logEachSelect;
     private final DatabaseProvider<?, ?, ?> databaseProvider;
+    private static final int CHUNK_SIZE = 1 << 16;
+    // if not null, the current log is written by a background thread, see AsyncLogWriter
+    private final AsyncLogWriter asyncLogWriter;
+    private final StringBuilder pendingOutput = new StringBuilder();
+    private boolean registered;
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
 
     private static final class AlsoWriteToConsoleFileWriter extends FileWriter {
 
@@ -52,6 +59,7 @@ public final class StateLogger {
             curFile = new File(dir, databaseName + "-cur.log");
         }
         this.databaseProvider = provider;
+        this.asyncLogWriter = logEachSelect && options.useAsyncLogging() ? AsyncLogWriter.getInstance(options) : null;
     }
 
     private void ensureExistsAndIsEmpty(File dir, DatabaseProvider<?, ?, ?> provider) {
@@ -88,6 +96,11 @@ public final class StateLogger {
         return logFileWriter;
     }
     
+    /**
+     * Gets the writer of the current log. In asynchronous mode, it must only be used by the background writer thread.
+     *
+     * @return the writer of the current log
+     */
     public FileWriter getCurrentFileWriter() {
         if (!logEachSelect) {
             throw new UnsupportedOperationException();
@@ -106,6 +119,10 @@ public final class StateLogger {
         if (!logEachSelect) {
             throw new UnsupportedOperationException();
         }
+        if (asyncLogWriter != null) {
+            append(getStateString(state));
+            return;
+        }
         printState(getCurrentFileWriter(), state);
         try {
             currentFileWriter.flush();
@@ -127,6 +144,10 @@ public final class StateLogger {
         if (!logEachSelect) {
             throw new UnsupportedOperationException();
         }
+        if (asyncLogWriter != null) {
+            append(loggable.getLogString());
+            return;
+        }
         try {
             getCurrentFileWriter().write(loggable.getLogString());
 
@@ -136,7 +157,85 @@ public final class StateLogger {
         }
     }
 
+    private void append(String output) {
+        boolean chunkIsFull;
+        synchronized (pendingOutput) {
+            if (!registered) {
+                asyncLogWriter.register(this);
+                registered = true;
+            }
+            pendingOutput.append(output);
+            chunkIsFull = pendingOutput.length() >= CHUNK_SIZE;
+        }
+        if (chunkIsFull && drainRequested.compareAndSet(false, true)) {
+            asyncLogWriter.drain(this);
+        }
+    }
+
+    /**
+     * Makes the current log visible on disk. In asynchronous mode, this only asks the writer thread to write the
+     * buffered output soon.
+     */
+    public void flush() {
+        if (asyncLogWriter != null) {
+            if (drainRequested.compareAndSet(false, true)) {
+                asyncLogWriter.drain(this);
+            }
+            return;
+        }
+        try {
+            getCurrentFileWriter().flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes all buffered output of the current log to disk and closes the file.
+     */
+    public void closeCurrentFileWriter() throws IOException {
+        if (asyncLogWriter != null) {
+            asyncLogWriter.close(this);
+            synchronized (pendingOutput) {
+                registered = false;
+            }
+        } else {
+            closeCurrentFileWriterNow();
+        }
+    }
+
+    void closeCurrentFileWriterNow() throws IOException {
+        if (currentFileWriter != null) {
+            currentFileWriter.close();
+            currentFileWriter = null;
+        }
+    }
+
+    // called by the AsyncLogWriter thread
+    void writePendingOutput() throws IOException {
+        drainRequested.set(false);
+        String output;
+        synchronized (pendingOutput) {
+            if (pendingOutput.length() == 0) {
+                return;
+            }
+            output = pendingOutput.toString();
+            pendingOutput.setLength(0);
+        }
+        getCurrentFileWriter().write(output);
+    }
+
+    // called by the AsyncLogWriter thread
+    void flushCurrentFileWriter() throws IOException {
+        if (currentFileWriter != null) {
+            currentFileWriter.flush();
+        }
+    }
+
     public void logException(Throwable reduce, StateToReproduce state) {
+        if (asyncLogWriter != null) {
+            asyncLogWriter.sync(this); // the statements that triggered the bug must be on disk before we return
+        }
         Loggable stackTrace = getStackTrace(reduce);
         FileWriter logFileWriter2 = getLogFileWriter();
         try {
@@ -159,6 +258,14 @@ public final class StateLogger {
     }
 
     private void printState(FileWriter writer, StateToReproduce state) {
+        try {
+            writer.write(getStateString(state));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private String getStateString(StateToReproduce state) {
         StringBuilder sb = new StringBuilder();
 
         sb.append(databaseProvider.getLoggableFactory()
@@ -168,11 +275,7 @@ public final class StateLogger {
             sb.append(s.getLogString());
             sb.append('\n');
         }
-        try {
-            writer.write(sb.toString());
-        } catch (IOException e) {
-            throw new AssertionError(e);
-        }
+        return sb.toString();
     }
 
-}
\ No newline at end of file
+}
@@ -74,7 +74,7 @@ public class StatementExecutor<G extends GlobalState<?, ?, ?>, A extends Abstrac
 
             }
             if (query != null && query.couldAffectSchema()) {
-                globalState.updateSchema();
+                // the schema has already been updated in the epilogue of executeStatement()
                 queryConsumer.notify(query);
             }
             total--;
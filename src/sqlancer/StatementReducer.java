@@ -3,14 +3,32 @@ package sqlancer;
 import sqlancer.common.query.Query;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.function.BiFunction;
-import java.util.stream.Collectors;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
+/**
+ * Reduces the statements that reproduce a bug by delta debugging (ddmin). The statements are split into chunks, and
+ * the complement of each chunk (i.e., the statements without the chunk) is tested. If a complement still triggers the
+ * bug, it replaces the statements and the number of chunks is decreased; otherwise, the chunks are split further until
+ * no single statement can be removed anymore.
+ *
+ * The complements of a round are tested in parallel, each on its own scratch database. Of the complements that still
+ * trigger the bug, the first one is taken, so that the result does not depend on the number of threads. If the DBMS
+ * supports {@link DatabaseCheckpoint}s and a round has enough chunks, the database is saved once at every chunk
+ * boundary, and each complement starts from the checkpoint before its removed chunk instead of executing the common
+ * prefix again.
+ */
 public class StatementReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpecificOptions<?>, C extends SQLancerDBConnection>
         implements Reducer<G> {
     private final DatabaseProvider<G, O, C> provider;
-    private boolean observedChange;
+    private boolean supportsCheckpoints = true;
 
     public StatementReducer(DatabaseProvider<G, O, C> provider) {
         this.provider = provider;
@@ -28,52 +46,182 @@ public class StatementReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpec
         printQueries(knownToReproduceBugStatements);
         System.out.println();
 
-        do {
-            observedChange = false;
-            knownToReproduceBugStatements = tryReduction(state, reproducer, newGlobalState,
-                    knownToReproduceBugStatements, (candidateStatements, i) -> {
-                        candidateStatements.remove((int) i);
-                        return true;
-                    });
-        } while (observedChange);
+        List<G> scratchStates = createScratchStates(newGlobalState);
+        ExecutorService executor = Executors.newFixedThreadPool(scratchStates.size(), r -> {
+            Thread thread = new Thread(r, Thread.currentThread().getName() + "-reducer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            BlockingQueue<G> idleStates = new LinkedBlockingQueue<>(scratchStates);
+            int nrChunks = 2;
+            while (knownToReproduceBugStatements.size() >= 2) {
+                nrChunks = Math.min(nrChunks, knownToReproduceBugStatements.size());
+                List<Query<C>> reducedStatements = tryReduction(reproducer, knownToReproduceBugStatements, nrChunks,
+                        idleStates, executor);
+                if (reducedStatements != null) {
+                    knownToReproduceBugStatements = reducedStatements;
+                    nrChunks = Math.max(nrChunks - 1, 2);
+                } else if (nrChunks == knownToReproduceBugStatements.size()) {
+                    break;
+                } else {
+                    nrChunks = Math.min(nrChunks * 2, knownToReproduceBugStatements.size());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        newGlobalState.getState().setStatements(new ArrayList<>(knownToReproduceBugStatements));
 
         System.out.println("Reduced query:");
         printQueries(knownToReproduceBugStatements);
     }
 
-    private List<Query<C>> tryReduction(G state, // NOPMD
-                                        Reproducer<G> reproducer, G newGlobalState, List<Query<C>> knownToReproduceBugStatements,
-                                        BiFunction<List<Query<C>>, Integer, Boolean> reductionOperation) throws Exception {
-
-        List<Query<C>> statements = knownToReproduceBugStatements;
-        for (int i = 0; i < statements.size(); i++) {
-            try (C con2 = provider.createDatabase(newGlobalState)) {
-                newGlobalState.setConnection(con2);
-                List<Query<C>> candidateStatements = new ArrayList<>(statements);
-                if (!reductionOperation.apply(candidateStatements, i)) {
-                    continue;
+    /**
+     * Creates the states of the scratch databases, the first of which is the given state. The others only differ in
+     * their database names.
+     */
+    private List<G> createScratchStates(G newGlobalState) throws Exception {
+        List<G> scratchStates = new ArrayList<>();
+        scratchStates.add(newGlobalState);
+        MainOptions options = newGlobalState.getOptions();
+        for (int i = 1; i < options.getNrReducerThreads(); i++) {
+            String databaseName = newGlobalState.getDatabaseName() + "r" + i;
+            G scratchState = provider.getGlobalStateClass().getDeclaredConstructor().newInstance();
+            scratchState.setState(provider.getStateToReproduce(databaseName));
+            scratchState.setRandomly(newGlobalState.getRandomly());
+            scratchState.setDatabaseName(databaseName);
+            scratchState.setMainOptions(options);
+            scratchState.setDbmsSpecificOptions(newGlobalState.getDbmsSpecificOptions());
+            scratchState.setStateLogger(new StateLogger(databaseName, provider, options));
+            scratchState.setManager(new Main.QueryManager<>(scratchState));
+            scratchStates.add(scratchState);
+        }
+        return scratchStates;
+    }
+
+    /**
+     * Tests the complements of the given number of chunks.
+     *
+     * @return the first complement that still triggers the bug, or null if there is none
+     */
+    private List<Query<C>> tryReduction(Reproducer<G> reproducer, List<Query<C>> statements, int nrChunks,
+            BlockingQueue<G> idleStates, ExecutorService executor) throws Exception {
+        int[] boundaries = new int[nrChunks + 1];
+        for (int i = 0; i <= nrChunks; i++) {
+            boundaries[i] = (int) ((long) statements.size() * i / nrChunks);
+        }
+        // the checkpoints are created sequentially, so they only pay off if there are more complements than threads
+        List<DatabaseCheckpoint<G, C>> checkpoints = nrChunks > 2 * idleStates.size() && supportsCheckpoints
+                ? createCheckpoints(statements, boundaries, idleStates.peek()) : Collections.emptyList();
+        try {
+            for (int first = 0; first < nrChunks; first += idleStates.size()) {
+                List<Callable<Boolean>> candidates = new ArrayList<>();
+                for (int i = first; i < Math.min(first + idleStates.size(), nrChunks); i++) {
+                    int chunk = i;
+                    candidates.add(() -> {
+                        G scratchState = idleStates.take();
+                        try {
+                            return bugStillTriggers(reproducer, scratchState, statements, boundaries[chunk],
+                                    boundaries[chunk + 1], checkpoints.isEmpty() ? null : checkpoints.get(chunk));
+                        } finally {
+                            idleStates.add(scratchState);
+                        }
+                    });
                 }
-                newGlobalState.getState().setStatements(candidateStatements.stream().collect(Collectors.toList()));
-                for (Query<C> s : candidateStatements) {
-                    try {
-                        s.execute(newGlobalState);
-                    } catch (Throwable ignoredException) {
-                        // ignore
+                List<Future<Boolean>> results = executor.invokeAll(candidates);
+                for (int i = 0; i < results.size(); i++) {
+                    if (getResult(results.get(i))) {
+                        List<Query<C>> complement = new ArrayList<>(statements.subList(0, boundaries[first + i]));
+                        complement.addAll(statements.subList(boundaries[first + i + 1], statements.size()));
+                        return complement;
                     }
                 }
-                try {
-                    if (reproducer.bugStillTriggers(newGlobalState)) {
-                        observedChange = true;
-                        statements = candidateStatements;
-                        // reproducer.outputHook((SQLite3GlobalState) newGlobalState);
-                        // state.getLogger().logReduced(newGlobalState.getState());
-                    }
-                } catch (Throwable ignoredException) {
+            }
+            return null;
+        } finally {
+            for (DatabaseCheckpoint<G, C> checkpoint : checkpoints) {
+                if (checkpoint != null) {
+                    checkpoint.close();
+                }
+            }
+        }
+    }
 
+    /**
+     * Executes the statements on a scratch database and saves the database at each chunk boundary.
+     *
+     * @return the checkpoint before each chunk (null for the first chunk, which starts from an empty database), or an
+     *         empty list if the DBMS does not support checkpoints
+     */
+    private List<DatabaseCheckpoint<G, C>> createCheckpoints(List<Query<C>> statements, int[] boundaries,
+            G scratchState) throws Exception {
+        List<DatabaseCheckpoint<G, C>> checkpoints = new ArrayList<>();
+        checkpoints.add(null);
+        // closed explicitly, since C.close() may throw an InterruptedException, which a try-with-resources warns about
+        C con = provider.createDatabase(scratchState);
+        try {
+            scratchState.setConnection(con);
+            for (int i = 1; i < boundaries.length - 1; i++) {
+                execute(scratchState, statements.subList(boundaries[i - 1], boundaries[i]));
+                DatabaseCheckpoint<G, C> checkpoint = provider.createCheckpoint(scratchState);
+                if (checkpoint == null) {
+                    supportsCheckpoints = false;
+                    return Collections.emptyList();
                 }
+                checkpoints.add(checkpoint);
+            }
+        } catch (Exception e) {
+            for (DatabaseCheckpoint<G, C> checkpoint : checkpoints) {
+                if (checkpoint != null) {
+                    checkpoint.close();
+                }
+            }
+            throw e;
+        } finally {
+            con.close();
+        }
+        return checkpoints;
+    }
+
+    private boolean bugStillTriggers(Reproducer<G> reproducer, G scratchState, List<Query<C>> statements,
+            int chunkStart, int chunkEnd, DatabaseCheckpoint<G, C> checkpoint) throws Exception {
+        try (C con = provider.createDatabase(scratchState)) {
+            scratchState.setConnection(con);
+            if (checkpoint == null) {
+                execute(scratchState, statements.subList(0, chunkStart));
+            } else {
+                checkpoint.restore(scratchState, statements.subList(0, chunkStart));
+            }
+            execute(scratchState, statements.subList(chunkEnd, statements.size()));
+            try {
+                return reproducer.bugStillTriggers(scratchState);
+            } catch (Throwable ignoredException) {
+                return false;
+            }
+        }
+    }
+
+    private static <C extends SQLancerDBConnection> void execute(GlobalState<?, ?, C> state,
+            List<Query<C>> statements) {
+        for (Query<C> s : statements) {
+            try {
+                s.execute(state);
+            } catch (Throwable ignoredException) {
+                // ignore
+            }
+        }
+    }
+
+    private static boolean getResult(Future<Boolean> result) throws Exception {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
             }
+            throw new AssertionError(e.getCause());
         }
-        return statements;
     }
 
     private void printQueries(List<Query<C>> statements) {
@@ -3,8 +3,6 @@ package sqlancer.cockroachdb;
 import sqlancer.SQLConnection;
 import sqlancer.common.query.Query;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -27,8 +25,7 @@ public class CockroachDBEDC {
         state.getState().logStatement("========Create RawDB========");
 
         // build connection
-        String url = String.format("jdbc:postgresql://%s:%d/%s", state.getOptions().getHost(), state.getOptions().getPort(), state.getDatabaseName());
-        Connection conn = DriverManager.getConnection(url, state.getOptions().getUserName(), state.getOptions().getPassword());
+        SQLConnection conn = CockroachDBProvider.getConnectionPool(state).getConnection(state.getDatabaseName());
         Statement statement = conn.createStatement();
 
         // create rawDB
@@ -40,7 +37,7 @@ public class CockroachDBEDC {
 
         // connect rawDB
         state.getState().logStatement("USE " + rawDB);
-        statement.execute("USE " + rawDB);
+        conn.useDatabase(rawDB);
 
         for (CockroachDBSchema.CockroachDBTable table : state.getSchema().getDatabaseTablesWithoutViews()) {
             // get create table string
@@ -88,7 +85,7 @@ public class CockroachDBEDC {
         statement.close();
 
         CockroachDBProvider.CockroachDBGlobalState rawState = new CockroachDBProvider.CockroachDBGlobalState();
-        rawState.setConnection(new SQLConnection(conn));
+        rawState.setConnection(conn);
         rawState.setDatabaseName(rawDB);
         return rawState;
     }
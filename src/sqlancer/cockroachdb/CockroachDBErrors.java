@@ -4,10 +4,19 @@ import sqlancer.common.query.ExpectedErrors;
 
 public final class CockroachDBErrors {
 
+    private static final ExpectedErrors EXPRESSION_ERRORS = ExpectedErrors
+            .immutable(CockroachDBErrors::collectExpressionErrors);
+    private static final ExpectedErrors TRANSACTION_ERRORS = ExpectedErrors
+            .immutable(CockroachDBErrors::collectTransactionErrors);
+
     private CockroachDBErrors() {
     }
 
     public static void addExpressionErrors(ExpectedErrors errors) {
+        errors.addAll(EXPRESSION_ERRORS);
+    }
+
+    private static void collectExpressionErrors(ExpectedErrors errors) {
         errors.add(" non-streaming operator encountered when vectorize=auto");
 
         if (CockroachDBBugs.bug46915) {
@@ -311,6 +320,10 @@ public final class CockroachDBErrors {
     }
 
     public static void addTransactionErrors(ExpectedErrors errors) {
+        errors.addAll(TRANSACTION_ERRORS);
+    }
+
+    private static void collectTransactionErrors(ExpectedErrors errors) {
         errors.add("current transaction is aborted");
     }
 
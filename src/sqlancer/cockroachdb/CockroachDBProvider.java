@@ -1,7 +1,6 @@
 package sqlancer.cockroachdb;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
@@ -17,6 +16,7 @@ import sqlancer.Main.QueryManager;
 import sqlancer.MainOptions;
 import sqlancer.Randomly;
 import sqlancer.SQLConnection;
+import sqlancer.SQLConnectionPool;
 import sqlancer.SQLGlobalState;
 import sqlancer.SQLProviderAdapter;
 import sqlancer.cockroachdb.CockroachDBProvider.CockroachDBGlobalState;
@@ -41,6 +41,23 @@ import sqlancer.common.query.SQLQueryProvider;
 @AutoService(DatabaseProvider.class)
 public class CockroachDBProvider extends SQLProviderAdapter<CockroachDBGlobalState, CockroachDBOptions> {
 
+    static final SQLConnectionPool.Dialect CONNECTION_DIALECT = new SQLConnectionPool.Dialect() {
+
+        @Override
+        public void useDatabase(Connection connection, String databaseName) throws SQLException {
+            try (Statement s = connection.createStatement()) {
+                s.execute("USE " + databaseName); // the PostgreSQL driver ignores catalog changes
+            }
+        }
+
+        @Override
+        public void resetSession(Connection connection) throws SQLException {
+            try (Statement s = connection.createStatement()) {
+                s.execute("RESET ALL");
+            }
+        }
+    };
+
     public CockroachDBProvider() {
         super(CockroachDBGlobalState.class, CockroachDBOptions.class);
     }
@@ -252,8 +269,7 @@ public class CockroachDBProvider extends SQLProviderAdapter<CockroachDBGlobalSta
         }
     }
 
-    @Override
-    public SQLConnection createDatabase(CockroachDBGlobalState globalState) throws SQLException {
+    public static SQLConnectionPool getConnectionPool(CockroachDBGlobalState globalState) {
         String host = globalState.getOptions().getHost();
         int port = globalState.getOptions().getPort();
         if (host == null) {
@@ -262,20 +278,25 @@ public class CockroachDBProvider extends SQLProviderAdapter<CockroachDBGlobalSta
         if (port == MainOptions.NO_SET_PORT) {
             port = CockroachDBOptions.DEFAULT_PORT;
         }
-        String databaseName = globalState.getDatabaseName();
         String url = String.format("jdbc:postgresql://%s:%d/test", host, port);
-        Connection con = null;
+        return SQLConnectionPool.forEndpoint(globalState.getOptions(), url, globalState.getOptions().getUserName(),
+                globalState.getOptions().getPassword(), CONNECTION_DIALECT);
+    }
+
+    @Override
+    public SQLConnection createDatabase(CockroachDBGlobalState globalState) throws SQLException {
+        String databaseName = globalState.getDatabaseName();
+        SQLConnectionPool pool = getConnectionPool(globalState);
+        SQLConnection con = null;
         try {
-            con = DriverManager.getConnection(url, globalState.getOptions().getUserName(),
-                    globalState.getOptions().getPassword());
+            con = pool.getConnection(null);
         } catch (SQLException e) {
             Scanner scanner = new Scanner(System.in);
             System.out.println("Cannot build a connection, try to restart the database.");
             System.out.println("Press Y to continue connection.");
             String input = scanner.nextLine();
             if (input.equals("Y")) {
-                con = DriverManager.getConnection(url, globalState.getOptions().getUserName(),
-                        globalState.getOptions().getPassword());
+                con = pool.getConnection(null);
             }
             if (con != null) {
                 System.out.println("Good. Here we go.");
@@ -293,10 +314,8 @@ public class CockroachDBProvider extends SQLProviderAdapter<CockroachDBGlobalSta
         try (Statement s = con.createStatement()) {
             s.execute(createDatabaseCommand);
         }
-        con.close();
-        con = DriverManager.getConnection(String.format("jdbc:postgresql://%s:%d/", host, port) + databaseName,
-                globalState.getOptions().getUserName(), globalState.getOptions().getPassword());
-        return new SQLConnection(con);
+        con.useDatabase(databaseName);
+        return con;
     }
 
     @Override
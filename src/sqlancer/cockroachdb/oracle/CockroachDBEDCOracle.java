@@ -40,6 +40,11 @@ public class CockroachDBEDCOracle extends EDCBase<CockroachDBProvider.CockroachD
         errors.add("mismatched physical types at index"); // SET vectorize=experimental_always;
     }
 
+    @Override
+    protected boolean supportsMultiStatementRequests() {
+        return true; // the PostgreSQL driver sends all statements of a request at once
+    }
+
     @Override
     public Map<String, Map<String, List<String>>> obtainTableSchemas(CockroachDBProvider.CockroachDBGlobalState state) throws SQLException {
         Map<String, Map<String, List<String>>> tableSchema = new HashMap<>();
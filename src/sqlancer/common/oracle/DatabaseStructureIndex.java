@@ -0,0 +1,240 @@
+package sqlancer.common.oracle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A set of 64-bit database-structure fingerprints that is shared by all worker threads of an adaptive EDC campaign.
+ *
+ * The index is an open-addressing hash table of longs in a single {@link ByteBuffer}. Slots are claimed with a
+ * compare-and-set, so {@link #add(long)} is lock-free and can be called concurrently without external
+ * synchronization. If a file is given, the buffer is memory-mapped, so that a restarted campaign (or a parallel one on
+ * the same host) continues with the structures that have already been tested.
+ */
+public final class DatabaseStructureIndex implements Closeable {
+
+    private static final long MAGIC = 0x5241444152494458L; // "RADARIDX"
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 16;
+    private static final int HEADER_SIZE = 32;
+    private static final long EMPTY = 0;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private final ByteBuffer buffer;
+    private final FileChannel channel;
+    private final int capacity;
+    private final int mask;
+    private volatile boolean reportedFull;
+
+    private DatabaseStructureIndex(ByteBuffer buffer, FileChannel channel, int capacity) {
+        this.buffer = buffer;
+        this.channel = channel;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Creates an index that only lives as long as the JVM.
+     *
+     * @param capacity
+     *            the minimum number of fingerprints the index can hold, rounded up to a power of two
+     *
+     * @return the in-memory index
+     */
+    public static DatabaseStructureIndex inMemory(int capacity) {
+        int slots = roundUpToPowerOfTwo(capacity);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_SIZE + slots * Long.BYTES + Long.BYTES - 1)
+                .alignedSlice(Long.BYTES);
+        initializeHeader(buffer, slots);
+        return new DatabaseStructureIndex(buffer, null, slots);
+    }
+
+    /**
+     * Opens (or creates) an index that is memory-mapped from the given file. If the file already contains an index,
+     * its capacity takes precedence over the requested one.
+     *
+     * @param file
+     *            the backing file
+     * @param capacity
+     *            the minimum number of fingerprints the index can hold, if the file is newly created
+     *
+     * @return the file-backed index
+     *
+     * @throws IOException
+     *             if the file cannot be mapped or does not contain an index
+     */
+    public static DatabaseStructureIndex mapped(Path file, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            boolean isNew = channel.size() == 0;
+            int slots;
+            if (isNew) {
+                slots = roundUpToPowerOfTwo(capacity);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(header, 0);
+                if (header.getLong(MAGIC_OFFSET) != MAGIC) {
+                    throw new IOException(file + " is not a database structure index");
+                }
+                slots = (int) header.getLong(CAPACITY_OFFSET);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) slots * Long.BYTES);
+            if (isNew) {
+                initializeHeader(buffer, slots);
+            }
+            return new DatabaseStructureIndex(buffer, channel, slots);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void initializeHeader(ByteBuffer buffer, int slots) {
+        LONGS.setVolatile(buffer, CAPACITY_OFFSET, (long) slots);
+        LONGS.setVolatile(buffer, SIZE_OFFSET, 0L);
+        LONGS.setVolatile(buffer, MAGIC_OFFSET, MAGIC);
+    }
+
+    private static int roundUpToPowerOfTwo(int capacity) {
+        if (capacity <= 1) {
+            return 2;
+        }
+        if (capacity > 1 << 28) {
+            throw new IllegalArgumentException("capacity too large: " + capacity);
+        }
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Atomically inserts the fingerprint if it is not yet contained in the index.
+     *
+     * @param fingerprint
+     *            the fingerprint of a database structure
+     *
+     * @return true if the fingerprint was not contained before (or the index is full), false otherwise
+     */
+    public boolean add(long fingerprint) {
+        long key = fingerprint == EMPTY ? FNV_OFFSET_BASIS : fingerprint;
+        int slot = (int) finalizeHash(key) & mask;
+        for (int probes = 0; probes < capacity; probes++) {
+            int offset = HEADER_SIZE + slot * Long.BYTES;
+            long current = (long) LONGS.getVolatile(buffer, offset);
+            if (current == EMPTY) {
+                current = (long) LONGS.compareAndExchange(buffer, offset, EMPTY, key);
+                if (current == EMPTY) {
+                    LONGS.getAndAdd(buffer, SIZE_OFFSET, 1L);
+                    return true;
+                }
+            }
+            if (current == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!reportedFull) {
+            reportedFull = true;
+            System.err.println("The database structure index is full, every structure is treated as new.");
+        }
+        return true;
+    }
+
+    public boolean contains(long fingerprint) {
+        long key = fingerprint == EMPTY ? FNV_OFFSET_BASIS : fingerprint;
+        int slot = (int) finalizeHash(key) & mask;
+        for (int probes = 0; probes < capacity; probes++) {
+            long current = (long) LONGS.getVolatile(buffer, HEADER_SIZE + slot * Long.BYTES);
+            if (current == key) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public long size() {
+        return (long) LONGS.getVolatile(buffer, SIZE_OFFSET);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Writes the index back to its file, if it is file-backed.
+     */
+    public void force() {
+        if (buffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Hashes a string into a 64-bit value (FNV-1a), which is used as a building block for structure fingerprints.
+     *
+     * @param s
+     *            the string to be hashed
+     *
+     * @return the 64-bit hash
+     */
+    public static long hash(CharSequence s) {
+        long h = FNV_OFFSET_BASIS;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            h = (h ^ (c & 0xff)) * FNV_PRIME;
+            h = (h ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * Combines a running fingerprint with another 64-bit value in an order-dependent way.
+     *
+     * @param h
+     *            the running fingerprint
+     * @param value
+     *            the value to be added
+     *
+     * @return the combined fingerprint
+     */
+    public static long combine(long h, long value) {
+        return finalizeHash(h * 31 + value);
+    }
+
+    // MurmurHash3 finalizer
+    private static long finalizeHash(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
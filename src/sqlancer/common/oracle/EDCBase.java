@@ -8,26 +8,35 @@ import sqlancer.SQLConnection;
 import sqlancer.SQLGlobalState;
 import sqlancer.StateLogger;
 import sqlancer.common.query.ExpectedErrors;
+import sqlancer.common.query.ResultSetDigest;
 import sqlancer.common.query.SQLQueryAdapter;
 import sqlancer.common.query.SQLancerResultSet;
 
+import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class EDCBase<S extends SQLGlobalState<?, ?>> implements TestOracle<S> {
 
     protected final S originalState;
-    protected S equivalentState;
+    protected List<S> equivalentStates = List.of();
     protected final ExpectedErrors errors = new ExpectedErrors();
     protected final StateLogger logger;
     protected final MainOptions options;
     protected final SQLConnection con;
     protected String queryString;
+    private ExecutorService equivalentQueryExecutor; // runs the query on the equivalent databases in pipelined checks
+    private PipelinedQueryGenerator queryGenerator;
 
     public EDCBase(S originalState) {
         this.originalState = originalState;
@@ -37,11 +46,227 @@ public abstract class EDCBase<S extends SQLGlobalState<?, ?>> implements TestOra
     }
 
     public void check() throws Exception {
-        queryString = generateQueryString(originalState);
+        if (getQueriesPerCheck() > 1) {
+            checkBatch();
+            return;
+        }
+        queryString = nextQueryString();
         logger.writeCurrent(queryString);
-        List<String> optimizedResult = getOptimizedResult(originalState);
-        List<String> nonOptimizedResult = getNonOptimizedResult(equivalentState);
-        ComparatorHelper.assumeResultSetsAreEqual(optimizedResult, nonOptimizedResult, queryString, List.of(equivalentState.getDatabaseName()), originalState);
+        if (!compareResults(executeOnAllStates(this::getResultDigest))) {
+            throw new IgnoreMeException();
+        }
+    }
+
+    /**
+     * Generates several queries and sends them to each database in one request, which saves round trips to remote
+     * DBMS. A query that results in an expected error only ignores this query.
+     */
+    private void checkBatch() throws Exception {
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < getQueriesPerCheck(); i++) {
+            try {
+                String query = nextQueryString();
+                logger.writeCurrent(query);
+                queries.add(query);
+            } catch (IgnoreMeException e) {
+                // generate the remaining queries of the batch
+            }
+        }
+        if (queries.isEmpty()) {
+            throw new IgnoreMeException();
+        }
+        List<List<ResultSetDigest>> batchDigests = executeOnAllStates(state -> executeBatch(state, queries));
+        boolean compared = false;
+        for (int q = 0; q < queries.size(); q++) {
+            List<ResultSetDigest> digests = new ArrayList<>(batchDigests.size());
+            for (List<ResultSetDigest> stateDigests : batchDigests) {
+                digests.add(stateDigests.get(q));
+            }
+            if (digests.contains(null)) {
+                continue; // the query resulted in an expected error on one of the databases
+            }
+            queryString = queries.get(q);
+            compared |= compareResults(digests);
+        }
+        if (!compared) {
+            throw new IgnoreMeException();
+        }
+    }
+
+    /**
+     * Is called before the given number of checks, so that their queries can be generated on a separate thread, ahead
+     * of their execution (see {@link MainOptions#getEDCQueryQueueSize()}). Until {@link #closeEquStates()}, the calling
+     * thread must not use {@link sqlancer.Randomly} other than through {@link #check()}.
+     *
+     * @param nrChecks
+     *            the number of times that {@link #check()} is called
+     */
+    public void prepareChecks(int nrChecks) {
+        int queueSize = options.getEDCQueryQueueSize();
+        if (queueSize > 0 && nrChecks > 0) {
+            queryGenerator = new PipelinedQueryGenerator(() -> generateQueryString(originalState),
+                    nrChecks * getQueriesPerCheck(), queueSize);
+        }
+    }
+
+    private String nextQueryString() {
+        if (queryGenerator != null) {
+            String query = queryGenerator.next();
+            if (query != null) {
+                return query;
+            }
+        }
+        return generateQueryString(originalState);
+    }
+
+    /**
+     * The number of queries that a single {@link #check()} compares.
+     *
+     * @return the batch size, if the DBMS supports multi-statement requests, and 1 otherwise
+     */
+    public int getQueriesPerCheck() {
+        return supportsMultiStatementRequests() ? Math.max(1, options.getEDCBatchSize()) : 1;
+    }
+
+    /**
+     * Whether a statement can execute several queries that are separated by semicolons in one request, and returns a
+     * result set for each of them (which might need to be enabled when connecting, see
+     * {@link MainOptions#useEDCBatches()}).
+     *
+     * @return false, unless overridden by the DBMS
+     */
+    protected boolean supportsMultiStatementRequests() {
+        return false;
+    }
+
+    private List<ResultSetDigest> executeBatch(S state, List<String> queries) throws SQLException {
+        List<ResultSetDigest> digests = new ArrayList<>(queries.size());
+        try (Statement s = state.getConnection().createStatement()) {
+            boolean isResultSet = s.execute(String.join(";\n", queries));
+            while (isResultSet) {
+                try (ResultSet rs = s.getResultSet()) {
+                    digests.add(ResultSetDigest.of(new SQLancerResultSet(rs), hasTypedIntegerColumns()));
+                }
+                if (digests.size() == queries.size()) {
+                    break;
+                }
+                isResultSet = s.getMoreResults();
+            }
+        } catch (SQLException e) {
+            // the DBMS stops at the first failing query, whose error is checked when it is executed on its own below
+        }
+        for (int i = digests.size(); i < queries.size(); i++) {
+            try {
+                digests.add(executeQuery(state, queries.get(i),
+                        result -> ResultSetDigest.of(result, hasTypedIntegerColumns())));
+            } catch (IgnoreMeException e) {
+                digests.add(null);
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * Compares the result of the current query on the original state with its results on the equivalent states.
+     *
+     * @param digests
+     *            the digest of the original state followed by the digests of the equivalent states
+     *
+     * @return true if the results are equal, false if they differ but the difference could not be reproduced
+     */
+    private boolean compareResults(List<ResultSetDigest> digests) throws SQLException {
+        boolean differenceNotReproduced = false;
+        for (int i = 0; i < equivalentStates.size(); i++) {
+            if (digests.get(0).equals(digests.get(i + 1))) {
+                continue;
+            }
+            // only materialize the rows when the digests differ, to report the difference
+            S equivalentState = equivalentStates.get(i);
+            List<String> optimizedResult = getOptimizedResult(originalState);
+            List<String> nonOptimizedResult = getNonOptimizedResult(equivalentState);
+            ComparatorHelper.assumeResultMultisetsAreEqual(optimizedResult, nonOptimizedResult, queryString, List.of(equivalentState.getDatabaseName()), originalState);
+            differenceNotReproduced = true;
+        }
+        return !differenceNotReproduced;
+    }
+
+    @FunctionalInterface
+    protected interface StateQuery<S, T> {
+        T execute(S state) throws Exception;
+    }
+
+    /**
+     * Executes the query on the original and the equivalent states.
+     *
+     * @return the result on the original state followed by the results on the equivalent states
+     */
+    private <T> List<T> executeOnAllStates(StateQuery<S, T> query) throws Exception {
+        List<T> results = new ArrayList<>(equivalentStates.size() + 1);
+        if (options.usePipelinedCheck()) {
+            // all databases have their own connection, so that the round trips can overlap
+            List<Future<T>> pendingResults = new ArrayList<>(equivalentStates.size());
+            for (S equivalentState : equivalentStates) {
+                pendingResults.add(getEquivalentQueryExecutor().submit(() -> query.execute(equivalentState)));
+            }
+            try {
+                results.add(query.execute(originalState));
+            } catch (Exception | AssertionError e) {
+                pendingResults.forEach(EDCBase::awaitQuietly); // do not leave the equivalent connections busy
+                throw e;
+            }
+            for (int i = 0; i < pendingResults.size(); i++) {
+                try {
+                    results.add(await(pendingResults.get(i)));
+                } catch (Exception | AssertionError e) {
+                    pendingResults.subList(i + 1, pendingResults.size()).forEach(EDCBase::awaitQuietly);
+                    throw e;
+                }
+            }
+        } else {
+            results.add(query.execute(originalState));
+            for (S equivalentState : equivalentStates) {
+                results.add(query.execute(equivalentState));
+            }
+        }
+        return results;
+    }
+
+    private ExecutorService getEquivalentQueryExecutor() {
+        if (equivalentQueryExecutor == null) {
+            String threadName = Thread.currentThread().getName() + "-equ";
+            AtomicInteger threadCount = new AtomicInteger();
+            equivalentQueryExecutor = Executors.newFixedThreadPool(equivalentStates.size(), r -> {
+                int id = threadCount.getAndIncrement();
+                Thread t = new Thread(r, id == 0 ? threadName : threadName + "-" + id);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return equivalentQueryExecutor;
+    }
+
+    private static <T> T await(Future<T> result) throws Exception {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AssertionError(cause);
+        }
+    }
+
+    private static void awaitQuietly(Future<?> result) {
+        try {
+            result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) { // the result of the original database takes precedence
+        }
     }
 
     public abstract Map<String, Map<String, List<String>>> obtainTableSchemas(S state) throws SQLException;
@@ -52,22 +277,37 @@ public abstract class EDCBase<S extends SQLGlobalState<?, ?>> implements TestOra
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        this.equivalentState = constructEquivalentState(originalState);
+        this.equivalentStates = constructEquivalentStates(originalState);
     }
 
     public abstract S constructEquivalentState(S state);
 
+    /**
+     * Constructs the equivalent states that each query is compared on. By default, this is the single state
+     * constructed by {@link #constructEquivalentState(SQLGlobalState)}.
+     *
+     * @param state
+     *            the original state
+     *
+     * @return the equivalent states, which each use their own connection
+     */
+    public List<S> constructEquivalentStates(S state) {
+        return List.of(constructEquivalentState(state));
+    }
+
+    public S getEquivalentState() {
+        return equivalentStates.isEmpty() ? null : equivalentStates.get(0);
+    }
+
+    public List<S> getEquivalentStates() {
+        return equivalentStates;
+    }
+
     public abstract String generateQueryString(S state);
 
     public List<String> getOptimizedResult(S state) throws SQLException {
-        List<String> resultSet = new ArrayList<>();
-        SQLQueryAdapter q = new SQLQueryAdapter(queryString, errors);
-        SQLancerResultSet result = null;
-        try {
-            result = q.executeAndGet(state);
-            if (result == null) {
-                throw new IgnoreMeException(); // avoid too many false positives
-            }
+        return executeQuery(state, result -> {
+            List<String> resultSet = new ArrayList<>();
             ResultSetMetaData metaData = result.getRs().getMetaData();
             int columns = metaData.getColumnCount();
             while (result.next()) {
@@ -75,12 +315,48 @@ public abstract class EDCBase<S extends SQLGlobalState<?, ?>> implements TestOra
                 for (int i = 1; i <= columns; i++) {
                     String resultTemp = result.getString(i);
                     if (resultTemp != null) {
-                        resultTemp = resultTemp.replaceAll("[\\.]0+$", ""); // Remove the trailing zeros as many DBMS treat it as non-bugs
+                        resultTemp = ResultSetDigest.removeTrailingZeros(resultTemp); // Remove the trailing zeros as many DBMS treat it as non-bugs
                     }
                     row.append(resultTemp).append(",");
                 }
                 resultSet.add(row.toString());
             }
+            return resultSet;
+        });
+    }
+
+    public ResultSetDigest getResultDigest(S state) throws SQLException {
+        return executeQuery(state, result -> ResultSetDigest.of(result, hasTypedIntegerColumns()));
+    }
+
+    /**
+     * Whether integer columns only contain integer values, so that the result digest can read them without converting
+     * them to strings.
+     *
+     * @return true, unless the DBMS is dynamically typed
+     */
+    protected boolean hasTypedIntegerColumns() {
+        return true;
+    }
+
+    @FunctionalInterface
+    protected interface ResultReader<T> {
+        T read(SQLancerResultSet result) throws SQLException;
+    }
+
+    protected <T> T executeQuery(S state, ResultReader<T> reader) throws SQLException {
+        return executeQuery(state, queryString, reader);
+    }
+
+    protected <T> T executeQuery(S state, String queryString, ResultReader<T> reader) throws SQLException {
+        SQLQueryAdapter q = new SQLQueryAdapter(queryString, errors);
+        SQLancerResultSet result = null;
+        try {
+            result = q.executeAndGet(state);
+            if (result == null) {
+                throw new IgnoreMeException(); // avoid too many false positives
+            }
+            return reader.read(result);
         } catch (Exception e) {
             if (e instanceof IgnoreMeException) {
                 throw e;
@@ -97,8 +373,6 @@ public abstract class EDCBase<S extends SQLGlobalState<?, ?>> implements TestOra
                 result.close();
             }
         }
-
-        return resultSet;
     }
 
     public List<String> getNonOptimizedResult(S state) throws SQLException {
@@ -106,12 +380,32 @@ public abstract class EDCBase<S extends SQLGlobalState<?, ?>> implements TestOra
     }
 
     public void closeEquStates() throws SQLException {
-        if (equivalentState != null) {
-            equivalentState.getConnection().close();
+        if (queryGenerator != null) {
+            queryGenerator.close();
+            queryGenerator = null;
+        }
+        if (equivalentQueryExecutor != null) {
+            equivalentQueryExecutor.shutdown();
+            equivalentQueryExecutor = null;
+        }
+        SQLException failure = null;
+        for (S equivalentState : equivalentStates) {
+            try {
+                equivalentState.getConnection().close();
+            } catch (SQLException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
         }
     }
 
-    public boolean containsNewDatabaseStructure(Set<Integer> databaseStructureSet) throws SQLException {
+    public boolean containsNewDatabaseStructure(DatabaseStructureIndex databaseStructureIndex) throws SQLException {
         Map<String, Map<String, List<String>>> tableSchemas = obtainTableSchemas(originalState);
         List<TableStructure> tableStructures = new ArrayList<>();
         boolean isRawDb = true;
@@ -141,24 +435,31 @@ public abstract class EDCBase<S extends SQLGlobalState<?, ?>> implements TestOra
             throw new IgnoreMeException(); // do not test raw db
         }
         DatabaseStructure databaseStructure = new DatabaseStructure(tableStructures);
-        int hashcode = databaseStructure.hasCode;
-        if (databaseStructureSet.contains(hashcode)) {
-            return false;
-        } else {
-            databaseStructureSet.add(hashcode);
-            return true;
-        }
+        return databaseStructureIndex.add(databaseStructure.getFingerprint()); // check and insert atomically
     }
 
     public static class TableStructure implements Comparable<TableStructure> {
         private List<String> columns;
         private List<String> tables;
         private int hasCode;
+        private long fingerprint;
 
         public TableStructure(List<String> columns, List<String> tables) {
             this.columns = new ArrayList<>(columns);
             this.tables = new ArrayList<>(tables);
             this.hasCode = Objects.hash(this.columns, this.tables);
+            this.fingerprint = fingerprint(fingerprint(DatabaseStructureIndex.hash("TABLE"), this.columns), this.tables);
+        }
+
+        private static long fingerprint(long h, List<String> metadata) {
+            for (String element : metadata) {
+                h = DatabaseStructureIndex.combine(h, DatabaseStructureIndex.hash(element));
+            }
+            return DatabaseStructureIndex.combine(h, metadata.size()); // separate columns from tables
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
         }
 
         public int compareTo(TableStructure that) {
@@ -186,10 +487,20 @@ public abstract class EDCBase<S extends SQLGlobalState<?, ?>> implements TestOra
 
         private List<TableStructure> tableStructures;
         private int hasCode;
+        private long fingerprint;
 
         public DatabaseStructure(List<TableStructure> tableStructures) {
             this.tableStructures = new ArrayList<>(tableStructures);
             this.hasCode = Objects.hash(this.tableStructures);
+            long h = DatabaseStructureIndex.hash("DATABASE");
+            for (TableStructure tableStructure : this.tableStructures) {
+                h = DatabaseStructureIndex.combine(h, tableStructure.getFingerprint());
+            }
+            this.fingerprint = DatabaseStructureIndex.combine(h, this.tableStructures.size());
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
         }
 
         @Override
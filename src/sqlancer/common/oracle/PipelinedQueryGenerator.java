@@ -0,0 +1,112 @@
+package sqlancer.common.oracle;
+
+import java.io.Closeable;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+import sqlancer.IgnoreMeException;
+import sqlancer.Randomly;
+
+/**
+ * Generates the queries of an oracle on a separate thread and buffers them in a bounded queue, so that generating and
+ * rendering the next queries overlaps with waiting for the results of the current one.
+ *
+ * The generator thread uses a random sequence that is split off the one of the thread that creates it, so the queries
+ * only depend on the seed, and the creating thread can continue to use {@link Randomly} while they are generated.
+ */
+final class PipelinedQueryGenerator implements Closeable {
+
+    private static final Item END = new Item(null, null);
+
+    private final BlockingQueue<Item> queue;
+    private final Thread thread;
+    private boolean exhausted;
+
+    /**
+     * @param generator
+     *            generates a single query, and might throw an {@link IgnoreMeException}
+     * @param nrQueries
+     *            the number of queries to be generated
+     * @param queueSize
+     *            the maximum number of generated queries that have not been consumed yet
+     */
+    PipelinedQueryGenerator(Supplier<String> generator, int nrQueries, int queueSize) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        SplittableRandom random = Randomly.splitRandomOfCurrentThread();
+        this.thread = new Thread(() -> {
+            Randomly.setRandomOfCurrentThread(random);
+            try {
+                for (int i = 0; i < nrQueries; i++) {
+                    Item item;
+                    try {
+                        item = new Item(generator.get(), null);
+                    } catch (RuntimeException | Error e) {
+                        item = new Item(null, e); // rethrown by the check that consumes the query
+                    }
+                    queue.put(item);
+                }
+                queue.put(END);
+            } catch (InterruptedException e) {
+                // closed before all queries have been consumed
+            }
+        }, Thread.currentThread().getName() + "-gen");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits for the next query.
+     *
+     * @return the query, or null if all queries have been consumed
+     */
+    String next() {
+        if (exhausted) {
+            return null;
+        }
+        Item item;
+        try {
+            item = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IgnoreMeException();
+        }
+        if (item == END) {
+            exhausted = true;
+            return null;
+        }
+        if (item.failure instanceof RuntimeException) {
+            throw (RuntimeException) item.failure;
+        } else if (item.failure != null) {
+            throw (Error) item.failure;
+        }
+        return item.query;
+    }
+
+    /**
+     * Stops generating queries and waits for the generator thread, after which the creating thread can use
+     * {@link Randomly} again.
+     */
+    @Override
+    public void close() {
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Item {
+
+        private final String query;
+        private final Throwable failure;
+
+        Item(String query, Throwable failure) {
+            this.query = query;
+            this.failure = failure;
+        }
+    }
+
+}
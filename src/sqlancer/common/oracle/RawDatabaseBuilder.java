@@ -0,0 +1,180 @@
+package sqlancer.common.oracle;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+import sqlancer.SQLConnection;
+import sqlancer.SQLConnectionPool;
+import sqlancer.StateToReproduce;
+
+/**
+ * Builds the raw database of the EDC oracle for the DBMS of the MySQL family (i.e., MySQL, MariaDB, and TiDB), which
+ * contains the tables of the original database without their constraints and indexes.
+ *
+ * The column definitions of all tables are read by a single query on information_schema.COLUMNS, and the tables are
+ * copied concurrently over pooled connections. The logged statements are the same as if the tables were copied one
+ * after another, so the log still reproduces the raw database.
+ */
+public final class RawDatabaseBuilder {
+
+    private static final ExecutorService COPY_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "sqlancer-raw-db-copy");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final SQLConnectionPool pool;
+    private final StateToReproduce state;
+    private final Predicate<String> isNonDefaultCollation;
+
+    /**
+     * @param pool
+     *            the pool that provides the connections used to copy the tables
+     * @param state
+     *            the state to which the statements are logged
+     * @param isNonDefaultCollation
+     *            determines whether a collation needs to be specified in the CREATE TABLE statement
+     */
+    public RawDatabaseBuilder(SQLConnectionPool pool, StateToReproduce state, Predicate<String> isNonDefaultCollation) {
+        this.pool = pool;
+        this.state = state;
+        this.isNonDefaultCollation = isNonDefaultCollation;
+    }
+
+    /**
+     * Creates the given tables in the raw database and copies their rows from the original database.
+     *
+     * @param con
+     *            a connection that uses the raw database, which copies one of the tables
+     * @param originalDatabase
+     *            the name of the original database
+     * @param rawDatabase
+     *            the name of the raw database
+     * @param tableNames
+     *            the tables (without views) to be copied
+     *
+     * @return the CREATE TABLE statements, by table name and in the order of the tables
+     *
+     * @throws SQLException
+     *             if reading the column definitions or copying a table fails
+     */
+    public Map<String, String> copyTables(SQLConnection con, String originalDatabase, String rawDatabase,
+            List<String> tableNames) throws SQLException {
+        Map<String, String> columnDefinitions = readColumnDefinitions(con, originalDatabase);
+        Map<String, String> createTableStatements = new LinkedHashMap<>();
+        List<CompletableFuture<Void>> copies = new ArrayList<>();
+        SQLException failure = null;
+        for (int i = 0; i < tableNames.size(); i++) {
+            String tableName = tableNames.get(i);
+            String columns = columnDefinitions.get(tableName);
+            if (columns == null) {
+                failure = new SQLException("no columns found for table " + originalDatabase + "." + tableName);
+                break;
+            }
+            String createTable = "CREATE TABLE " + tableName + "(" + columns + ")";
+            String copyData = String.format("INSERT INTO %s SELECT * FROM %s", tableName,
+                    originalDatabase + "." + tableName);
+            state.logStatement(createTable);
+            state.logStatement(copyData);
+            createTableStatements.put(tableName, createTable);
+            if (i == tableNames.size() - 1) {
+                // the last table does not need another connection
+                try {
+                    copyTable(con, createTable, copyData);
+                } catch (SQLException e) {
+                    failure = e;
+                }
+            } else {
+                copies.add(CompletableFuture.runAsync(() -> {
+                    try (SQLConnection copyCon = pool.getConnection(rawDatabase)) {
+                        copyTable(copyCon, createTable, copyData);
+                    } catch (SQLException e) {
+                        throw new CopyFailedException(e);
+                    }
+                }, COPY_EXECUTOR));
+            }
+        }
+        awaitAll(copies, failure); // the other copies must finish before the raw database can be used or dropped
+        return createTableStatements;
+    }
+
+    private Map<String, String> readColumnDefinitions(SQLConnection con, String databaseName) throws SQLException {
+        Map<String, StringBuilder> columns = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        String query = String.format("SELECT TABLE_NAME, COLUMN_NAME, COLUMN_TYPE, COLLATION_NAME "
+                + "FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = '%s' ORDER BY TABLE_NAME, ORDINAL_POSITION",
+                databaseName);
+        try (Statement s = con.createStatement(); ResultSet rs = s.executeQuery(query)) {
+            while (rs.next()) {
+                StringBuilder definition = columns.computeIfAbsent(rs.getString("TABLE_NAME"),
+                        k -> new StringBuilder());
+                if (definition.length() != 0) {
+                    definition.append(",");
+                }
+                definition.append(rs.getString("COLUMN_NAME"));
+                definition.append(" ").append(rs.getString("COLUMN_TYPE"));
+                String collation = rs.getString("COLLATION_NAME");
+                if (collation != null && isNonDefaultCollation.test(collation)) {
+                    definition.append(" ").append("COLLATE").append(" ").append("\"").append(collation).append("\"");
+                }
+            }
+        }
+        Map<String, String> columnDefinitions = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        columns.forEach((table, definition) -> columnDefinitions.put(table, definition.toString()));
+        return columnDefinitions;
+    }
+
+    private static void copyTable(SQLConnection con, String createTable, String copyData) throws SQLException {
+        try (Statement s = con.createStatement()) {
+            s.execute(createTable);
+            s.execute(copyData);
+        }
+    }
+
+    private static void awaitAll(List<CompletableFuture<Void>> copies, SQLException failure) throws SQLException {
+        for (CompletableFuture<Void> copy : copies) {
+            try {
+                copy.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException(e);
+            } catch (ExecutionException e) {
+                SQLException cause = e.getCause() instanceof CopyFailedException
+                        ? ((CopyFailedException) e.getCause()).getCause() : new SQLException(e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class CopyFailedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        CopyFailedException(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+}
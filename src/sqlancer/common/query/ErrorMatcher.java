@@ -0,0 +1,133 @@
+package sqlancer.common.query;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Determines whether a text contains any of a fixed set of substrings in a single pass over the text, by an
+ * Aho-Corasick automaton. The transitions of each state are stored as sorted characters, since the automata of error
+ * messages have many states with only a few transitions each. Only the root state, in which most characters of a
+ * message are processed, has a transition table for ASCII characters.
+ */
+final class ErrorMatcher {
+
+    private static final int ROOT = 0;
+    private static final int ASCII = 128;
+
+    private final char[][] transitionChars;
+    private final int[][] transitionTargets;
+    private final int[] failure;
+    private final boolean[] isMatch; // a substring ends in the state or in one of its failure states
+    private final int[] rootTransitions = new int[ASCII]; // ROOT if there is no transition
+
+    ErrorMatcher(Collection<String> substrings) {
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Boolean> ends = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ends.add(false);
+        for (String substring : substrings) {
+            int state = ROOT;
+            for (int i = 0; i < substring.length(); i++) {
+                Integer next = trie.get(state).get(substring.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    ends.add(false);
+                    trie.get(state).put(substring.charAt(i), next);
+                }
+                state = next;
+            }
+            ends.set(state, true);
+        }
+        int nrStates = trie.size();
+        transitionChars = new char[nrStates][];
+        transitionTargets = new int[nrStates][];
+        failure = new int[nrStates];
+        isMatch = new boolean[nrStates];
+        for (int state = 0; state < nrStates; state++) {
+            Map<Character, Integer> transitions = trie.get(state);
+            transitionChars[state] = new char[transitions.size()];
+            transitionTargets[state] = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                transitionChars[state][i] = transition.getKey();
+                transitionTargets[state][i] = transition.getValue();
+                i++;
+            }
+            isMatch[state] = ends.get(state);
+        }
+        computeFailureStates();
+        for (char c = 0; c < ASCII; c++) {
+            rootTransitions[c] = Math.max(ROOT, transition(ROOT, c));
+        }
+    }
+
+    // breadth-first, so that the failure state of a state's longest proper suffix is already known
+    private void computeFailureStates() {
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int target : transitionTargets[ROOT]) {
+            failure[target] = ROOT;
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            for (int i = 0; i < transitionChars[state].length; i++) {
+                char c = transitionChars[state][i];
+                int target = transitionTargets[state][i];
+                int fallback = failure[state];
+                int next;
+                while ((next = transition(fallback, c)) < 0 && fallback != ROOT) {
+                    fallback = failure[fallback];
+                }
+                failure[target] = next < 0 ? ROOT : next;
+                isMatch[target] |= isMatch[failure[target]];
+                queue.add(target);
+            }
+        }
+    }
+
+    private int transition(int state, char c) {
+        char[] chars = transitionChars[state];
+        int low = 0;
+        int high = chars.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (chars[mid] < c) {
+                low = mid + 1;
+            } else if (chars[mid] > c) {
+                high = mid - 1;
+            } else {
+                return transitionTargets[state][mid];
+            }
+        }
+        return -1;
+    }
+
+    boolean matches(String text) {
+        if (isMatch[ROOT]) {
+            return true; // the empty string is contained in every text
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next = -1;
+            while (state != ROOT && (next = transition(state, c)) < 0) {
+                state = failure[state];
+            }
+            if (next < 0) {
+                next = c < ASCII ? rootTransitions[c] : Math.max(ROOT, transition(ROOT, c));
+            }
+            state = next;
+            if (isMatch[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
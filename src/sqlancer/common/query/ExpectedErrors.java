@@ -1,22 +1,39 @@
 package sqlancer.common.query;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * This class represents the errors that executing a statement might result in. For example, an INSERT statement might
  * result in an error "UNIQUE constraint violated" when it attempts to insert a duplicate value in a column declared as
  * UNIQUE.
+ *
+ * The error lists of a DBMS are created once as immutable sets (see {@link #immutable(Consumer)}), which are compiled
+ * into a matcher that searches for all their errors in a single pass over an error message. Adding such a set to the
+ * errors of a statement only adds a reference to it, and the immutable sets of a statement are matched by a single
+ * matcher, which is compiled once per combination of sets.
  */
 public class ExpectedErrors {
 
+    // the matchers of the combinations of immutable sets that statements use, which are only a few
+    private static final Map<List<ExpectedErrors>, ErrorMatcher> COMBINED_MATCHERS = new ConcurrentHashMap<>();
+
     private final Set<String> errors = new HashSet<>();
+    private final List<ExpectedErrors> immutableErrors = new ArrayList<>();
+    private ErrorMatcher matcher; // of this set if it is immutable, otherwise of the added immutable sets
+    private boolean isImmutable;
 
     public ExpectedErrors add(String error) {
         if (error == null) {
             throw new IllegalArgumentException();
         }
+        checkMutable();
         errors.add(error);
         return this;
     }
@@ -34,6 +51,16 @@ public class ExpectedErrors {
         if (error == null) {
             throw new IllegalArgumentException();
         }
+        if (matcher == null && !immutableErrors.isEmpty()) {
+            matcher = immutableErrors.size() == 1 ? immutableErrors.get(0).matcher
+                    : COMBINED_MATCHERS.computeIfAbsent(List.copyOf(immutableErrors), ExpectedErrors::combine);
+        }
+        if (matcher != null && matcher.matches(error)) {
+            return true;
+        }
+        if (isImmutable) {
+            return false;
+        }
         for (String s : errors) {
             if (error.contains(s)) {
                 return true;
@@ -43,10 +70,49 @@ public class ExpectedErrors {
     }
 
     public ExpectedErrors addAll(Collection<String> list) {
+        checkMutable();
         errors.addAll(list);
         return this;
     }
 
+    /**
+     * Adds all errors of another set. An immutable set is added by reference, so that its compiled matcher is shared.
+     *
+     * @param other
+     *            the errors to be added
+     *
+     * @return this
+     */
+    public ExpectedErrors addAll(ExpectedErrors other) {
+        checkMutable();
+        if (other.isImmutable) {
+            if (!immutableErrors.contains(other)) {
+                immutableErrors.add(other);
+                matcher = null;
+            }
+        } else {
+            errors.addAll(other.errors);
+            for (ExpectedErrors included : other.immutableErrors) {
+                addAll(included);
+            }
+        }
+        return this;
+    }
+
+    private static ErrorMatcher combine(List<ExpectedErrors> immutableErrors) {
+        Set<String> errors = new HashSet<>();
+        for (ExpectedErrors included : immutableErrors) {
+            errors.addAll(included.errors);
+        }
+        return new ErrorMatcher(errors);
+    }
+
+    private void checkMutable() {
+        if (isImmutable) {
+            throw new UnsupportedOperationException("the expected errors are immutable");
+        }
+    }
+
     public static ExpectedErrors from(String... errors) {
         ExpectedErrors expectedErrors = new ExpectedErrors();
         for (String error : errors) {
@@ -55,4 +121,25 @@ public class ExpectedErrors {
         return expectedErrors;
     }
 
+    /**
+     * Creates an immutable set of expected errors, which is meant to be created once (e.g., per DBMS and kind of
+     * statement) and shared by all statements.
+     *
+     * @param errorAdder
+     *            adds the errors to the set before it becomes immutable
+     *
+     * @return the immutable set
+     */
+    public static ExpectedErrors immutable(Consumer<ExpectedErrors> errorAdder) {
+        ExpectedErrors expectedErrors = new ExpectedErrors();
+        errorAdder.accept(expectedErrors);
+        for (ExpectedErrors included : expectedErrors.immutableErrors) {
+            expectedErrors.errors.addAll(included.errors);
+        }
+        expectedErrors.immutableErrors.clear();
+        expectedErrors.matcher = new ErrorMatcher(expectedErrors.errors);
+        expectedErrors.isImmutable = true;
+        return expectedErrors;
+    }
+
 }
@@ -0,0 +1,172 @@
+package sqlancer.common.query;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * An order-independent digest of a result set, which is computed while streaming over the rows. Two result sets have
+ * the same digest if they contain the same rows with the same multiplicities (up to hash collisions), so the rows only
+ * need to be materialized when the digests differ.
+ *
+ * Cells are compared by their string representation, with trailing zeros after the decimal point removed (as many DBMS
+ * treat them as non-bugs). Integer columns are hashed from their typed values, which yields the same hash as their
+ * string representation but avoids allocating a string per cell.
+ */
+public final class ResultSetDigest {
+
+    private static final long NULL_HASH = 0x9E3779B97F4A7C15L;
+    private static final long ROW_SEED = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private long count;
+    private long sum;
+    private long squareSum;
+
+    /**
+     * Consumes the remaining rows of the result set.
+     *
+     * @param result
+     *            the result set, which is not closed by this method
+     * @param typedIntegers
+     *            whether integer columns can be read by getLong(), which does not hold for dynamically-typed DBMS
+     *            such as SQLite, where a column can contain values of any type
+     *
+     * @return the digest of the rows
+     *
+     * @throws SQLException
+     *             if reading the result set fails
+     */
+    public static ResultSetDigest of(SQLancerResultSet result, boolean typedIntegers) throws SQLException {
+        ResultSet rs = result.getRs();
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columns = metaData.getColumnCount();
+        boolean[] isInteger = new boolean[columns + 1];
+        if (typedIntegers) {
+            for (int i = 1; i <= columns; i++) {
+                isInteger[i] = isSignedInteger(metaData, i);
+            }
+        }
+        ResultSetDigest digest = new ResultSetDigest();
+        while (rs.next()) {
+            long row = ROW_SEED;
+            for (int i = 1; i <= columns; i++) {
+                long cell;
+                if (isInteger[i]) {
+                    long value = rs.getLong(i);
+                    cell = rs.wasNull() ? NULL_HASH : hashLong(value);
+                } else {
+                    String value = rs.getString(i);
+                    cell = value == null ? NULL_HASH : hashChars(value, 0, canonicalLength(value));
+                }
+                row = (row ^ cell) * PRIME;
+                row = Long.rotateLeft(row, 29);
+            }
+            digest.add(row);
+        }
+        return digest;
+    }
+
+    private static boolean isSignedInteger(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+            return metaData.isSigned(column); // unsigned BIGINT values do not fit into a long
+        default:
+            return false;
+        }
+    }
+
+    private void add(long rowHash) {
+        count++;
+        // two independently-mixed sums make accidental collisions unlikely, while staying order-independent
+        sum += mix(rowHash);
+        squareSum += mix(rowHash ^ NULL_HASH) * (rowHash | 1);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ResultSetDigest)) {
+            return false;
+        }
+        ResultSetDigest that = (ResultSetDigest) obj;
+        return count == that.count && sum == that.sum && squareSum == that.squareSum;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(sum * 31 + squareSum);
+    }
+
+    /**
+     * Removes trailing zeros after the decimal point (e.g., 1.000 becomes 1), which corresponds to the regular
+     * expression {@code [\.]0+$}.
+     *
+     * @param value
+     *            a non-null cell value
+     *
+     * @return the canonical cell value
+     */
+    public static String removeTrailingZeros(String value) {
+        int length = canonicalLength(value);
+        return length == value.length() ? value : value.substring(0, length);
+    }
+
+    private static int canonicalLength(String value) {
+        int i = value.length() - 1;
+        while (i >= 0 && value.charAt(i) == '0') {
+            i--;
+        }
+        if (i < value.length() - 1 && i >= 0 && value.charAt(i) == '.') {
+            return i;
+        }
+        return value.length();
+    }
+
+    private static long hashChars(CharSequence value, int from, int to) {
+        long h = ROW_SEED;
+        for (int i = from; i < to; i++) {
+            h = (h ^ value.charAt(i)) * PRIME;
+        }
+        return mix(h);
+    }
+
+    // computes the same hash as hashChars(Long.toString(value)) without allocating the string
+    private static long hashLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            String s = Long.toString(value);
+            return hashChars(s, 0, s.length());
+        }
+        long h = ROW_SEED;
+        if (value < 0) {
+            h = (h ^ '-') * PRIME;
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            h = (h ^ ('0' + (value / divisor) % 10)) * PRIME;
+        }
+        return mix(h);
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
@@ -76,6 +76,8 @@ public class SQLQueryAdapter extends Query<SQLConnection> {
 
     public <G extends GlobalState<?, ?, SQLConnection>> boolean execute(G globalState, boolean reportException,
                                                                         String... fills) throws SQLException {
+        // the statement might change the rows of any table (e.g., by a trigger or a cascading foreign key)
+        globalState.invalidateRowCounts();
         return internalExecute(globalState.getConnection(), reportException, fills);
     }
 
@@ -1,11 +1,13 @@
 package sqlancer.common.schema;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import sqlancer.IgnoreMeException;
 import sqlancer.SQLGlobalState;
-import sqlancer.common.query.SQLQueryAdapter;
-import sqlancer.common.query.SQLancerResultSet;
 
 public class AbstractRelationalTable<C extends AbstractTableColumn<?, ?>, I extends TableIndex, G extends SQLGlobalState<?, ?>>
         extends AbstractTable<C, I, G> {
@@ -17,15 +19,13 @@ public class AbstractRelationalTable<C extends AbstractTableColumn<?, ?>, I exte
     @Override
     public long getNrRows(G globalState) {
         if (rowCount == NO_ROW_COUNT_AVAILABLE) {
-            SQLQueryAdapter q = new SQLQueryAdapter("SELECT COUNT(*) FROM " + name);
-            try (SQLancerResultSet query = q.executeAndGet(globalState)) {
-                if (query == null) {
-                    throw new IgnoreMeException();
-                }
+            // executed directly, so that a failing count is reported as an SQLException rather than an AssertionError
+            try (Statement s = globalState.getConnection().createStatement();
+                    ResultSet query = s.executeQuery("SELECT COUNT(*) FROM " + name)) {
                 query.next();
                 rowCount = query.getLong(1);
                 return rowCount;
-            } catch (Throwable t) {
+            } catch (SQLException e) {
                 // an exception might be expected, for example, when invalid view is created
                 throw new IgnoreMeException();
             }
@@ -34,4 +34,38 @@ public class AbstractRelationalTable<C extends AbstractTableColumn<?, ?>, I exte
         }
     }
 
+    /**
+     * Fetches the row counts of the given tables that are not known yet by a single query, so that
+     * {@link #getNrRows(SQLGlobalState)} does not need a round trip per table. If the query fails (e.g., due to an
+     * invalid view), the counts are left to be fetched one by one.
+     *
+     * @param globalState
+     *            the state whose connection is used
+     * @param tables
+     *            the tables, which might contain duplicates
+     */
+    public static void fetchNrRows(SQLGlobalState<?, ?> globalState, List<? extends AbstractTable<?, ?, ?>> tables) {
+        List<AbstractTable<?, ?, ?>> tablesWithoutCount = tables.stream()
+                .filter(t -> t instanceof AbstractRelationalTable && t.rowCount == NO_ROW_COUNT_AVAILABLE).distinct()
+                .collect(Collectors.toList());
+        if (tablesWithoutCount.size() < 2) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < tablesWithoutCount.size(); i++) {
+            if (i != 0) {
+                sb.append(" UNION ALL ");
+            }
+            sb.append("SELECT ").append(i).append(", COUNT(*) FROM ").append(tablesWithoutCount.get(i).getName());
+        }
+        try (Statement s = globalState.getConnection().createStatement();
+                ResultSet query = s.executeQuery(sb.toString())) {
+            while (query.next()) {
+                tablesWithoutCount.get(query.getInt(1)).rowCount = query.getLong(2);
+            }
+        } catch (SQLException e) {
+            // getNrRows() determines which table causes the error
+        }
+    }
+
 }
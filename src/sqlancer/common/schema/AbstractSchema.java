@@ -9,6 +9,7 @@ import java.util.stream.Collectors;
 import sqlancer.GlobalState;
 import sqlancer.IgnoreMeException;
 import sqlancer.Randomly;
+import sqlancer.SQLGlobalState;
 
 public class AbstractSchema<G extends GlobalState<?, ?, ?>, T extends AbstractTable<?, ?, G>> {
 
@@ -140,6 +141,9 @@ public class AbstractSchema<G extends GlobalState<?, ?, ?>, T extends AbstractTa
     }
 
     public boolean containsTableWithZeroRows(G globalState) {
+        if (globalState instanceof SQLGlobalState) {
+            AbstractRelationalTable.fetchNrRows((SQLGlobalState<?, ?>) globalState, databaseTables);
+        }
         return databaseTables.stream().anyMatch(t -> t.getNrRows(globalState) == 0);
     }
 
@@ -98,5 +98,15 @@ public abstract class AbstractTable<C extends AbstractTableColumn<?, ?>, I exten
         rowCount = NO_ROW_COUNT_AVAILABLE;
     }
 
+    /**
+     * Takes over the row count (if known) of the same table in a previously read schema.
+     *
+     * @param previousTable
+     *            the table with the same name in the previous schema
+     */
+    public void takeRowCountFrom(AbstractTable<?, ?, ?> previousTable) {
+        rowCount = previousTable.rowCount;
+    }
+
     public abstract long getNrRows(G globalState);
 }
@@ -2,6 +2,8 @@ package sqlancer.mariadb;
 
 import sqlancer.Randomly;
 import sqlancer.SQLConnection;
+import sqlancer.SQLConnectionPool;
+import sqlancer.common.oracle.RawDatabaseBuilder;
 import sqlancer.common.query.Query;
 import sqlancer.common.query.SQLQueryAdapter;
 import sqlancer.mariadb.gen.MariaDBDropIndex;
@@ -12,6 +14,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 public class MariaDBEDC {
 
@@ -27,8 +30,8 @@ public class MariaDBEDC {
         state.getState().logStatement("========Create EquDB========");
 
         // build connection
-        String url = String.format("jdbc:mariadb://%s:%d", state.getOptions().getHost(), state.getOptions().getPort());
-        Connection conn = DriverManager.getConnection(url, state.getOptions().getUserName(), state.getOptions().getPassword());
+        SQLConnectionPool pool = MariaDBProvider.getConnectionPool(state);
+        SQLConnection conn = pool.getConnection(null);
         Statement statement = conn.createStatement();
 
         // create rawDB
@@ -40,43 +43,20 @@ public class MariaDBEDC {
 
         // connect rawDB
         state.getState().logStatement("USE " + rawDB);
-        statement.execute("USE " + rawDB);
+        conn.useDatabase(rawDB);
 
         // copy data to rawDB
-        for (MariaDBSchema.MariaDBTable table : state.getSchema().getDatabaseTablesWithoutViews()) {
-            // get create table string
-            StringBuilder createTable = new StringBuilder();
-            createTable.append("CREATE TABLE ");
-            createTable.append(table.getName());
-            createTable.append("(");
-            ResultSet resultSet = statement.executeQuery("SHOW FULL COLUMNS FROM " + state.getDatabaseName() + "." + table.getName());
-            while (resultSet.next()) {
-                createTable.append(resultSet.getString("Field")); //column name
-                createTable.append(" ").append(resultSet.getString("Type")); //column type
-                String collation = resultSet.getString("Collation");
-                if (collation != null) {
-                    createTable.append(" ").append("COLLATE").append(" ").append("\"").append(collation).append("\"");
-                }
-                createTable.append(",");
-            }
-            String createTableString = createTable.toString();
-            createTableString = createTableString.substring(0, createTableString.length() - 1); // remove the last comma
-            createTableString += ")";
-
-            // copy data
-            state.getState().logStatement(createTableString);
-            statement.execute(createTableString);
-            String copyData = String.format("INSERT INTO %s SELECT * FROM %s", table.getName(), state.getDatabaseName() + "." + table.getName());
-            state.getState().logStatement(copyData);
-            statement.execute(copyData);
-        }
+        List<String> tableNames = state.getSchema().getDatabaseTablesWithoutViews().stream()
+                .map(MariaDBSchema.MariaDBTable::getName).collect(Collectors.toList());
+        new RawDatabaseBuilder(pool, state.getState(), collation -> true)
+                .copyTables(conn, state.getDatabaseName(), rawDB, tableNames);
 
         state.getState().logStatement("========Finish Create========");
         statement.close();
 
         MariaDBProvider.MariaDBGlobalState rawState = new MariaDBProvider.MariaDBGlobalState();
         rawState.setDatabaseName(rawDB);
-        rawState.setConnection(new SQLConnection(conn));
+        rawState.setConnection(conn);
         return rawState;
     }
 
@@ -4,10 +4,18 @@ import sqlancer.common.query.ExpectedErrors;
 
 public final class MariaDBErrors {
 
+    private static final ExpectedErrors INSERT_ERRORS = ExpectedErrors.immutable(MariaDBErrors::collectInsertErrors);
+    private static final ExpectedErrors EXPRESSION_ERRORS = ExpectedErrors
+            .immutable(MariaDBErrors::collectExpressionErrors);
+
     private MariaDBErrors() {
     }
 
     public static void addInsertErrors(ExpectedErrors errors) {
+        errors.addAll(INSERT_ERRORS);
+    }
+
+    private static void collectInsertErrors(ExpectedErrors errors) {
         errors.add("Out of range");
         errors.add("Duplicate entry"); // violates UNIQUE constraint
         errors.add("cannot be null"); // violates NOT NULL constraint
@@ -20,6 +28,10 @@ public final class MariaDBErrors {
     }
 
     public static void addExpressionErrors(ExpectedErrors errors) {
+        errors.addAll(EXPRESSION_ERRORS);
+    }
+
+    private static void collectExpressionErrors(ExpectedErrors errors) {
         errors.add("Truncated incorrect");
         errors.add("is out of range");
         // regex
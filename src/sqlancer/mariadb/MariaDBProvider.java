@@ -8,7 +8,6 @@ import sqlancer.mariadb.MariaDBProvider.MariaDBGlobalState;
 import sqlancer.mariadb.gen.*;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
@@ -19,6 +18,19 @@ public class MariaDBProvider extends SQLProviderAdapter<MariaDBGlobalState, Mari
 
     public static final int MAX_EXPRESSION_DEPTH = 3;
 
+    static final SQLConnectionPool.Dialect CONNECTION_DIALECT = new SQLConnectionPool.Dialect() {
+
+        @Override
+        public void useDatabase(Connection connection, String databaseName) throws SQLException {
+            connection.setCatalog(databaseName); // issues a USE statement and keeps the driver's state consistent
+        }
+
+        @Override
+        public void resetSession(Connection connection) throws SQLException {
+            connection.unwrap(org.mariadb.jdbc.Connection.class).reset();
+        }
+    };
+
     public MariaDBProvider() {
         super(MariaDBGlobalState.class, MariaDBOptions.class);
     }
@@ -158,13 +170,7 @@ public class MariaDBProvider extends SQLProviderAdapter<MariaDBGlobalState, Mari
 
     }
 
-    @Override
-    public SQLConnection createDatabase(MariaDBGlobalState globalState) throws SQLException {
-        globalState.getState().logStatement("DROP DATABASE IF EXISTS " + globalState.getDatabaseName());
-        globalState.getState().logStatement("CREATE DATABASE " + globalState.getDatabaseName());
-        globalState.getState().logStatement("USE " + globalState.getDatabaseName());
-        String username = globalState.getOptions().getUserName();
-        String password = globalState.getOptions().getPassword();
+    public static SQLConnectionPool getConnectionPool(MariaDBGlobalState globalState) {
         String host = globalState.getOptions().getHost();
         int port = globalState.getOptions().getPort();
         if (host == null) {
@@ -174,17 +180,27 @@ public class MariaDBProvider extends SQLProviderAdapter<MariaDBGlobalState, Mari
             port = MariaDBOptions.DEFAULT_PORT;
         }
         String url = String.format("jdbc:mariadb://%s:%d", host, port);
-        Connection con = DriverManager.getConnection(url, username, password);
+        if (globalState.getOptions().useEDCBatches()) {
+            url += "/?allowMultiQueries=true"; // EDC sends several queries in one request
+        }
+        return SQLConnectionPool.forEndpoint(globalState.getOptions(), url, globalState.getOptions().getUserName(),
+                globalState.getOptions().getPassword(), CONNECTION_DIALECT);
+    }
+
+    @Override
+    public SQLConnection createDatabase(MariaDBGlobalState globalState) throws SQLException {
+        globalState.getState().logStatement("DROP DATABASE IF EXISTS " + globalState.getDatabaseName());
+        globalState.getState().logStatement("CREATE DATABASE " + globalState.getDatabaseName());
+        globalState.getState().logStatement("USE " + globalState.getDatabaseName());
+        SQLConnection con = getConnectionPool(globalState).getConnection(null);
         try (Statement s = con.createStatement()) {
             s.execute("DROP DATABASE IF EXISTS " + globalState.getDatabaseName());
         }
         try (Statement s = con.createStatement()) {
             s.execute("CREATE DATABASE " + globalState.getDatabaseName());
         }
-        try (Statement s = con.createStatement()) {
-            s.execute("USE " + globalState.getDatabaseName());
-        }
-        return new SQLConnection(con);
+        con.useDatabase(globalState.getDatabaseName());
+        return con;
     }
 
     @Override
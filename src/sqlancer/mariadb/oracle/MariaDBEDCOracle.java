@@ -40,6 +40,11 @@ public class MariaDBEDCOracle extends EDCBase<MariaDBProvider.MariaDBGlobalState
         errors.add("Regex error"); // avoid too many invalid errors
     }
 
+    @Override
+    protected boolean supportsMultiStatementRequests() {
+        return true; // with allowMultiQueries, see MariaDBProvider.getConnectionPool
+    }
+
     @Override
     public Map<String, Map<String, List<String>>> obtainTableSchemas(MariaDBProvider.MariaDBGlobalState state) throws SQLException {
         Map<String, Map<String, List<String>>> tableSchema = new HashMap<>();
@@ -1,14 +1,15 @@
 package sqlancer.mysql;
 
 import sqlancer.SQLConnection;
+import sqlancer.SQLConnectionPool;
+import sqlancer.common.oracle.RawDatabaseBuilder;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 public class MySQLEDC {
 
@@ -24,9 +25,8 @@ public class MySQLEDC {
         state.getState().logStatement("========Create RawDB========"); // do not need to log statements
 
         // build connection
-        String url = String.format("jdbc:mysql://%s:%d?serverTimezone=UTC&useSSL=false&allowPublicKeyRetrieval=true",
-                state.getOptions().getHost(), state.getOptions().getPort());
-        Connection conn = DriverManager.getConnection(url, state.getOptions().getUserName(), state.getOptions().getPassword());
+        SQLConnectionPool pool = MySQLProvider.getConnectionPool(state);
+        SQLConnection conn = pool.getConnection(null);
         Statement statement = conn.createStatement();
 
         // create rawDB
@@ -38,40 +38,14 @@ public class MySQLEDC {
 
         // connect rawDB
         state.getState().logStatement("USE " + rawDB);
-        statement.execute("USE " + rawDB);
+        conn.useDatabase(rawDB);
 
-        // copy data to rawDB
-        for (MySQLSchema.MySQLTable table : state.getSchema().getDatabaseTablesWithoutViews()) {
-            // get create table string
-            StringBuilder createTableBuilder = new StringBuilder();
-            createTableBuilder.append("CREATE TABLE ");
-            createTableBuilder.append(table.getName());
-            createTableBuilder.append("(");
-            ResultSet resultSet = statement.executeQuery("SHOW FULL COLUMNS FROM " + state.getDatabaseName() + "." + table.getName());
-            while (resultSet.next()) {
-                createTableBuilder.append(resultSet.getString("Field")); //column name
-                createTableBuilder.append(" ").append(resultSet.getString("Type")); //column type
-                String collation = resultSet.getString("Collation");
-                if (collation != null && !collation.equals("utf8mb4_0900_ai_ci")) { // do not need default collation
-                    createTableBuilder.append(" ").append("COLLATE").append(" ").append("\"").append(collation).append("\"");
-                }
-
-                createTableBuilder.append(",");
-            }
-            String createTableString = createTableBuilder.toString();
-            createTableString = createTableString.substring(0, createTableString.length() - 1); // remove the last comma
-            createTableString += ")";
-
-            // copy data
-            state.getState().logStatement(createTableString);
-            statement.execute(createTableString);
-            String copyData = String.format("INSERT INTO %s SELECT * FROM %s", table.getName(), state.getDatabaseName() + "." + table.getName());
-            state.getState().logStatement(copyData);
-            statement.execute(copyData);
-
-            // record create table statements for further equivalent database construction
-            createTableStatements.put(table.getName(), createTableString);
-        }
+        // copy data to rawDB, and record create table statements for further equivalent database construction
+        List<String> tableNames = state.getSchema().getDatabaseTablesWithoutViews().stream()
+                .map(MySQLSchema.MySQLTable::getName).collect(Collectors.toList());
+        createTableStatements.putAll(new RawDatabaseBuilder(pool, state.getState(),
+                collation -> !collation.equals("utf8mb4_0900_ai_ci")) // do not need default collation
+                        .copyTables(conn, state.getDatabaseName(), rawDB, tableNames));
 
         // Currently, we do not create views in MySQL
         state.getState().logStatement("========Finish Create========");
@@ -79,7 +53,7 @@ public class MySQLEDC {
 
         MySQLGlobalState rawState = new MySQLGlobalState();
         rawState.setDatabaseName(rawDB);
-        rawState.setConnection(new SQLConnection(conn));
+        rawState.setConnection(conn);
         return rawState;
     }
 
@@ -4,10 +4,17 @@ import sqlancer.common.query.ExpectedErrors;
 
 public final class MySQLErrors {
 
+    private static final ExpectedErrors EXPRESSION_ERRORS = ExpectedErrors
+            .immutable(MySQLErrors::collectExpressionErrors);
+
     private MySQLErrors() {
     }
 
     public static void addExpressionErrors(ExpectedErrors errors) {
+        errors.addAll(EXPRESSION_ERRORS);
+    }
+
+    private static void collectExpressionErrors(ExpectedErrors errors) {
         errors.add("BIGINT value is out of range"); // e.g., CAST(-('-1e500') AS SIGNED)
         errors.add("is not valid for CHARACTER SET");
         errors.add("Truncated incorrect");
@@ -1,12 +1,12 @@
 package sqlancer.mysql;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Scanner;
 
 import com.google.auto.service.AutoService;
+import com.mysql.cj.jdbc.JdbcConnection;
 
 import sqlancer.AbstractAction;
 import sqlancer.DatabaseProvider;
@@ -14,6 +14,7 @@ import sqlancer.IgnoreMeException;
 import sqlancer.MainOptions;
 import sqlancer.Randomly;
 import sqlancer.SQLConnection;
+import sqlancer.SQLConnectionPool;
 import sqlancer.SQLProviderAdapter;
 import sqlancer.StatementExecutor;
 import sqlancer.common.DBMSCommon;
@@ -38,6 +39,19 @@ import sqlancer.mysql.gen.tblmaintenance.MySQLRepair;
 @AutoService(DatabaseProvider.class)
 public class MySQLProvider extends SQLProviderAdapter<MySQLGlobalState, MySQLOptions> {
 
+    static final SQLConnectionPool.Dialect CONNECTION_DIALECT = new SQLConnectionPool.Dialect() {
+
+        @Override
+        public void useDatabase(Connection connection, String databaseName) throws SQLException {
+            connection.setCatalog(databaseName); // issues a USE statement and keeps the driver's state consistent
+        }
+
+        @Override
+        public void resetSession(Connection connection) throws SQLException {
+            connection.unwrap(JdbcConnection.class).resetServerState();
+        }
+    };
+
     public MySQLProvider() {
         super(MySQLGlobalState.class, MySQLOptions.class);
     }
@@ -153,10 +167,7 @@ public class MySQLProvider extends SQLProviderAdapter<MySQLGlobalState, MySQLOpt
         se.executeStatements();
     }
 
-    @Override
-    public SQLConnection createDatabase(MySQLGlobalState globalState) throws SQLException {
-        String username = globalState.getOptions().getUserName();
-        String password = globalState.getOptions().getPassword();
+    public static SQLConnectionPool getConnectionPool(MySQLGlobalState globalState) {
         String host = globalState.getOptions().getHost();
         int port = globalState.getOptions().getPort();
         if (host == null) {
@@ -165,22 +176,32 @@ public class MySQLProvider extends SQLProviderAdapter<MySQLGlobalState, MySQLOpt
         if (port == MainOptions.NO_SET_PORT) {
             port = MySQLOptions.DEFAULT_PORT;
         }
+        String url = String.format("jdbc:mysql://%s:%d?serverTimezone=UTC&useSSL=false&allowPublicKeyRetrieval=true",
+                host, port);
+        if (globalState.getOptions().useEDCBatches()) {
+            url += "&allowMultiQueries=true"; // EDC sends several queries in one request
+        }
+        return SQLConnectionPool.forEndpoint(globalState.getOptions(), url, globalState.getOptions().getUserName(),
+                globalState.getOptions().getPassword(), CONNECTION_DIALECT);
+    }
+
+    @Override
+    public SQLConnection createDatabase(MySQLGlobalState globalState) throws SQLException {
         String databaseName = globalState.getDatabaseName();
         globalState.getState().logStatement("DROP DATABASE IF EXISTS " + databaseName);
         globalState.getState().logStatement("CREATE DATABASE " + databaseName);
         globalState.getState().logStatement("USE " + databaseName);
-        String url = String.format("jdbc:mysql://%s:%d?serverTimezone=UTC&useSSL=false&allowPublicKeyRetrieval=true",
-                host, port);
-        Connection con = null;
+        SQLConnectionPool pool = getConnectionPool(globalState);
+        SQLConnection con = null;
         try {
-            con = DriverManager.getConnection(url, username, password);
+            con = pool.getConnection(null);
         } catch (SQLException e) {
             Scanner scanner = new Scanner(System.in);
             System.out.println("Cannot build a connection, try to restart the database.");
             System.out.println("Press Y to continue connection.");
             String input = scanner.nextLine();
             if (input.equals("Y")) {
-                con = DriverManager.getConnection(url, username, password);
+                con = pool.getConnection(null);
             }
             if (con != null) {
                 System.out.println("Good. Here we go.");
@@ -192,10 +213,8 @@ public class MySQLProvider extends SQLProviderAdapter<MySQLGlobalState, MySQLOpt
         try (Statement s = con.createStatement()) {
             s.execute("CREATE DATABASE " + databaseName);
         }
-        try (Statement s = con.createStatement()) {
-            s.execute("USE " + databaseName);
-        }
-        return new SQLConnection(con);
+        con.useDatabase(databaseName);
+        return con;
     }
 
     @Override
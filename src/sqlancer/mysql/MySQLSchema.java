@@ -89,11 +89,12 @@ public class MySQLSchema extends AbstractSchema<MySQLGlobalState, MySQLTable> {
         }
 
         public MySQLRowValue getRandomRowValue(SQLConnection con) throws SQLException {
-            String randomRow = String.format("SELECT %s FROM %s ORDER BY RAND() LIMIT 1", columnNamesAsString(
+            // a seeded RAND(), so that the row only depends on the seed and the data
+            String randomRow = String.format("SELECT %s FROM %s ORDER BY RAND(%d) LIMIT 1", columnNamesAsString(
                     c -> c.getTable().getName() + "." + c.getName() + " AS " + c.getTable().getName() + c.getName()),
                     // columnNamesAsString(c -> "typeof(" + c.getTable().getName() + "." +
                     // c.getName() + ")")
-                    tableNamesAsString());
+                    tableNamesAsString(), Randomly.getNotCachedInteger(0, Integer.MAX_VALUE));
             Map<MySQLColumn, MySQLConstant> values = new HashMap<>();
             try (Statement s = con.createStatement()) {
                 ResultSet randomRowValues = s.executeQuery(randomRow);
@@ -33,6 +33,11 @@ public class MySQLEDCOracle extends EDCBase<MySQLGlobalState> implements TestOra
         MySQLErrors.addExpressionErrors(errors);
     }
 
+    @Override
+    protected boolean supportsMultiStatementRequests() {
+        return true; // with allowMultiQueries, see MySQLProvider.getConnectionPool
+    }
+
     @Override
     public Map<String, Map<String, List<String>>> obtainTableSchemas(MySQLGlobalState state) throws SQLException {
         Map<String, Map<String, List<String>>> tableSchema = new HashMap<>();
@@ -0,0 +1,69 @@
+package sqlancer.sqlite3;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import sqlancer.DatabaseCheckpoint;
+import sqlancer.SQLConnection;
+import sqlancer.common.query.Query;
+
+/**
+ * A checkpoint of a SQLite database, which consists of copies of its main and temp schemas that are saved and restored
+ * by the online backup API. Pragmas only apply to the connection that executes them, so they are executed again after
+ * a restore.
+ */
+final class SQLite3Checkpoint implements DatabaseCheckpoint<SQLite3GlobalState, SQLConnection> {
+
+    private final Path mainFile;
+    private final Path tempFile;
+
+    private SQLite3Checkpoint(Path mainFile, Path tempFile) {
+        this.mainFile = mainFile;
+        this.tempFile = tempFile;
+    }
+
+    static SQLite3Checkpoint create(SQLite3GlobalState globalState) throws SQLException, IOException {
+        SQLite3Checkpoint checkpoint = new SQLite3Checkpoint(Files.createTempFile("sqlancer-checkpoint", ".db"),
+                Files.createTempFile("sqlancer-checkpoint", ".db"));
+        try (Statement s = globalState.getConnection().createStatement()) {
+            s.executeUpdate("backup main to '" + checkpoint.mainFile + "'");
+            s.executeUpdate("backup temp to '" + checkpoint.tempFile + "'");
+        } catch (SQLException e) {
+            checkpoint.close();
+            throw e;
+        }
+        return checkpoint;
+    }
+
+    @Override
+    public void restore(SQLite3GlobalState globalState, List<Query<SQLConnection>> statements) throws SQLException {
+        try (Statement s = globalState.getConnection().createStatement()) {
+            s.executeUpdate("restore main from '" + mainFile + "'");
+            s.executeUpdate("restore temp from '" + tempFile + "'");
+        }
+        for (Query<SQLConnection> q : statements) {
+            if (q.getQueryString().stripLeading().regionMatches(true, 0, "PRAGMA", 0, "PRAGMA".length())) {
+                try {
+                    q.execute(globalState);
+                } catch (Throwable ignoredException) {
+                    // ignore, as when the statement was executed for the first time
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(mainFile);
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            System.err.println("Could not delete the checkpoint " + mainFile + ": " + e.getMessage());
+        }
+    }
+
+}
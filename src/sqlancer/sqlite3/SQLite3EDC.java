@@ -2,9 +2,9 @@ package sqlancer.sqlite3;
 
 import sqlancer.SQLConnection;
 import sqlancer.common.query.Query;
+import sqlancer.sqlite3.SQLite3Options.SQLite3Storage;
 import sqlancer.sqlite3.schema.SQLite3Schema;
 
-import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
@@ -12,12 +12,15 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 public class SQLite3EDC {
 
     public final SQLite3GlobalState state;
     public final List<Query<?>> knownToReproduce; // record to original statements
 
+    private static final String ORIGINAL_SCHEMA = "edc_original";
+
 
     public SQLite3EDC(SQLite3GlobalState state) {
         this.state = state;
@@ -28,19 +31,107 @@ public class SQLite3EDC {
         state.getState().logStatement("========Create RawDB========");
 
         // build connection, create rawDB and connect rawDB
-        File dir = new File("." + File.separator + "databases");
-        while (!dir.exists()) {
-            dir.mkdir();
-        }
-        File dataBase = new File(dir, state.getDatabaseName() + "_raw.db");
-        while (dataBase.exists()) {
-            dataBase.delete();
-        }
-        String url = "jdbc:sqlite:" + dataBase.getAbsolutePath();
-        Connection conn = DriverManager.getConnection(url);
+        SQLite3Storage storage = state.getDbmsSpecificOptions().storage;
+        String rawDB = state.getDatabaseName() + "_raw";
+        storage.prepare(rawDB, true);
+        Connection conn = DriverManager.getConnection(storage.getUrl(rawDB));
         Statement statement = conn.createStatement();
 
         // copy data to rawDB
+        if (!canAttachOriginalTables()
+                || !copyFromAttachedOriginal(statement, storage.getFileName(state.getDatabaseName()))) {
+            copyByReplaying(statement);
+        }
+
+        // copy all views
+        for (Query<?> query : knownToReproduce) {
+            String queryString = query.getQueryString();
+            if (queryString.contains("VIEW")) {
+                try {
+                    statement.execute(queryString);
+                    state.getState().logStatement(queryString);
+                } catch (SQLException ignored) { // skip invalid statements
+                }
+            }
+        }
+
+        state.getState().logStatement("========Finish Create========");
+        statement.close();
+
+        SQLite3GlobalState rawState = new SQLite3GlobalState();
+        rawState.setConnection(new SQLConnection(conn));
+        rawState.setDatabaseName(rawDB);
+        return rawState;
+    }
+
+    // temporary tables are only visible to the original connection, and virtual and system tables cannot be copied
+    // by a CREATE TABLE and INSERT statement; in the exclusive locking mode, the original connection keeps the database
+    // file locked, so that it cannot be read by another connection
+    private boolean canAttachOriginalTables() {
+        boolean isLockedExclusively = knownToReproduce.stream().map(q -> q.getQueryString().toLowerCase(Locale.ROOT))
+                .anyMatch(q -> q.contains("locking_mode") && q.contains("exclusive"));
+        return !isLockedExclusively && state.getSchema().getDatabaseTablesWithoutViews().stream()
+                .noneMatch(t -> t.isTemp() || t.isVirtual() || t.isSystemTable());
+    }
+
+    /**
+     * Copies the tables from the attached original database file.
+     *
+     * @return false if the original database could not be read (e.g., since it is locked), in which case the copied
+     *         tables have been dropped again, so that the tables can be copied by replaying the statements
+     */
+    private boolean copyFromAttachedOriginal(Statement statement, String originalDatabaseFile) throws SQLException {
+        // apply the configurations of the original database, which are not stored in the database file
+        for (Query<?> query : knownToReproduce) {
+            String queryString = query.getQueryString();
+            if (queryString.regionMatches(true, 0, "PRAGMA", 0, "PRAGMA".length())) {
+                try {
+                    statement.execute(queryString);
+                    state.getState().logStatement(queryString); // only record valid statement
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+
+        // instead of replaying the database creating process, we read the tables from the original database file and
+        // copy each of them once, without its constraints and indexes
+        String attach = String.format("ATTACH DATABASE '%s' AS %s", originalDatabaseFile.replace("'", "''"),
+                ORIGINAL_SCHEMA);
+        try {
+            statement.execute(attach);
+        } catch (SQLException e) {
+            return false;
+        }
+        state.getState().logStatement(attach);
+        List<String> copiedTables = new ArrayList<>();
+        boolean isCopied = false;
+        try {
+            for (SQLite3Schema.SQLite3Table table : state.getSchema().getDatabaseTablesWithoutViews()) {
+                String createTableString = getCreateTableString(statement, ORIGINAL_SCHEMA + ".", table.getName());
+                statement.execute(createTableString);
+                copiedTables.add(table.getName());
+                String insertData = String.format("INSERT INTO %s SELECT * FROM %s.%s", table.getName(),
+                        ORIGINAL_SCHEMA, table.getName());
+                statement.execute(insertData);
+                state.getState().logStatement(createTableString);
+                state.getState().logStatement(insertData);
+            }
+            isCopied = true;
+        } catch (SQLException e) {
+            // the original database is locked by its connection
+            for (String tableName : copiedTables) {
+                statement.execute("DROP TABLE IF EXISTS main." + tableName);
+            }
+        } finally {
+            // the raw database must not resolve table names to the original database
+            String detach = "DETACH DATABASE " + ORIGINAL_SCHEMA;
+            state.getState().logStatement(detach);
+            statement.execute(detach);
+        }
+        return isCopied;
+    }
+
+    private void copyByReplaying(Statement statement) throws SQLException {
         // because SQLite does not support multiple database instances, we need to replay the database creating process and reset all configurations
         // replay the database creating process
         for (Query<?> query : knownToReproduce) {
@@ -68,21 +159,7 @@ public class SQLite3EDC {
 
         for (SQLite3Schema.SQLite3Table table : state.getSchema().getDatabaseTablesWithoutViews()) {
             // get create table string
-            StringBuilder createTable = new StringBuilder();
-            createTable.append("CREATE TABLE ");
-            createTable.append(table.getName());
-            createTable.append("(");
-            String getTableStructure = String.format("PRAGMA table_info(%s)", table.getName());
-            ResultSet resultSet = statement.executeQuery(getTableStructure);
-            while (resultSet.next()) {
-                createTable.append(resultSet.getString("name")); // column name
-                createTable.append(" ").append(resultSet.getString("type")); // column type
-                // we cannot get collations from SQLite, that we do not generate them
-                createTable.append(",");
-            }
-            String createTableString = createTable.toString();
-            createTableString = createTableString.substring(0, createTableString.length() - 1); // remove the last comma
-            createTableString += ")";
+            String createTableString = getCreateTableString(statement, "", table.getName());
 
             // drop the original table
             String dropTable = String.format("DROP TABLE %s", table.getName());
@@ -101,26 +178,27 @@ public class SQLite3EDC {
             state.getState().logStatement(dropEquTable);
             statement.execute(dropEquTable);
         }
+    }
 
-        // copy all views
-        for (Query<?> query : knownToReproduce) {
-            String queryString = query.getQueryString();
-            if (queryString.contains("VIEW")) {
-                try {
-                    statement.execute(queryString);
-                    state.getState().logStatement(queryString);
-                } catch (SQLException ignored) { // skip invalid statements
-                }
+    private static String getCreateTableString(Statement statement, String schemaPrefix, String tableName)
+            throws SQLException {
+        StringBuilder createTable = new StringBuilder();
+        createTable.append("CREATE TABLE ");
+        createTable.append(tableName);
+        createTable.append("(");
+        String getTableStructure = String.format("PRAGMA %stable_info(%s)", schemaPrefix, tableName);
+        try (ResultSet resultSet = statement.executeQuery(getTableStructure)) {
+            while (resultSet.next()) {
+                createTable.append(resultSet.getString("name")); // column name
+                createTable.append(" ").append(resultSet.getString("type")); // column type
+                // we cannot get collations from SQLite, that we do not generate them
+                createTable.append(",");
             }
         }
-
-        state.getState().logStatement("========Finish Create========");
-        statement.close();
-
-        SQLite3GlobalState rawState = new SQLite3GlobalState();
-        rawState.setConnection(new SQLConnection(conn));
-        rawState.setDatabaseName(state.getDatabaseName() + "_raw");
-        return rawState;
+        String createTableString = createTable.toString();
+        createTableString = createTableString.substring(0, createTableString.length() - 1); // remove the last comma
+        createTableString += ")";
+        return createTableString;
     }
 
 }
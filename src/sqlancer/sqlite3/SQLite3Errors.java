@@ -6,10 +6,27 @@ import sqlancer.common.query.ExpectedErrors;
 
 public final class SQLite3Errors {
 
+    private static final ExpectedErrors DELETE_ERRORS = ExpectedErrors.immutable(SQLite3Errors::collectDeleteErrors);
+    private static final ExpectedErrors EXPECTED_EXPRESSION_ERRORS = ExpectedErrors
+            .immutable(SQLite3Errors::collectExpectedExpressionErrors);
+    private static final ExpectedErrors MATCH_QUERY_ERRORS = ExpectedErrors
+            .immutable(SQLite3Errors::collectMatchQueryErrors);
+    private static final ExpectedErrors TABLE_MANIPULATION_ERRORS = ExpectedErrors
+            .immutable(SQLite3Errors::collectTableManipulationErrors);
+    private static final ExpectedErrors QUERY_ERRORS = ExpectedErrors.immutable(SQLite3Errors::collectQueryErrors);
+    private static final ExpectedErrors INSERT_NOW_ERRORS = ExpectedErrors
+            .immutable(SQLite3Errors::collectInsertNowErrors);
+    private static final ExpectedErrors INSERT_UPDATE_ERRORS = ExpectedErrors
+            .immutable(SQLite3Errors::collectInsertUpdateErrors);
+
     private SQLite3Errors() {
     }
 
     public static void addDeleteErrors(ExpectedErrors errors) {
+        errors.addAll(DELETE_ERRORS);
+    }
+
+    private static void collectDeleteErrors(ExpectedErrors errors) {
         // DELETE trigger for a view/table to which colomns were added or deleted
         errors.add("columns but");
         // trigger with on conflict clause
@@ -17,6 +34,10 @@ public final class SQLite3Errors {
     }
 
     public static void addExpectedExpressionErrors(ExpectedErrors errors) {
+        errors.addAll(EXPECTED_EXPRESSION_ERRORS);
+    }
+
+    private static void collectExpectedExpressionErrors(ExpectedErrors errors) {
         errors.add("[SQLITE_BUSY]  The database file is locked");
         errors.add("FTS expression tree is too large");
         errors.add("String or BLOB exceeds size limit");
@@ -73,6 +94,10 @@ public final class SQLite3Errors {
     }
 
     public static void addMatchQueryErrors(ExpectedErrors errors) {
+        errors.addAll(MATCH_QUERY_ERRORS);
+    }
+
+    private static void collectMatchQueryErrors(ExpectedErrors errors) {
         errors.add("unable to use function MATCH in the requested context");
         errors.add("malformed MATCH expression");
         errors.add("fts5: syntax error near");
@@ -84,6 +109,10 @@ public final class SQLite3Errors {
     }
 
     public static void addTableManipulationErrors(ExpectedErrors errors) {
+        errors.addAll(TABLE_MANIPULATION_ERRORS);
+    }
+
+    private static void collectTableManipulationErrors(ExpectedErrors errors) {
         errors.add("unsupported frame specification");
         errors.add("non-deterministic functions prohibited in CHECK constraints");
         errors.addAll(Arrays.asList("subqueries prohibited in CHECK constraints",
@@ -91,10 +120,18 @@ public final class SQLite3Errors {
     }
 
     public static void addQueryErrors(ExpectedErrors errors) {
+        errors.addAll(QUERY_ERRORS);
+    }
+
+    private static void collectQueryErrors(ExpectedErrors errors) {
         errors.add("ON clause references tables to its right");
     }
 
     public static void addInsertNowErrors(ExpectedErrors errors) {
+        errors.addAll(INSERT_NOW_ERRORS);
+    }
+
+    private static void collectInsertNowErrors(ExpectedErrors errors) {
         errors.add("non-deterministic use of strftime()");
         errors.add("non-deterministic use of time()");
         errors.add("non-deterministic use of datetime()");
@@ -103,6 +140,10 @@ public final class SQLite3Errors {
     }
 
     public static void addInsertUpdateErrors(ExpectedErrors errors) {
+        errors.addAll(INSERT_UPDATE_ERRORS);
+    }
+
+    private static void collectInsertUpdateErrors(ExpectedErrors errors) {
         errors.add("String or BLOB exceeds size limit");
         errors.add("[SQLITE_CONSTRAINT_CHECK]");
         errors.add("[SQLITE_CONSTRAINT_PRIMARYKEY]");
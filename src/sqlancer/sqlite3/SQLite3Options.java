@@ -9,6 +9,9 @@ import sqlancer.sqlite3.SQLite3Options.SQLite3OracleFactory;
 import sqlancer.sqlite3.oracle.SQLite3EDCOracle;
 import sqlancer.sqlite3.oracle.SQLite3PivotedQuerySynthesisOracle;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
@@ -74,6 +77,14 @@ public class SQLite3Options implements DBMSSpecificOptions<SQLite3OracleFactory>
             "--delete-existing-databases"}, description = "Delete a database file if it already exists", arity = 1)
     public boolean deleteIfExists = true;
 
+    @Parameter(names = {
+            "--storage"}, description = "Specifies where the databases are stored (memory, tmpfs, or disk). Databases in memory or on tmpfs are only written to the databases directory when a bug is found")
+    public SQLite3Storage storage = SQLite3Storage.DISK;
+
+    @Parameter(names = {
+            "--pivot-row-sample-size"}, description = "Specifies how many rows PQS samples by one query from a combination of tables, from which the pivot rows are drawn until the data changes (1: fetch each pivot row by its own query)")
+    public int pivotRowSampleSize = 100;
+
     @Parameter(names = {
             "--generate-new-database"}, description = "Specifies whether new databases should be generated", arity = 1)
     public boolean generateDatabase = true;
@@ -109,6 +120,75 @@ public class SQLite3Options implements DBMSSpecificOptions<SQLite3OracleFactory>
 
     }
 
+    public enum SQLite3Storage {
+        // shared-cache in-memory databases, which other connections of the process can attach by their URI
+        MEMORY {
+            @Override
+            public String getFileName(String databaseName) {
+                return String.format("file:%s?mode=memory&cache=shared", databaseName);
+            }
+
+            @Override
+            public void prepare(String databaseName, boolean deleteIfExists) {
+                // an in-memory database is deleted when its last connection is closed
+            }
+        },
+        TMPFS {
+            @Override
+            public String getFileName(String databaseName) {
+                File shm = new File(File.separator + "dev" + File.separator + "shm");
+                File dir = shm.isDirectory() ? shm : new File(System.getProperty("java.io.tmpdir"));
+                return new File(new File(dir, "sqlancer"), databaseName + ".db").getAbsolutePath();
+            }
+        },
+        DISK {
+            @Override
+            public String getFileName(String databaseName) {
+                return new File("." + File.separator + "databases", databaseName + ".db").getAbsolutePath();
+            }
+        };
+
+        /**
+         * Returns the name under which SQLite opens or attaches the database, i.e., a path or a URI.
+         *
+         * @param databaseName
+         *            the name of the database
+         *
+         * @return the file name or URI
+         */
+        public abstract String getFileName(String databaseName);
+
+        public String getUrl(String databaseName) {
+            return "jdbc:sqlite:" + getFileName(databaseName);
+        }
+
+        /**
+         * Creates the directory of the database file and deletes an existing database, if requested.
+         *
+         * @param databaseName
+         *            the name of the database
+         * @param deleteIfExists
+         *            whether an existing database (including its journal) is deleted
+         *
+         * @throws SQLException
+         *             if the directory cannot be created or the database cannot be deleted
+         */
+        public void prepare(String databaseName, boolean deleteIfExists) throws SQLException {
+            File file = new File(getFileName(databaseName));
+            try {
+                Files.createDirectories(file.getParentFile().toPath());
+                if (deleteIfExists) {
+                    for (String suffix : new String[] { "", "-journal", "-wal", "-shm" }) {
+                        Files.deleteIfExists(new File(file.getPath() + suffix).toPath());
+                    }
+                }
+            } catch (IOException e) {
+                throw new SQLException("cannot prepare " + file, e);
+            }
+        }
+
+    }
+
     @Override
     public List<SQLite3OracleFactory> getTestOracleFactory() {
         return Arrays.asList(oracles);
@@ -1,8 +1,9 @@
 package sqlancer.sqlite3;
 
-import java.io.File;
+import java.io.IOException;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -10,6 +11,7 @@ import java.util.List;
 import com.google.auto.service.AutoService;
 
 import sqlancer.AbstractAction;
+import sqlancer.DatabaseCheckpoint;
 import sqlancer.DatabaseProvider;
 import sqlancer.IgnoreMeException;
 import sqlancer.Randomly;
@@ -17,10 +19,13 @@ import sqlancer.SQLConnection;
 import sqlancer.SQLProviderAdapter;
 import sqlancer.StatementExecutor;
 import sqlancer.common.DBMSCommon;
+import sqlancer.common.oracle.EDCBase;
+import sqlancer.common.oracle.TestOracle;
 import sqlancer.common.query.ExpectedErrors;
 import sqlancer.common.query.SQLQueryAdapter;
 import sqlancer.common.query.SQLQueryProvider;
 import sqlancer.sqlite3.SQLite3Options.SQLite3OracleFactory;
+import sqlancer.sqlite3.SQLite3Options.SQLite3Storage;
 import sqlancer.sqlite3.gen.SQLite3AnalyzeGenerator;
 import sqlancer.sqlite3.gen.SQLite3CreateVirtualRtreeTabelGenerator;
 import sqlancer.sqlite3.gen.SQLite3ExplainGenerator;
@@ -275,16 +280,39 @@ public class SQLite3Provider extends SQLProviderAdapter<SQLite3GlobalState, SQLi
 
     @Override
     public SQLConnection createDatabase(SQLite3GlobalState globalState) throws SQLException {
-        File dir = new File("." + File.separator + "databases");
-        if (!dir.exists()) {
-            dir.mkdir();
+        SQLite3Storage storage = globalState.getDbmsSpecificOptions().storage;
+        storage.prepare(globalState.getDatabaseName(), globalState.getDbmsSpecificOptions().deleteIfExists);
+        return new SQLConnection(DriverManager.getConnection(storage.getUrl(globalState.getDatabaseName())));
+    }
+
+    @Override
+    public DatabaseCheckpoint<SQLite3GlobalState, SQLConnection> createCheckpoint(SQLite3GlobalState globalState)
+            throws SQLException, IOException {
+        return SQLite3Checkpoint.create(globalState);
+    }
+
+    @Override
+    protected void keepDatabases(SQLite3GlobalState globalState, TestOracle<SQLite3GlobalState> oracle) {
+        if (globalState.getDbmsSpecificOptions().storage == SQLite3Storage.DISK) {
+            return; // the databases are already stored in the databases directory
+        }
+        keepDatabase(globalState);
+        if (oracle instanceof EDCBase && ((EDCBase<SQLite3GlobalState>) oracle).getEquivalentState() != null) {
+            keepDatabase(((EDCBase<SQLite3GlobalState>) oracle).getEquivalentState());
         }
-        File dataBase = new File(dir, globalState.getDatabaseName() + ".db");
-        if (dataBase.exists() && ((SQLite3GlobalState) globalState).getDbmsSpecificOptions().deleteIfExists) {
-            dataBase.delete();
+    }
+
+    private static void keepDatabase(SQLite3GlobalState state) {
+        String databaseName = state.getDatabaseName();
+        try {
+            SQLite3Storage.DISK.prepare(databaseName, true);
+            try (Statement s = state.getConnection().createStatement()) {
+                // uses the online backup API, which also works for in-memory databases
+                s.executeUpdate("backup to " + SQLite3Storage.DISK.getFileName(databaseName));
+            }
+        } catch (SQLException e) {
+            System.err.println("Could not store the database " + databaseName + ": " + e.getMessage());
         }
-        String url = "jdbc:sqlite:" + dataBase.getAbsolutePath();
-        return new SQLConnection(DriverManager.getConnection(url));
     }
 
     @Override
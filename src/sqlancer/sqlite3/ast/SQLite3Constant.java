@@ -578,7 +578,7 @@ public abstract class SQLite3Constant extends SQLite3Expression {
     }
 
     @Override
-    public SQLite3Constant getExpectedValue() {
+    protected SQLite3Constant computeExpectedValue() {
         return this;
     }
 
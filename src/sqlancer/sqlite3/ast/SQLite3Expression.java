@@ -20,6 +20,9 @@ import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Table;
 
 public abstract class SQLite3Expression {
 
+    private SQLite3Constant memoizedExpectedValue;
+    private boolean isExpectedValueMemoized;
+
     public static class SQLite3TableReference extends SQLite3Expression {
 
         private final String indexedBy;
@@ -64,7 +67,7 @@ public abstract class SQLite3Expression {
         }
 
         @Override
-        public SQLite3Constant getExpectedValue() {
+        protected SQLite3Constant computeExpectedValue() {
             return expr.getExpectedValue();
         }
 
@@ -80,7 +83,23 @@ public abstract class SQLite3Expression {
 
     }
 
-    public SQLite3Constant getExpectedValue() {
+    /**
+     * Returns the value of the expression for the pivot row that its column references are bound to, or null if it is
+     * unknown. As an expression tree does not change once it is built, the value of each node is computed only once,
+     * although operators use the values of their operands several times; otherwise, the evaluation would take time
+     * exponential in the depth of the expression.
+     *
+     * @return the expected value
+     */
+    public final SQLite3Constant getExpectedValue() {
+        if (!isExpectedValueMemoized) {
+            memoizedExpectedValue = computeExpectedValue();
+            isExpectedValueMemoized = true;
+        }
+        return memoizedExpectedValue;
+    }
+
+    protected SQLite3Constant computeExpectedValue() {
         return null;
     }
 
@@ -277,7 +296,7 @@ public abstract class SQLite3Expression {
         }
 
         @Override
-        public SQLite3Constant getExpectedValue() {
+        protected SQLite3Constant computeExpectedValue() {
             if (expression.getExpectedValue() == null) {
                 return null;
             } else {
@@ -366,7 +385,7 @@ public abstract class SQLite3Expression {
         }
 
         @Override
-        public SQLite3Constant getExpectedValue() {
+        protected SQLite3Constant computeExpectedValue() {
             return getTopNode().getExpectedValue();
         }
 
@@ -475,7 +494,7 @@ public abstract class SQLite3Expression {
         }
 
         @Override
-        public SQLite3Constant getExpectedValue() {
+        protected SQLite3Constant computeExpectedValue() {
             return expression.getExpectedValue();
         }
 
@@ -587,7 +606,7 @@ public abstract class SQLite3Expression {
         }
 
         @Override
-        public SQLite3Constant getExpectedValue() {
+        protected SQLite3Constant computeExpectedValue() {
             if (expression.getExpectedValue() == null) {
                 return null;
             }
@@ -651,7 +670,7 @@ public abstract class SQLite3Expression {
         }
 
         @Override
-        public SQLite3Constant getExpectedValue() {
+        protected SQLite3Constant computeExpectedValue() {
             // TODO query as right hand side is not implemented
             if (left.getExpectedValue() == null) {
                 return null;
@@ -746,7 +765,7 @@ public abstract class SQLite3Expression {
         }
 
         @Override
-        public SQLite3Constant getExpectedValue() {
+        protected SQLite3Constant computeExpectedValue() {
             SQLite3Constant leftExpected = left.getExpectedValue();
             SQLite3Constant rightExpected = right.getExpectedValue();
             if (leftExpected == null || rightExpected == null) {
@@ -1344,7 +1363,7 @@ public abstract class SQLite3Expression {
         }
 
         @Override
-        public SQLite3Constant getExpectedValue() {
+        protected SQLite3Constant computeExpectedValue() {
             if (left.getExpectedValue() == null || right.getExpectedValue() == null) {
                 return null;
             }
@@ -1383,7 +1402,7 @@ public abstract class SQLite3Expression {
         }
 
         @Override
-        public SQLite3Constant getExpectedValue() {
+        protected SQLite3Constant computeExpectedValue() {
             return value;
         }
 
@@ -1489,7 +1508,7 @@ public abstract class SQLite3Expression {
         }
 
         @Override
-        public SQLite3Constant getExpectedValue() {
+        protected SQLite3Constant computeExpectedValue() {
             return expectedValue;
         }
 
@@ -1525,7 +1544,7 @@ public abstract class SQLite3Expression {
         }
 
         @Override
-        public SQLite3Constant getExpectedValue() {
+        protected SQLite3Constant computeExpectedValue() {
             return expectedValue;
         }
 
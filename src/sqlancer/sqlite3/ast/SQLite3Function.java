@@ -326,7 +326,7 @@ public class SQLite3Function extends SQLite3Expression {
     }
 
     @Override
-    public SQLite3Constant getExpectedValue() {
+    protected SQLite3Constant computeExpectedValue() {
         SQLite3Constant[] constants = new SQLite3Constant[args.length];
         for (int i = 0; i < constants.length; i++) {
             constants[i] = args[i].getExpectedValue();
@@ -35,18 +35,22 @@ public final class SQLite3StatTableGenerator {
         } else {
             StringBuilder sb = new StringBuilder();
             sb.append("INSERT OR IGNORE INTO sqlite_stat1");
-            String indexName;
+            List<String> indexNames = new ArrayList<>();
             try (Statement stat = globalState.getConnection().createStatement()) {
+                // the index is chosen by Randomly rather than by the DBMS, so that it only depends on the seed
                 try (ResultSet rs = stat
-                        .executeQuery("SELECT name FROM sqlite_master WHERE type='index' ORDER BY RANDOM() LIMIT 1;")) {
-                    if (rs.isClosed()) {
-                        throw new IgnoreMeException();
+                        .executeQuery("SELECT name FROM sqlite_master WHERE type='index' ORDER BY name;")) {
+                    while (rs.next()) {
+                        indexNames.add(rs.getString("name"));
                     }
-                    indexName = rs.getString("name");
                 }
             } catch (SQLException e) {
                 throw new IgnoreMeException();
             }
+            if (indexNames.isEmpty()) {
+                throw new IgnoreMeException();
+            }
+            String indexName = Randomly.fromList(indexNames);
             sb.append(" VALUES");
             sb.append("('");
             sb.append(globalState.getSchema().getRandomTable().getName());
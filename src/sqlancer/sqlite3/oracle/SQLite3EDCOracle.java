@@ -37,6 +37,11 @@ public class SQLite3EDCOracle extends EDCBase<SQLite3GlobalState> implements Tes
         errors.add("unable to use function MATCH in the requested context");
     }
 
+    @Override
+    protected boolean hasTypedIntegerColumns() {
+        return false; // SQLite columns can store values of any type
+    }
+
     @Override
     public Map<String, Map<String, List<String>>> obtainTableSchemas(SQLite3GlobalState state) throws SQLException {
         Map<String, Map<String, List<String>>> tableSchema = new HashMap<>();
@@ -14,6 +14,7 @@ import sqlancer.StateToReproduce.OracleRunReproductionState;
 import sqlancer.common.oracle.PivotedQuerySynthesisBase;
 import sqlancer.common.query.Query;
 import sqlancer.common.query.SQLQueryAdapter;
+import sqlancer.common.schema.AbstractRelationalTable;
 import sqlancer.sqlite3.SQLite3Errors;
 import sqlancer.sqlite3.SQLite3GlobalState;
 import sqlancer.sqlite3.SQLite3Visitor;
@@ -65,7 +66,7 @@ public class SQLite3PivotedQuerySynthesisOracle
         SQLite3Tables randomFromTables = globalState.getSchema().getRandomTableNonEmptyTables();
         List<SQLite3Table> tables = randomFromTables.getTables();
 
-        pivotRow = randomFromTables.getRandomRowValue(globalState.getConnection());
+        pivotRow = randomFromTables.getRandomRowValue(globalState);
         SQLite3Select selectStatement = new SQLite3Select();
         selectStatement.setSelectType(Randomly.fromOptions(SQLite3Select.SelectType.values()));
         List<SQLite3Column> columns = randomFromTables.getColumns();
@@ -81,6 +82,7 @@ public class SQLite3PivotedQuerySynthesisOracle
         List<SQLite3Table> allTables = new ArrayList<>();
         allTables.addAll(tables);
         allTables.addAll(joinStatements.stream().map(join -> join.getTable()).collect(Collectors.toList()));
+        AbstractRelationalTable.fetchNrRows(globalState, allTables);
         boolean allTablesContainOneRow = allTables.stream().allMatch(t -> t.getNrRows(globalState) == 1);
         boolean testAggregateFunctions = allTablesContainOneRow && globalState.getOptions().testAggregateFunctionsPQS();
         pivotRowExpression = getColExpressions(testAggregateFunctions, columnsWithoutRowid);
@@ -34,11 +34,28 @@ public class SQLite3Schema extends AbstractSchema<SQLite3GlobalState, SQLite3Tab
     public static final List<String> ROWID_STRINGS = Collections
             .unmodifiableList(Arrays.asList("rowid", "_rowid_", "oid"));
     private final List<String> indexNames;
+    private final Map<String, List<Map<SQLite3Column, SQLite3Constant>>> pivotRowSamples = new HashMap<>();
+    private long pivotRowSamplesDataVersion;
 
     public List<String> getIndexNames() {
         return indexNames;
     }
 
+    private List<Map<SQLite3Column, SQLite3Constant>> getPivotRowSample(SQLite3Tables tables,
+            SQLite3GlobalState globalState, int sampleSize) throws SQLException {
+        if (pivotRowSamplesDataVersion != globalState.getDataVersion()) {
+            pivotRowSamples.clear();
+            pivotRowSamplesDataVersion = globalState.getDataVersion();
+        }
+        String key = tables.tableNamesAsString();
+        List<Map<SQLite3Column, SQLite3Constant>> sample = pivotRowSamples.get(key);
+        if (sample == null) {
+            sample = tables.getRandomRows(globalState.getConnection(), sampleSize);
+            pivotRowSamples.put(key, sample);
+        }
+        return sample;
+    }
+
     public String getRandomIndexOrBailout() {
         if (indexNames.isEmpty()) {
             throw new IgnoreMeException();
@@ -156,35 +173,78 @@ public class SQLite3Schema extends AbstractSchema<SQLite3GlobalState, SQLite3Tab
         }
 
         public SQLite3RowValue getRandomRowValue(SQLConnection con) throws SQLException {
-            String randomRow = String.format("SELECT %s, %s FROM %s ORDER BY RANDOM() LIMIT 1", columnNamesAsString(
-                    c -> c.getTable().getName() + "." + c.getName() + " AS " + c.getTable().getName() + c.getName()),
+            List<Map<SQLite3Column, SQLite3Constant>> rows = getRandomRows(con, 1);
+            if (rows.isEmpty()) {
+                throw new IgnoreMeException();
+                // throw new AssertionError("could not find random row! " + randomRow);
+            }
+            return new SQLite3RowValue(this, rows.get(0));
+        }
+
+        /**
+         * Returns a random row of the tables' cross product. Rather than sorting the whole cross product for every
+         * pivot row, a sample of rows is fetched once per combination of tables and data version (see
+         * {@link sqlancer.GlobalState#getDataVersion()}), from which the pivot rows are drawn.
+         *
+         * @param globalState
+         *            the state whose schema contains the tables
+         *
+         * @return the row value
+         *
+         * @throws SQLException
+         *             if the connection fails
+         */
+        public SQLite3RowValue getRandomRowValue(SQLite3GlobalState globalState) throws SQLException {
+            int sampleSize = globalState.getDbmsSpecificOptions().pivotRowSampleSize;
+            if (sampleSize <= 1) {
+                return getRandomRowValue(globalState.getConnection());
+            }
+            List<Map<SQLite3Column, SQLite3Constant>> rows = globalState.getSchema().getPivotRowSample(this,
+                    globalState, sampleSize);
+            if (rows.isEmpty()) {
+                throw new IgnoreMeException();
+            }
+            return new SQLite3RowValue(this, Randomly.fromList(rows));
+        }
+
+        private List<Map<SQLite3Column, SQLite3Constant>> getRandomRows(SQLConnection con, int nrRows)
+                throws SQLException {
+            String randomRows = String.format("SELECT %s, %s FROM %s ORDER BY RANDOM() LIMIT %d",
+                    columnNamesAsString(
+                            c -> c.getTable().getName() + "." + c.getName() + " AS " + c.getTable().getName() + c.getName()),
                     columnNamesAsString(c -> "typeof(" + c.getTable().getName() + "." + c.getName() + ")"),
-                    tableNamesAsString());
-            Map<SQLite3Column, SQLite3Constant> values = new HashMap<>();
+                    tableNamesAsString(), nrRows);
+            List<Map<SQLite3Column, SQLite3Constant>> rows = new ArrayList<>();
             try (Statement s = con.createStatement()) {
                 ResultSet randomRowValues;
                 try {
-                    randomRowValues = s.executeQuery(randomRow);
+                    randomRowValues = s.executeQuery(randomRows);
                 } catch (SQLException e) {
                     throw new IgnoreMeException();
                 }
-                if (!randomRowValues.next()) {
-                    throw new IgnoreMeException();
-                    // throw new AssertionError("could not find random row! " + randomRow);
-                }
-                for (int i = 0; i < getColumns().size(); i++) {
-                    SQLite3Column column = getColumns().get(i);
-                    int columnIndex = randomRowValues.findColumn(column.getTable().getName() + column.getName());
-                    assert columnIndex == i + 1;
-                    String typeString = randomRowValues.getString(columnIndex + getColumns().size());
-                    SQLite3DataType valueType = getColumnType(typeString);
-                    SQLite3Constant constant = getConstant(randomRowValues, columnIndex, valueType);
-                    values.put(column, constant);
+                while (randomRowValues.next()) {
+                    Map<SQLite3Column, SQLite3Constant> values = new HashMap<>();
+                    try {
+                        for (int i = 0; i < getColumns().size(); i++) {
+                            SQLite3Column column = getColumns().get(i);
+                            int columnIndex = randomRowValues.findColumn(column.getTable().getName() + column.getName());
+                            assert columnIndex == i + 1;
+                            String typeString = randomRowValues.getString(columnIndex + getColumns().size());
+                            SQLite3DataType valueType = getColumnType(typeString);
+                            SQLite3Constant constant = getConstant(randomRowValues, columnIndex, valueType);
+                            values.put(column, constant);
+                        }
+                    } catch (IgnoreMeException e) {
+                        if (nrRows == 1) {
+                            throw e;
+                        }
+                        continue; // a value that the driver cannot represent, try the next row
+                    }
+                    rows.add(values);
                 }
-                assert !randomRowValues.next();
-                return new SQLite3RowValue(this, values);
+                assert rows.size() <= nrRows;
+                return rows;
             }
-
         }
 
     }
@@ -2,13 +2,13 @@ package sqlancer.tidb;
 
 import sqlancer.Randomly;
 import sqlancer.SQLConnection;
+import sqlancer.SQLConnectionPool;
+import sqlancer.common.oracle.RawDatabaseBuilder;
 import sqlancer.common.query.Query;
 import sqlancer.common.query.SQLQueryAdapter;
 import sqlancer.tidb.gen.TiDBDropIndex;
 import sqlancer.tidb.gen.TiDBIndexGenerator;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -16,9 +16,20 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 public class TiDBEDC {
 
+    private static final ExecutorService BUILD_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "sqlancer-equ-db-build");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public final TiDBProvider.TiDBGlobalState state;
     public final List<Query<?>> knownToReproduce; // record to original statements
     public final List<Query<?>> validStatements = new ArrayList<>(); // used to construct oriDB, filer out invalid statements
@@ -35,8 +46,8 @@ public class TiDBEDC {
         state.getState().logStatement("========Create RawDB========");
 
         // build connection
-        String url = String.format("jdbc:mysql://%s:%d/", state.getOptions().getHost(), state.getOptions().getPort());
-        Connection conn = DriverManager.getConnection(url, state.getOptions().getUserName(), state.getOptions().getPassword());
+        SQLConnectionPool pool = TiDBProvider.getConnectionPool(state);
+        SQLConnection conn = pool.getConnection(null);
         Statement statement = conn.createStatement();
 
         // create rawDB
@@ -48,36 +59,13 @@ public class TiDBEDC {
 
         // connect rawDB
         state.getState().logStatement("USE " + rawDB);
-        statement.execute("USE " + rawDB);
+        conn.useDatabase(rawDB);
 
         //copy all tables without view
-        for (TiDBSchema.TiDBTable table : state.getSchema().getDatabaseTablesWithoutViews()) {
-            // get create table string
-            StringBuilder createTable = new StringBuilder();
-            createTable.append("CREATE TABLE ");
-            createTable.append(table.getName());
-            createTable.append("(");
-            ResultSet resultSet = statement.executeQuery("SHOW FULL COLUMNS FROM " + state.getDatabaseName() + "." + table.getName());
-            while (resultSet.next()) {
-                createTable.append(resultSet.getString("Field")); //column name
-                createTable.append(" ").append(resultSet.getString("Type")); //column type
-                String collation = resultSet.getString("Collation");
-                if (collation != null) {
-                    createTable.append(" ").append("COLLATE").append(" ").append("\"").append(collation).append("\"");
-                }
-                createTable.append(",");
-            }
-            String createTableString = createTable.toString();
-            createTableString = createTableString.substring(0, createTableString.length() - 1); // remove the last comma
-            createTableString += ")";
-
-            // copy data
-            state.getState().logStatement(createTableString);
-            statement.execute(createTableString);
-            String equTable = String.format("INSERT INTO %s SELECT * FROM %s", table.getName(), state.getDatabaseName() + "." + table.getName());
-            state.getState().logStatement(equTable);
-            statement.execute(equTable);
-        }
+        List<String> tableNames = state.getSchema().getDatabaseTablesWithoutViews().stream()
+                .map(TiDBSchema.TiDBTable::getName).collect(Collectors.toList());
+        new RawDatabaseBuilder(pool, state.getState(), collation -> true)
+                .copyTables(conn, state.getDatabaseName(), rawDB, tableNames);
 
         // copy all views
         for (Query<?> query : knownToReproduce) {
@@ -95,7 +83,7 @@ public class TiDBEDC {
         statement.close();
 
         TiDBProvider.TiDBGlobalState rawState = new TiDBProvider.TiDBGlobalState();
-        rawState.setConnection(new SQLConnection(conn));
+        rawState.setConnection(conn);
         rawState.setDatabaseName(rawDB);
         return rawState;
     }
@@ -125,9 +113,7 @@ public class TiDBEDC {
         state.getState().logStatement("========Create EquDB_" + id + " From OriDB ========");
 
         // build connection
-        String url = String.format("jdbc:mysql://%s:%d?serverTimezone=UTC&useSSL=false&allowPublicKeyRetrieval=true",
-                state.getOptions().getHost(), state.getOptions().getPort());
-        Connection conn = DriverManager.getConnection(url, state.getOptions().getUserName(), state.getOptions().getPassword());
+        SQLConnection conn = getEquDBConnectionPool().getConnection(null);
         Statement statement = conn.createStatement();
 
         // create equDB
@@ -139,7 +125,7 @@ public class TiDBEDC {
 
         // connect equDB
         state.getState().logStatement("USE " + equDB);
-        statement.execute("USE " + equDB);
+        conn.useDatabase(equDB);
 
         if (validStatements.isEmpty()) {
             // record valid statements for further equivalent database construction
@@ -196,6 +182,140 @@ public class TiDBEDC {
             }
         }
 
+        // apply mutations
+        for (Query<?> mutation : generateMutations(statement, equDB)) {
+            try {
+                statement.execute(mutation.getQueryString());
+                state.getState().logStatement(mutation.getQueryString());
+            } catch (SQLException ignored) {
+            }
+        }
+
+        state.getState().logStatement("========Finish Create========");
+        statement.close();
+
+        TiDBProvider.TiDBGlobalState equState = new TiDBProvider.TiDBGlobalState();
+        equState.setDatabaseName(equDB);
+        equState.setConnection(conn);
+        return equState;
+    }
+
+    /**
+     * Creates the given number of equivalent databases, which are differently mutated. The first one is created by
+     * {@link #createEquDBFromOriDB(int)}, which records the valid statements and the data constraints. The mutations of
+     * the others are chosen on the calling thread, so that they only depend on the seed, and these databases are then
+     * built concurrently over pooled connections. Their statements are logged one database after another.
+     *
+     * @param count
+     *            the number of equivalent databases
+     *
+     * @return the states of the equivalent databases, which each use their own connection
+     *
+     * @throws SQLException
+     *             if an equivalent database cannot be created
+     */
+    public List<TiDBProvider.TiDBGlobalState> createEquDBsFromOriDB(int count) throws SQLException {
+        List<TiDBProvider.TiDBGlobalState> equStates = new ArrayList<>();
+        equStates.add(createEquDBFromOriDB(0));
+        List<Future<EquDBBuild>> builds = new ArrayList<>();
+        SQLException failure = null;
+        RuntimeException planningFailure = null;
+        try (Statement statement = state.getConnection().createStatement()) {
+            for (int id = 1; id < count; id++) {
+                String equDB = state.getDatabaseName() + "_equ_" + id;
+                // the equivalent databases have the same constraint names as the original one before their mutation
+                List<Query<?>> mutations = generateMutations(statement, state.getDatabaseName());
+                builds.add(BUILD_EXECUTOR.submit(() -> buildEquDB(equDB, mutations)));
+            }
+        } catch (SQLException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            planningFailure = e; // e.g., an IgnoreMeException of a mutation generator
+        }
+
+        // the submitted builds must finish before their databases can be used or dropped
+        List<EquDBBuild> builtDBs = new ArrayList<>();
+        for (Future<EquDBBuild> build : builds) {
+            try {
+                builtDBs.add(build.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = addFailure(failure, new SQLException(e));
+            } catch (ExecutionException e) {
+                failure = addFailure(failure, e.getCause() instanceof SQLException ? (SQLException) e.getCause()
+                        : new SQLException(e.getCause()));
+            }
+        }
+        if (failure != null || planningFailure != null) {
+            equStates.get(0).getConnection().close();
+            for (EquDBBuild builtDB : builtDBs) {
+                builtDB.conn.close();
+            }
+            if (planningFailure != null) {
+                throw planningFailure;
+            }
+            throw failure;
+        }
+
+        for (int i = 0; i < builtDBs.size(); i++) {
+            EquDBBuild builtDB = builtDBs.get(i);
+            state.getState().logStatement("========Create EquDB_" + (i + 1) + " From OriDB ========");
+            builtDB.executedStatements.forEach(state.getState()::logStatement);
+            state.getState().logStatement("========Finish Create========");
+            TiDBProvider.TiDBGlobalState equState = new TiDBProvider.TiDBGlobalState();
+            equState.setDatabaseName(builtDB.equDB);
+            equState.setConnection(builtDB.conn);
+            equStates.add(equState);
+        }
+        return equStates;
+    }
+
+    private static SQLException addFailure(SQLException failure, SQLException e) {
+        if (failure == null) {
+            return e;
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    private SQLConnectionPool getEquDBConnectionPool() {
+        String url = String.format("jdbc:mysql://%s:%d?serverTimezone=UTC&useSSL=false&allowPublicKeyRetrieval=true",
+                state.getOptions().getHost(), state.getOptions().getPort());
+        if (state.getOptions().useEDCBatches()) {
+            url += "&allowMultiQueries=true"; // EDC sends several queries in one request
+        }
+        return SQLConnectionPool.forEndpoint(state.getOptions(), url, state.getOptions().getUserName(),
+                state.getOptions().getPassword(), TiDBProvider.CONNECTION_DIALECT);
+    }
+
+    // runs on a build thread, so it must not use the randomness or the log of the original state
+    private EquDBBuild buildEquDB(String equDB, List<Query<?>> mutations) throws SQLException {
+        List<String> executedStatements = new ArrayList<>();
+        SQLConnection conn = getEquDBConnectionPool().getConnection(null);
+        try (Statement statement = conn.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + equDB);
+            executedStatements.add("DROP DATABASE IF EXISTS " + equDB);
+            statement.execute("CREATE DATABASE " + equDB);
+            executedStatements.add("CREATE DATABASE " + equDB);
+            conn.useDatabase(equDB);
+            executedStatements.add("USE " + equDB);
+            List<Query<?>> statements = new ArrayList<>(validStatements);
+            statements.addAll(mutations);
+            for (Query<?> query : statements) {
+                try {
+                    statement.execute(query.getQueryString());
+                    executedStatements.add(query.getQueryString());
+                } catch (SQLException ignored) {
+                }
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return new EquDBBuild(equDB, conn, executedStatements);
+    }
+
+    private List<Query<?>> generateMutations(Statement statement, String schemaName) throws SQLException {
         // record mutations
         List<Query<?>> mutationStatements = new ArrayList<>();
 
@@ -225,7 +345,7 @@ public class TiDBEDC {
                 }
                 case "CHECK":
                 case "FOREIGN KEY": {
-                    String constraintName = getRandomConstraintName(statement, equDB, tableName, constraint);
+                    String constraintName = getRandomConstraintName(statement, schemaName, tableName, constraint);
                     String alterTable = String.format("ALTER TABLE %s DROP CONSTRAINT %s", tableName, constraintName);
                     mutationStatements.add(new SQLQueryAdapter(alterTable));
                     break;
@@ -257,27 +377,23 @@ public class TiDBEDC {
         // we do not mutate data distributions, because MySQL does not support VACUUM statements
 
         // mutate configurations
-        if (!mutationStatements.isEmpty()) {
-            mutationStatements.addAll(Randomly.nonEmptySubset(mutationStatements));
+        if (!this.mutationStatements.isEmpty()) {
+            mutationStatements.addAll(Randomly.nonEmptySubset(this.mutationStatements));
         }
 
-        // apply mutations
-        for (Query<?> mutation : mutationStatements) {
-            try {
-                statement.execute(mutation.getQueryString());
-                state.getState().logStatement(mutation.getQueryString());
-            } catch (SQLException ignored) {
-            }
-        }
+        return mutationStatements;
+    }
 
-        state.getState().logStatement("========Finish Create========");
-        statement.close();
+    private static final class EquDBBuild {
+        private final String equDB;
+        private final SQLConnection conn;
+        private final List<String> executedStatements;
 
-        TiDBProvider.TiDBGlobalState equState = new TiDBProvider.TiDBGlobalState();
-        equState.setDatabaseName(equDB);
-        equState.setConnection(new SQLConnection(conn));
-        return equState;
+        EquDBBuild(String equDB, SQLConnection conn, List<String> executedStatements) {
+            this.equDB = equDB;
+            this.conn = conn;
+            this.executedStatements = executedStatements;
+        }
     }
 
-
 }
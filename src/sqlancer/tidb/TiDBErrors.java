@@ -4,10 +4,20 @@ import sqlancer.common.query.ExpectedErrors;
 
 public final class TiDBErrors {
 
+    private static final ExpectedErrors EXPRESSION_ERRORS = ExpectedErrors
+            .immutable(TiDBErrors::collectExpressionErrors);
+    private static final ExpectedErrors EXPRESSION_HAVING_ERRORS = ExpectedErrors
+            .immutable(TiDBErrors::collectExpressionHavingErrors);
+    private static final ExpectedErrors INSERT_ERRORS = ExpectedErrors.immutable(TiDBErrors::collectInsertErrors);
+
     private TiDBErrors() {
     }
 
     public static void addExpressionErrors(ExpectedErrors errors) {
+        errors.addAll(EXPRESSION_ERRORS);
+    }
+
+    private static void collectExpressionErrors(ExpectedErrors errors) {
         errors.add("Truncated incorrect");
         errors.add("DECIMAL value is out of range");
         errors.add("error parsing regexp");
@@ -53,11 +63,19 @@ public final class TiDBErrors {
     }
 
     public static void addExpressionHavingErrors(ExpectedErrors errors) {
+        errors.addAll(EXPRESSION_HAVING_ERRORS);
+    }
+
+    private static void collectExpressionHavingErrors(ExpectedErrors errors) {
         errors.add("is not in GROUP BY clause and contains nonaggregated column");
         errors.add("Unknown column");
     }
 
     public static void addInsertErrors(ExpectedErrors errors) {
+        errors.addAll(INSERT_ERRORS);
+    }
+
+    private static void collectInsertErrors(ExpectedErrors errors) {
         errors.add("Duplicate entry");
         errors.add("cannot be null");
         errors.add("doesn't have a default value");
@@ -33,6 +33,12 @@ public class TiDBOptions implements DBMSSpecificOptions<TiDBOracleFactory> {
     @Parameter(names = {"--num-schedule"}, description = "Specifies the number of schedules to be generated for a group of transactions")
     private int nrSchedules = 10;
 
+    @Parameter(names = {"--num-equivalent-databases"}, description = "Specifies the number of mutated equivalent databases that EDC compares each query on, which are built in parallel (0 to compare on the raw database only)")
+    private int nrEquivalentDatabases = 0;
+
+    @Parameter(names = {"--use-lock-wait-detection"}, description = "Specifies whether blocked transaction statements are recognized by reading the lock waits from information_schema (otherwise, by a timeout learned from the statement latencies)", arity = 1)
+    private boolean useLockWaitDetection = true;
+
     public enum TiDBOracleFactory implements OracleFactory<TiDBGlobalState> {
         EDC {
             @Override
@@ -70,4 +76,12 @@ public class TiDBOptions implements DBMSSpecificOptions<TiDBOracleFactory> {
     public int getNrSchedules() {
         return nrSchedules;
     }
+
+    public int getNrEquivalentDatabases() {
+        return nrEquivalentDatabases;
+    }
+
+    public boolean useLockWaitDetection() {
+        return useLockWaitDetection;
+    }
 }
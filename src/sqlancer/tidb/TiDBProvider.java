@@ -1,23 +1,27 @@
 package sqlancer.tidb;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Scanner;
 
 import com.google.auto.service.AutoService;
+import com.mysql.cj.jdbc.JdbcConnection;
 
 import sqlancer.AbstractAction;
 import sqlancer.DatabaseProvider;
 import sqlancer.IgnoreMeException;
 import sqlancer.MainOptions;
 import sqlancer.Randomly;
+import sqlancer.Reproducer;
 import sqlancer.SQLConnection;
+import sqlancer.SQLConnectionPool;
 import sqlancer.SQLGlobalState;
 import sqlancer.SQLProviderAdapter;
 import sqlancer.StatementExecutor;
+import sqlancer.common.oracle.DatabaseStructureIndex;
 import sqlancer.common.query.ExpectedErrors;
+import sqlancer.common.query.Query;
 import sqlancer.common.query.SQLQueryAdapter;
 import sqlancer.common.query.SQLQueryProvider;
 import sqlancer.tidb.TiDBProvider.TiDBGlobalState;
@@ -32,10 +36,25 @@ import sqlancer.tidb.gen.TiDBTableGenerator;
 import sqlancer.tidb.gen.TiDBTableGeneratorNew;
 import sqlancer.tidb.gen.TiDBUpdateGenerator;
 import sqlancer.tidb.gen.TiDBViewGenerator;
+import sqlancer.tidb.transaction.TxExecutionEngine;
+import sqlancer.tidb.transaction.TxLockWaitDetector;
 
 @AutoService(DatabaseProvider.class)
 public class TiDBProvider extends SQLProviderAdapter<TiDBGlobalState, TiDBOptions> {
 
+    static final SQLConnectionPool.Dialect CONNECTION_DIALECT = new SQLConnectionPool.Dialect() {
+
+        @Override
+        public void useDatabase(Connection connection, String databaseName) throws SQLException {
+            connection.setCatalog(databaseName); // issues a USE statement and keeps the driver's state consistent
+        }
+
+        @Override
+        public void resetSession(Connection connection) throws SQLException {
+            connection.unwrap(JdbcConnection.class).resetServerState();
+        }
+    };
+
     public TiDBProvider() {
         super(TiDBGlobalState.class, TiDBOptions.class);
     }
@@ -75,31 +94,58 @@ public class TiDBProvider extends SQLProviderAdapter<TiDBGlobalState, TiDBOption
 
     public static class TiDBGlobalState extends SQLGlobalState<TiDBOptions, TiDBSchema> {
 
+        private TxLockWaitDetector lockWaitDetector;
+        private TxExecutionEngine txExecutionEngine;
+
         @Override
         protected TiDBSchema readSchema() throws SQLException {
             return TiDBSchema.fromConnection(getConnection(), getDatabaseName());
         }
 
-        public SQLConnection createConnection() throws SQLException {
-            String host = getOptions().getHost();
-            int port = getOptions().getPort();
-            if (host == null) {
-                host = TiDBOptions.DEFAULT_HOST;
+        @Override
+        protected boolean applySchemaChange(Query<?> q, boolean success) throws SQLException {
+            if (!success) {
+                return true; // DDL statements are atomic in TiDB, so a failing statement does not change the schema
             }
-            if (port == MainOptions.NO_SET_PORT) {
-                port = TiDBOptions.DEFAULT_PORT;
+            TiDBSchema schema = getSchema().applyStatement(getConnection(), getDatabaseName(), q.getQueryString());
+            if (schema == null) {
+                return false;
             }
-            String databaseName = getDatabaseName();
-            String url = String.format("jdbc:mysql://%s:%d/%s", host, port, databaseName);
-            Connection con = DriverManager.getConnection(url, getOptions().getUserName(),
-                    getOptions().getPassword());
-            return new SQLConnection(con);
+            setSchema(schema);
+            return true;
+        }
+
+        public SQLConnection createConnection() throws SQLException {
+            return getConnectionPool(this).getConnection(getDatabaseName());
         }
 
         public boolean usesTxInfer() {
             return getDbmsSpecificOptions().oracle.stream().anyMatch(o -> o == TiDBOptions.TiDBOracleFactory.TX_INFER);
         }
 
+        // kept for all schedules of the database, so that the fallback timeout is learned from all of their statements
+        public TxLockWaitDetector getLockWaitDetector() {
+            if (lockWaitDetector == null) {
+                lockWaitDetector = new TxLockWaitDetector(getDbmsSpecificOptions().useLockWaitDetection());
+            }
+            return lockWaitDetector;
+        }
+
+        // kept for all schedules of the database, so that they reuse the worker threads and connections
+        public TxExecutionEngine getTxExecutionEngine() {
+            if (txExecutionEngine == null) {
+                txExecutionEngine = new TxExecutionEngine(this);
+            }
+            return txExecutionEngine;
+        }
+
+        public void closeTxExecutionEngine() throws SQLException {
+            if (txExecutionEngine != null) {
+                txExecutionEngine.close();
+                txExecutionEngine = null;
+            }
+        }
+
     }
 
     private static int mapActions(TiDBGlobalState globalState, Action a) {
@@ -162,8 +208,7 @@ public class TiDBProvider extends SQLProviderAdapter<TiDBGlobalState, TiDBOption
         }
     }
 
-    @Override
-    public SQLConnection createDatabase(TiDBGlobalState globalState) throws SQLException {
+    public static SQLConnectionPool getConnectionPool(TiDBGlobalState globalState) {
         String host = globalState.getOptions().getHost();
         int port = globalState.getOptions().getPort();
         if (host == null) {
@@ -172,21 +217,38 @@ public class TiDBProvider extends SQLProviderAdapter<TiDBGlobalState, TiDBOption
         if (port == MainOptions.NO_SET_PORT) {
             port = TiDBOptions.DEFAULT_PORT;
         }
+        String url = String.format("jdbc:mysql://%s:%d/", host, port);
+        if (globalState.getOptions().useEDCBatches()) {
+            url += "?allowMultiQueries=true"; // EDC sends several queries in one request
+        }
+        return SQLConnectionPool.forEndpoint(globalState.getOptions(), url, globalState.getOptions().getUserName(),
+                globalState.getOptions().getPassword(), CONNECTION_DIALECT);
+    }
 
+    @Override
+    public Reproducer<TiDBGlobalState> generateAndTestDatabase(TiDBGlobalState globalState,
+            DatabaseStructureIndex databaseStructureIndex) throws Exception {
+        try {
+            return super.generateAndTestDatabase(globalState, databaseStructureIndex);
+        } finally {
+            globalState.closeTxExecutionEngine();
+        }
+    }
+
+    @Override
+    public SQLConnection createDatabase(TiDBGlobalState globalState) throws SQLException {
         String databaseName = globalState.getDatabaseName();
-        String url = String.format("jdbc:mysql://%s:%d/", host, port);
-        Connection con = null;
+        SQLConnectionPool pool = getConnectionPool(globalState);
+        SQLConnection con = null;
         try {
-            con = DriverManager.getConnection(url, globalState.getOptions().getUserName(),
-                    globalState.getOptions().getPassword());
+            con = pool.getConnection(null);
         } catch (SQLException e) {
             Scanner scanner = new Scanner(System.in);
             System.out.println("Cannot build a connection, try to restart the database.");
             System.out.println("Press Y to continue connection.");
             String input = scanner.nextLine();
             if (input.equals("Y")) {
-                con = DriverManager.getConnection(url, globalState.getOptions().getUserName(),
-                        globalState.getOptions().getPassword());
+                con = pool.getConnection(null);
             }
             if (con != null) {
                 System.out.println("Good. Here we go.");
@@ -204,10 +266,8 @@ public class TiDBProvider extends SQLProviderAdapter<TiDBGlobalState, TiDBOption
         try (Statement s = con.createStatement()) {
             s.execute(createDatabaseCommand);
         }
-        con.close();
-        con = DriverManager.getConnection(url + databaseName, globalState.getOptions().getUserName(),
-                globalState.getOptions().getPassword());
-        return new SQLConnection(con);
+        con.useDatabase(databaseName);
+        return con;
     }
 
     @Override
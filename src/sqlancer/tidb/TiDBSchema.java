@@ -4,7 +4,14 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import sqlancer.Randomly;
 import sqlancer.SQLConnection;
@@ -288,68 +295,148 @@ public class TiDBSchema extends AbstractSchema<TiDBGlobalState, TiDBTable> {
 
     }
 
+    private static final Pattern CREATE_INDEX = Pattern
+            .compile("CREATE (UNIQUE )?INDEX (\\w+) ON (\\w+)\\((.*)\\)( KEY_BLOCK_SIZE \\d+)?;?", Pattern.DOTALL);
+    private static final Pattern DROP_INDEX = Pattern.compile("DROP INDEX (\\w+) ON (\\w+);?");
+    private static final Pattern ALTER_TABLE = Pattern.compile("ALTER TABLE (\\w+) +(.*)", Pattern.DOTALL);
+    private static final Pattern CREATE_TABLE_OR_VIEW = Pattern
+            .compile("CREATE (?:OR REPLACE )?(?:ALGORITHM=\\w+ )?(?:TABLE|VIEW) (\\w+).*", Pattern.DOTALL);
+
     public static TiDBSchema fromConnection(SQLConnection con, String databaseName) throws SQLException {
-        List<TiDBTable> databaseTables = new ArrayList<>();
-        List<String> tableNames = getTableNames(con);
-        for (String tableName : tableNames) {
-            List<TiDBColumn> databaseColumns = getTableColumns(con, tableName);
-            // Ignore invalid views
-            if (databaseColumns.isEmpty()) {
-                continue;
+        return new TiDBSchema(readTables(con, databaseName, null));
+    }
+
+    /**
+     * Applies the effect of a successfully-executed DDL statement to a copy of this schema. Indexes are added and
+     * removed without contacting the DBMS; for other statements with a known effect, only the affected table is read
+     * again.
+     *
+     * @param con
+     *            the connection to the database
+     * @param databaseName
+     *            the name of the database
+     * @param statement
+     *            the executed statement
+     *
+     * @return the updated schema, or null if the effect of the statement is unknown
+     *
+     * @throws SQLException
+     *             if reading the affected table fails
+     */
+    public TiDBSchema applyStatement(SQLConnection con, String databaseName, String statement) throws SQLException {
+        Matcher m = CREATE_INDEX.matcher(statement);
+        if (m.matches()) {
+            TiDBTable table = getDatabaseTable(m.group(3));
+            if (table == null || m.group(1) != null) {
+                // a UNIQUE index on NOT NULL columns can be reported as primary key
+                return table == null ? null : replaceTable(m.group(3), readTables(con, databaseName, m.group(3)));
             }
-            List<TableIndex> indexes = getIndexes(con, tableName);
-            boolean isView = tableName.startsWith("v");
-            TiDBTable t = new TiDBTable(tableName, databaseColumns, indexes, isView);
-            for (TiDBColumn c : databaseColumns) {
-                c.setTable(t);
+            List<TableIndex> indexes = new ArrayList<>(table.getIndexes());
+            for (int i = 0; i < countKeyParts(m.group(4)); i++) {
+                indexes.add(TableIndex.create(m.group(2))); // SHOW INDEX reports one row per key part
             }
-            databaseTables.add(t);
-
+            return replaceTable(table.getName(), List.of(copyTable(table, indexes)));
+        }
+        m = DROP_INDEX.matcher(statement);
+        if (m.matches()) {
+            TiDBTable table = getDatabaseTable(m.group(2));
+            if (table == null || m.group(1).equalsIgnoreCase("PRIMARY")) {
+                return null;
+            }
+            String indexName = m.group(1);
+            List<TableIndex> indexes = table.getIndexes().stream().filter(i -> !i.getIndexName().equals(indexName))
+                    .collect(Collectors.toList());
+            return replaceTable(table.getName(), List.of(copyTable(table, indexes)));
+        }
+        m = ALTER_TABLE.matcher(statement);
+        if (m.matches()) {
+            String action = m.group(2).trim();
+            if (action.endsWith("KEYS;") || action.startsWith("ORDER BY")) {
+                return this; // TiDB ignores ENABLE/DISABLE KEYS, and ORDER BY does not change the table definition
+            }
+            return replaceTable(m.group(1), readTables(con, databaseName, m.group(1)));
+        }
+        m = CREATE_TABLE_OR_VIEW.matcher(statement);
+        if (m.matches()) {
+            return replaceTable(m.group(1), readTables(con, databaseName, m.group(1)));
         }
-        return new TiDBSchema(databaseTables);
+        return null;
     }
 
-    private static List<String> getTableNames(SQLConnection con) throws SQLException {
-        List<String> tableNames = new ArrayList<>();
-        try (Statement s = con.createStatement()) {
-            ResultSet tableRs = s.executeQuery("SHOW TABLES");
-            while (tableRs.next()) {
-                String tableName = tableRs.getString(1);
-                tableNames.add(tableName);
+    private static int countKeyParts(String keyParts) {
+        int depth = 0;
+        int count = 1;
+        for (char c : keyParts.toCharArray()) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                count++;
             }
         }
-        return tableNames;
+        return count;
     }
 
-    private static List<TableIndex> getIndexes(SQLConnection con, String tableName) throws SQLException {
-        List<TableIndex> indexes = new ArrayList<>();
-        try (Statement s = con.createStatement()) {
-            try (ResultSet rs = s.executeQuery(String.format("SHOW INDEX FROM %s", tableName))) {
-                while (rs.next()) {
-                    String indexName = rs.getString("Key_name");
-                    indexes.add(TableIndex.create(indexName));
-                }
+    private static TiDBTable copyTable(TiDBTable table, List<TableIndex> indexes) {
+        TiDBTable copy = new TiDBTable(table.getName(), table.getColumns(), indexes, table.isView());
+        for (TiDBColumn c : table.getColumns()) {
+            c.setTable(copy);
+        }
+        return copy;
+    }
+
+    private TiDBSchema replaceTable(String tableName, List<TiDBTable> newTables) {
+        List<TiDBTable> tables = new ArrayList<>();
+        for (TiDBTable table : getDatabaseTables()) {
+            if (!table.getName().equals(tableName)) {
+                tables.add(table);
             }
         }
-        return indexes;
+        tables.addAll(newTables);
+        tables.sort(Comparator.comparing(TiDBTable::getName)); // same order as SHOW TABLES
+        return new TiDBSchema(tables);
     }
 
-    private static List<TiDBColumn> getTableColumns(SQLConnection con, String tableName) throws SQLException {
-        List<TiDBColumn> columns = new ArrayList<>();
-        try (Statement s = con.createStatement()) {
-            try (ResultSet rs = s.executeQuery("SHOW COLUMNS FROM " + tableName)) {
-                while (rs.next()) {
-                    String columnName = rs.getString("Field");
-                    String dataType = rs.getString("Type");
-                    boolean isNullable = rs.getString("Null").contentEquals("YES");
-                    boolean isPrimaryKey = rs.getString("Key").contains("PRI");
-                    TiDBColumn c = new TiDBColumn(columnName, getColumnType(dataType), isPrimaryKey, isNullable);
-                    columns.add(c);
+    /**
+     * Reads the columns and indexes of all tables (or of a single table) with a single query.
+     */
+    private static List<TiDBTable> readTables(SQLConnection con, String databaseName, String tableName)
+            throws SQLException {
+        String tableFilter = tableName == null ? "" : String.format(" AND TABLE_NAME = '%s'", tableName);
+        String query = String.format("SELECT 'c', TABLE_NAME, COLUMN_NAME, COLUMN_TYPE, IS_NULLABLE, COLUMN_KEY, "
+                + "ORDINAL_POSITION FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = '%1$s'%2$s UNION ALL "
+                + "SELECT 'i', TABLE_NAME, INDEX_NAME, NULL, NULL, NULL, SEQ_IN_INDEX FROM information_schema.STATISTICS "
+                + "WHERE TABLE_SCHEMA = '%1$s'%2$s ORDER BY 2, 1, 7", databaseName, tableFilter);
+        Map<String, List<TiDBColumn>> columns = new TreeMap<>();
+        Map<String, List<TableIndex>> indexes = new HashMap<>();
+        try (Statement s = con.createStatement(); ResultSet rs = s.executeQuery(query)) {
+            while (rs.next()) {
+                String name = rs.getString(2);
+                if (rs.getString(1).equals("c")) {
+                    String columnName = rs.getString(3);
+                    String dataType = rs.getString(4);
+                    boolean isNullable = rs.getString(5).contentEquals("YES");
+                    boolean isPrimaryKey = rs.getString(6).contains("PRI");
+                    columns.computeIfAbsent(name, n -> new ArrayList<>())
+                            .add(new TiDBColumn(columnName, getColumnType(dataType), isPrimaryKey, isNullable));
+                } else {
+                    indexes.computeIfAbsent(name, n -> new ArrayList<>()).add(TableIndex.create(rs.getString(3)));
                 }
             }
-        } catch (SQLException e) { // Happens when
         }
-        return columns;
+        List<TiDBTable> databaseTables = new ArrayList<>();
+        for (Map.Entry<String, List<TiDBColumn>> entry : columns.entrySet()) {
+            String name = entry.getKey();
+            boolean isView = name.startsWith("v");
+            TiDBTable t = new TiDBTable(name, entry.getValue(), indexes.getOrDefault(name, new ArrayList<>()),
+                    isView);
+            for (TiDBColumn c : entry.getValue()) {
+                c.setTable(t);
+            }
+            databaseTables.add(t);
+        }
+        return databaseTables;
     }
 
 }
@@ -46,8 +46,7 @@ public class TiDBTransactionProvider {
     private static final int TX_SIZE_MIN = 1;
     private static final int TX_SIZE_MAX = 5;
 
-    public static Transaction generateTransaction(TiDBGlobalState state) throws SQLException {
-        SQLConnection con = state.createConnection();
+    public static Transaction generateTransaction(TiDBGlobalState state, SQLConnection con) throws SQLException {
         Transaction tx = new Transaction(con);
 
         int stmtNum = (int) Randomly.getNotCachedInteger(TX_SIZE_MIN, TX_SIZE_MAX + 1);
@@ -35,6 +35,11 @@ public class TiDBEDCOracle extends EDCBase<TiDBProvider.TiDBGlobalState> impleme
         errors.add("Invalid regexp pattern");
     }
 
+    @Override
+    protected boolean supportsMultiStatementRequests() {
+        return true; // with allowMultiQueries, see TiDBProvider.getConnectionPool
+    }
+
     @Override
     public Map<String, Map<String, List<String>>> obtainTableSchemas(TiDBProvider.TiDBGlobalState state) throws SQLException {
         Map<String, Map<String, List<String>>> tableSchema = new HashMap<>();
@@ -204,6 +209,21 @@ public class TiDBEDCOracle extends EDCBase<TiDBProvider.TiDBGlobalState> impleme
         }
     }
 
+    @Override
+    public List<TiDBProvider.TiDBGlobalState> constructEquivalentStates(TiDBProvider.TiDBGlobalState state) {
+        int nrEquivalentDatabases = state.getDbmsSpecificOptions().getNrEquivalentDatabases();
+        if (nrEquivalentDatabases <= 0) {
+            return super.constructEquivalentStates(state);
+        }
+        try {
+            // each query exercises the differently-optimized plans of all equivalent databases in one round trip
+            TiDBEDC edc = new TiDBEDC(state);
+            return edc.createEquDBsFromOriDB(nrEquivalentDatabases);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public String generateQueryString(TiDBProvider.TiDBGlobalState state) {
         TiDBSchema.TiDBTables randomTables = state.getSchema().getRandomTableNonEmptyTables();
@@ -3,11 +3,15 @@ package sqlancer.tidb.oracle.transaction;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import sqlancer.common.query.SQLQueryAdapter;
@@ -17,326 +21,341 @@ import sqlancer.tidb.TiDBSchema.TiDBColumn;
 import sqlancer.tidb.TiDBSchema.TiDBTable;
 import sqlancer.tidb.transaction.TiDBIsolation.TiDBIsolationLevel;
 import sqlancer.tidb.transaction.QueryResultUtil;
+import sqlancer.tidb.transaction.TxDatabaseSnapshot;
 import sqlancer.tidb.transaction.TxTestExecutionResult;
 import sqlancer.tidb.transaction.Transaction;
 import sqlancer.tidb.transaction.TxSQLQueryAdapter;
 import sqlancer.tidb.transaction.TxStatement;
 import sqlancer.tidb.transaction.TxStatementExecutionResult;
 
-public class TiDBTxInfer {
+/**
+ * Infers the expected results of a schedule by replaying it on a model of multi-version concurrency control.
+ *
+ * The versions of the rows are kept in memory. A version is identified by its row ID and the statement that created
+ * it, and records the transaction that created it and whether it deletes the row. Which versions a statement sees is
+ * determined locally: a snapshot read sees the versions of the transactions that committed before its snapshot, while
+ * a read in READ COMMITTED, a locking read, and a write see all committed versions, and every statement sees the
+ * versions of its own transaction.
+ *
+ * Only the evaluation of the statements is left to the server. Therefore, the values of the versions are stored in a
+ * version table, from which the visible versions are loaded into a scratch table (a copy of the table with a row ID
+ * column), on which a write is executed. The scratch table is only reloaded if the visible versions differ from the
+ * loaded ones, and the rows that a write affects are determined by comparing the rows of the scratch table before and
+ * after it. A read is executed on a query table, which has the same columns and indexes as the table (so that the
+ * optimizer hints of the query still apply), and into which the rows of the scratch table are copied if they have
+ * changed since the last read. The tested tables themselves are not changed.
+ *
+ * The auxiliary tables are created once for all schedules of a check, from the snapshot of the tables, and are reset
+ * to the initial versions before each schedule by DML statements. The only DDL statement per schedule rewinds the
+ * AUTO_INCREMENT allocator of the scratch table of a table with an AUTO_INCREMENT column (ALTER TABLE ... FORCE
+ * AUTO_INCREMENT, which waits for the schema change like any DDL statement), or recreates the scratch table if the
+ * server cannot rewind it.
+ */
+public class TiDBTxInfer implements AutoCloseable {
 
     private static final String ROWID = "rid";
-    private static final String VERSION_TABLE = "_vt";
     private static final String VERSION_ID = "vid";
-    private static final String VERSION_IS_DELETED = "deleted";
-    private static final String VERSION_TX_ID = "txid";
+    private static final String UPDATED_BY = "upd";
+    private static final String VERSION_TABLE = "_vt";
+    private static final String QUERY_TABLE = "_q";
     private static final String TABLE_PREFIX = "_infer_";
-    
-    private final TiDBGlobalState globalState;
-    private final List<TiDBTable> tables;
-    private final TxTestExecutionResult txTestResult;
-    private final TiDBIsolationLevel isolationLevel;
-    private List<Transaction> committedTxs;
-    private Map<Transaction, List<Integer>> snapshotTxs;
+    private static final int INITIAL_VERSION_ID = 0;
+
+    private static final class RowVersion {
+
+        private final int versionId;
+        private final Transaction tx; // null for the initial versions
+        private final boolean deleted;
+        private final List<Object> values;
+
+        RowVersion(int versionId, Transaction tx, boolean deleted, List<Object> values) {
+            this.versionId = versionId;
+            this.tx = tx;
+            this.deleted = deleted;
+            this.values = values;
+        }
+    }
+
+    private static final class VersionedTable {
+
+        private final TiDBTable table;
+        private final String columnNames;
+        private final String scratchTable;
+        private final String queryTable;
+        private final String versionTable;
+        private final SortedMap<Integer, List<RowVersion>> rows = new TreeMap<>();
+        private final Map<Integer, RowVersion> initialVersions = new TreeMap<>();
+        // the versions in the scratch table, by row ID, or null if unknown
+        private Map<Integer, RowVersion> loadedVersions;
+        // the loaded versions when the scratch table was copied into the query table
+        private Map<Integer, RowVersion> queriedVersions;
+
+        VersionedTable(TiDBTable table) {
+            this.table = table;
+            this.columnNames = table.getColumns().stream().map(TiDBColumn::getName).collect(Collectors.joining(", "));
+            this.scratchTable = TABLE_PREFIX + table.getName();
+            this.queryTable = scratchTable + QUERY_TABLE;
+            this.versionTable = scratchTable + VERSION_TABLE;
+        }
+
+        void reset() {
+            rows.clear();
+            for (Map.Entry<Integer, RowVersion> initialVersion : initialVersions.entrySet()) {
+                addVersion(initialVersion.getKey(), initialVersion.getValue());
+            }
+            loadedVersions = null;
+            queriedVersions = null;
+        }
 
-    private int uniqueRowId = 1;
+        void addVersion(int rowId, RowVersion version) {
+            rows.computeIfAbsent(rowId, k -> new ArrayList<>()).add(version);
+        }
+
+        void removeVersions(Transaction tx) {
+            Iterator<List<RowVersion>> iterator = rows.values().iterator();
+            while (iterator.hasNext()) {
+                List<RowVersion> versions = iterator.next();
+                versions.removeIf(v -> v.tx == tx);
+                if (versions.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
 
-    public TiDBTxInfer(TiDBGlobalState globalState, List<Transaction> transactions, TxTestExecutionResult txTestResult,
-                       TiDBIsolationLevel isolationLevel) {
+        /**
+         * Determines the latest version of each row that a statement sees, where a row is not seen if a visible
+         * version deletes it.
+         */
+        Map<Integer, RowVersion> getVisibleVersions(Predicate<Transaction> isVisible) {
+            Map<Integer, RowVersion> visibleVersions = new TreeMap<>();
+            for (Map.Entry<Integer, List<RowVersion>> row : rows.entrySet()) {
+                RowVersion latest = null;
+                boolean deleted = false;
+                for (RowVersion version : row.getValue()) {
+                    if (version.tx != null && !isVisible.test(version.tx)) {
+                        continue;
+                    }
+                    deleted |= version.deleted;
+                    if (latest == null || version.versionId > latest.versionId) {
+                        latest = version;
+                    }
+                }
+                if (latest != null && !deleted) {
+                    visibleVersions.put(row.getKey(), latest);
+                }
+            }
+            return visibleVersions;
+        }
+    }
+
+    private final TiDBGlobalState globalState;
+    private final TxDatabaseSnapshot databaseSnapshot;
+    private final List<TiDBTable> tables;
+    private TxTestExecutionResult txTestResult;
+    private TiDBIsolationLevel isolationLevel;
+    private final List<Transaction> committedTxs = new ArrayList<>();
+    // the transactions whose versions a transaction's snapshot contains, or no entry before the snapshot is taken
+    private final Map<Transaction, Set<Transaction>> snapshots = new HashMap<>();
+    private final Map<TiDBTable, VersionedTable> versionedTables = new HashMap<>();
+
+    private int initialUniqueRowId = 1;
+    private int uniqueRowId;
+
+    /**
+     * Creates the auxiliary tables of the tables, whose initial versions are read from the snapshot.
+     *
+     * @param globalState
+     *            the state, whose connection is used
+     * @param databaseSnapshot
+     *            the snapshot of the initial state of the tables
+     *
+     * @throws SQLException
+     *             if the initial versions cannot be read
+     */
+    public TiDBTxInfer(TiDBGlobalState globalState, TxDatabaseSnapshot databaseSnapshot) throws SQLException {
         this.globalState = globalState;
+        this.databaseSnapshot = databaseSnapshot;
+        this.tables = globalState.getSchema().getDatabaseTables();
+        try {
+            for (TiDBTable table : tables) {
+                VersionedTable versionedTable = new VersionedTable(table);
+                versionedTables.put(table, versionedTable);
+                dropAuxiliaryTables(versionedTable);
+                initVersionedTable(versionedTable);
+            }
+        } catch (SQLException | AssertionError e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Infers the expected results of a schedule.
+     *
+     * @param txTestResult
+     *            the result of executing the schedule, which determines the order of the statements and whether
+     *            transactions were deadlocked
+     * @param isolationLevel
+     *            the isolation level of the transactions
+     *
+     * @return the expected result
+     *
+     * @throws SQLException
+     *             if a statement cannot be evaluated
+     */
+    public TxTestExecutionResult inferOracle(TxTestExecutionResult txTestResult, TiDBIsolationLevel isolationLevel)
+            throws SQLException {
         this.txTestResult = txTestResult;
         this.isolationLevel = isolationLevel;
-        this.committedTxs = new ArrayList<>();
-        this.snapshotTxs = new HashMap<>();
-        for (Transaction tx : transactions) {
-            snapshotTxs.put(tx, new ArrayList<>());
+        committedTxs.clear();
+        snapshots.clear();
+        uniqueRowId = initialUniqueRowId;
+        for (VersionedTable versionedTable : versionedTables.values()) {
+            resetVersionedTable(versionedTable);
         }
-        this.tables = globalState.getSchema().getDatabaseTables();
-    }
 
-    public TxTestExecutionResult inferOracle() throws SQLException {
         List<TxStatementExecutionResult> stmtExecutionResults = txTestResult.getStatementExecutionResults();
         List<TxStatementExecutionResult> stmtOracleResults = scheduleClone(stmtExecutionResults);
-        for (TiDBTable table : tables) {
-            String tableName = table.getName();
-            addRowIdColumn(tableName);
-            fillEmptyRowIds(tableName);
-            initVersionTable(tableName);
-        }
+        Map<String, List<Object>> finalStates = new HashMap<>();
         int stmtId = 0;
         for (TxStatementExecutionResult stmtResult : stmtOracleResults) {
-            Transaction curTx = stmtResult.getStatement().getTransaction();
-            analyzeStmt(stmtResult, curTx, ++stmtId);
+            analyzeStmt(stmtResult, ++stmtId);
+        }
+
+        removeDeadlockedVersions();
+        for (TiDBTable table : tables) {
+            finalStates.put(table.getName(), getDBFinalState(versionedTables.get(table)));
         }
 
         TxTestExecutionResult txOracleResult = new TxTestExecutionResult();
         txOracleResult.setIsolationLevel(isolationLevel);
         txOracleResult.setStatementExecutionResults(stmtOracleResults);
-        Map<String, List<Object>> finalStates = new HashMap<>();
-        for (TiDBTable targetTable : tables) {
-            String tableName = targetTable.getName();
-            checkDeadlock(tableName);
-            String finalTable = TABLE_PREFIX + tableName;
-            List<Object> finalState = getDBFinalState(finalTable, targetTable);
-            dropTable(finalTable);
-            finalStates.put(tableName, finalState);
-            String auxiliaryTable = TABLE_PREFIX + tableName + VERSION_TABLE;
-            dropTable(auxiliaryTable);
-        }
         txOracleResult.setDbFinalStates(finalStates);
         return txOracleResult;
     }
 
-    private void addRowIdColumn(String tableName) throws SQLException {
-        SQLQueryAdapter addColumn = new SQLQueryAdapter(
-                String.format("ALTER TABLE %s ADD COLUMN %s INT", tableName, ROWID));
-        addColumn.execute(globalState);
-    }
+    /**
+     * Creates the scratch table, the query table, which lacks the row ID columns, and the version table, which lacks
+     * the keys of the table, since a row can have several versions. Then, the initial rows are numbered in the order
+     * in which the table stores them and stored as the initial versions.
+     */
+    private void initVersionedTable(VersionedTable versionedTable) throws SQLException {
+        String tableName = versionedTable.table.getName();
+        createScratchTable(versionedTable);
+        execute(String.format("CREATE TABLE %s LIKE %s", versionedTable.queryTable,
+                databaseSnapshot.getShadowTable(tableName)));
 
-    private List<Integer> fillEmptyRowIds(String tableName) throws SQLException {
-        List<Integer> rowIds = new ArrayList<>();
-        while (true) {
-            String updateRowId = String.format("UPDATE %s SET %s = %d WHERE %s IS NULL LIMIT 1",
-                    tableName, ROWID, uniqueRowId, ROWID);
-            Statement statement = globalState.getConnection().createStatement();
-            int ret = statement.executeUpdate(updateRowId);
-            statement.close();
-            if (ret == 1) {
-                rowIds.add(uniqueRowId);
-                uniqueRowId++;
+        String createTableSql = "";
+        SQLQueryAdapter showTableAdapter = new SQLQueryAdapter(String.format("SHOW CREATE TABLE %s", tableName));
+        try (SQLancerResultSet tableResult = showTableAdapter.executeAndGet(globalState)) {
+            if (tableResult.next()) {
+                createTableSql = tableResult.getRs().getString("Create Table");
             }
-            if (ret == 0) {
-                break;
+        }
+        List<String> columnDefinitions = new ArrayList<>();
+        for (String line : createTableSql.split("\n")) {
+            String definition = line.trim();
+            if (definition.startsWith("`")) { // only the columns, the keys and table options start otherwise
+                if (definition.endsWith(",")) {
+                    definition = definition.substring(0, definition.length() - 1);
+                }
+                columnDefinitions.add(definition.replace(" AUTO_INCREMENT", ""));
             }
         }
-        return rowIds;
+        columnDefinitions.add(ROWID + " INT");
+        columnDefinitions.add(VERSION_ID + " INT");
+        execute(String.format("CREATE TABLE %s (%s)", versionedTable.versionTable,
+                String.join(", ", columnDefinitions)));
+
+        String rowOrder = databaseSnapshot.getRowOrder(tableName);
+        execute(String.format("INSERT INTO %s (%s, %s, %s) SELECT %s, ROW_NUMBER() OVER (%s), %d FROM %s %s",
+                versionedTable.versionTable, versionedTable.columnNames, ROWID, VERSION_ID,
+                versionedTable.columnNames, rowOrder, INITIAL_VERSION_ID, databaseSnapshot.getShadowTable(tableName),
+                rowOrder));
+        Map<Integer, List<Object>> initialRows = readRows(String.format("SELECT %s, %s FROM %s",
+                versionedTable.columnNames, ROWID, versionedTable.versionTable),
+                versionedTable.table.getColumns().size(), 0);
+        for (Map.Entry<Integer, List<Object>> row : initialRows.entrySet()) {
+            versionedTable.initialVersions.put(row.getKey(),
+                    new RowVersion(INITIAL_VERSION_ID, null, false, row.getValue()));
+            initialUniqueRowId = Math.max(initialUniqueRowId, row.getKey() + 1);
+        }
     }
 
-    private void initVersionTable(String tableName) throws SQLException {
-        String auxiliaryVersionTable = TABLE_PREFIX + tableName + VERSION_TABLE;
-        dropTable(auxiliaryVersionTable);
-        createVersionTable(tableName);
-        SQLQueryAdapter insertVersionAdapter = new SQLQueryAdapter(
-                String.format("INSERT INTO %s SELECT * FROM %s",
-                        auxiliaryVersionTable, tableName));
-        insertVersionAdapter.execute(globalState);
-        SQLQueryAdapter addColumnAdapter = new SQLQueryAdapter(
-                String.format("ALTER TABLE %s ADD COLUMN %s INT, ADD COLUMN %s INT DEFAULT 0, " +
-                                "ADD COLUMN %s INT DEFAULT 0", auxiliaryVersionTable, VERSION_ID, VERSION_IS_DELETED,
-                        VERSION_TX_ID));
-        addColumnAdapter.execute(globalState);
-        SQLQueryAdapter updateVTAdapter = new SQLQueryAdapter(
-                String.format("UPDATE %s SET %s = 0", auxiliaryVersionTable, VERSION_ID));
-        updateVTAdapter.execute(globalState);
+    private void createScratchTable(VersionedTable versionedTable) {
+        execute(String.format("CREATE TABLE %s LIKE %s", versionedTable.scratchTable,
+                databaseSnapshot.getShadowTable(versionedTable.table.getName())));
+        execute(String.format("ALTER TABLE %s ADD COLUMN %s INT, ADD COLUMN %s INT", versionedTable.scratchTable,
+                ROWID, UPDATED_BY));
     }
 
-    private void createVersionTable(String tableName) throws SQLException {
-        String auxiliaryVersionTable = TABLE_PREFIX + tableName + VERSION_TABLE;
-        // MySQL supports "CREATE TABLE ... SELECT"
-        // TransactionStatementAdapter initVersionTable = new TransactionStatementAdapter(
-        //     String.format("CREATE TABLE %s AS SELECT * FROM %s", VERSION_TABLE, table.getName()), true);
-        // initVersionTable.execute(state.getConnection());
-
-        // TiDB does not support "CREATE TABLE ... SELECT"
-        String createTableSql = "";
-        SQLQueryAdapter showTableAdapter = new SQLQueryAdapter(String.format("SHOW CREATE TABLE %s", tableName), true);
-        SQLancerResultSet tableResult = showTableAdapter.executeAndGet(globalState);
-        if (tableResult.next()) {
-            createTableSql = tableResult.getRs().getString("Create Table");
-        }
-
-        // drop PRIMARY KEY and UNIQUE KEY
-        String[] initElements = createTableSql.split(",");
-        List<String> createVTElements = new ArrayList<>();
-        Collections.addAll(createVTElements, initElements);
-        Iterator<String> iterator = createVTElements.iterator();
-        int ridIndex = -1;
-        boolean isLastElement = false;
-        while (iterator.hasNext()) {
-            String element = iterator.next();
-            if (element.contains(ROWID)) {
-                ridIndex = createVTElements.indexOf(element);
-                if (ridIndex == (createVTElements.size() - 1)) {
-                    isLastElement = true;
-                }
-            }
-            if ((ridIndex != -1) && (createVTElements.indexOf(element) > ridIndex)) {
-                iterator.remove();
-            }
-        }
-        createTableSql = String.join(",", createVTElements);
-        if (!isLastElement) {
-            createTableSql += ")";
+    /**
+     * Removes the versions of the previous schedule, and empties the scratch table, whose AUTO_INCREMENT allocator is
+     * rewound like the one of the restored table. The rewind is a DDL statement, but only for a table with an
+     * AUTO_INCREMENT column.
+     */
+    private void resetVersionedTable(VersionedTable versionedTable) throws SQLException {
+        versionedTable.reset();
+        execute(String.format("DELETE FROM %s WHERE %s <> %d", versionedTable.versionTable, VERSION_ID,
+                INITIAL_VERSION_ID));
+        execute(String.format("DELETE FROM %s", versionedTable.scratchTable));
+        if (!databaseSnapshot.rewindAutoId(versionedTable.table.getName(), versionedTable.scratchTable)) {
+            execute(String.format("DROP TABLE %s", versionedTable.scratchTable));
+            createScratchTable(versionedTable);
         }
-        createTableSql = createTableSql.replace("\n", "").
-                replace("CREATE TABLE `" + tableName + "`", "CREATE TABLE `" + auxiliaryVersionTable + "`");
-        SQLQueryAdapter createVTAdapter = new SQLQueryAdapter(createTableSql, true);
-        createVTAdapter.execute(globalState);
     }
 
-    private void analyzeStmt(TxStatementExecutionResult stmtResult, Transaction curTx, int stmtId) throws SQLException {
+    private void analyzeStmt(TxStatementExecutionResult stmtResult, int stmtId) throws SQLException {
         TxStatement stmt = stmtResult.getStatement();
-        String auxiliaryPrefix = TABLE_PREFIX + stmt.getTransaction().getId() + "_" + stmtId;
+        Transaction curTx = stmt.getTransaction();
         if (stmt.getType() == TxStatement.StatementType.BEGIN) {
             createSnapshot(curTx);
         } else if (stmt.getType() == TxStatement.StatementType.COMMIT) {
             committedTxs.add(curTx);
         } else if (stmt.getType() == TxStatement.StatementType.ROLLBACK) {
-            for (TiDBTable table : tables) {
-                String tableName = table.getName();
-                String auxiliaryVersionTable = TABLE_PREFIX + tableName + VERSION_TABLE;
-                SQLQueryAdapter sql = new SQLQueryAdapter(String.format("DELETE FROM %s WHERE %s = %d",
-                        auxiliaryVersionTable, VERSION_TX_ID, curTx.getId()));
-                sql.execute(globalState);
+            for (VersionedTable versionedTable : versionedTables.values()) {
+                versionedTable.removeVersions(curTx);
             }
             committedTxs.add(curTx);
         } else if (stmt.getType() == TxStatement.StatementType.SELECT
                 || stmt.getType() == TxStatement.StatementType.SELECT_FOR_UPDATE) {
             List<TiDBTable> targetTables = getTargetTables(stmt.getTxQueryAdapter().getQueryString());
-            List<String> targetTableNames = new ArrayList<>();
+            boolean isCurrentRead = isolationLevel == TiDBIsolationLevel.READ_COMMITTED
+                    || stmt.getType() == TxStatement.StatementType.SELECT_FOR_UPDATE;
+            Predicate<Transaction> isVisible = isCurrentRead ? getCommittedVisibility(curTx)
+                    : getSnapshotVisibility(curTx);
             for (TiDBTable targetTable : targetTables) {
-                targetTableNames.add(targetTable.getName());
-                String auxiliaryTableName = auxiliaryPrefix + "_" + targetTable.getName();
-                if (isolationLevel == TiDBIsolationLevel.READ_COMMITTED
-                        || stmt.getType() == TxStatement.StatementType.SELECT_FOR_UPDATE) {
-                    readCommittedVersion(auxiliaryTableName, curTx, targetTable);
-                } else {
-                    readSnapshotVersion(auxiliaryTableName, curTx, targetTable);
-                    // MySQL and MariaDB
-                    if (snapshotTxs.get(curTx).isEmpty()) {
-                        createSnapshot(curTx);
-                    }
-                }
+                VersionedTable versionedTable = versionedTables.get(targetTable);
+                load(versionedTable, versionedTable.getVisibleVersions(isVisible));
             }
-            stmtResult.setResult(selectExecuteOnView(stmtResult, auxiliaryPrefix, targetTableNames));
-            queryWarningInfo(stmtResult, auxiliaryPrefix, targetTableNames);
-            for (String targetTableName : targetTableNames) {
-                String auxiliaryTableName = auxiliaryPrefix + "_" + targetTableName;
-                dropTable(auxiliaryTableName);
+            // MySQL and MariaDB
+            if (!isCurrentRead && !snapshots.containsKey(curTx)) {
+                createSnapshot(curTx);
             }
+            executeSelect(stmtResult, targetTables);
         } else {
-            TiDBTable targetTable = getTargetTable(stmt.getTxQueryAdapter().getQueryString());
-            String auxiliaryTableName = auxiliaryPrefix + "_" + targetTable.getName();
-            // MySQL
-            // readLatestVersion(auxiliaryTable);
-            // TiDB
-            readCommittedVersion(auxiliaryTableName, curTx, targetTable);
-            if (stmt.getType() == TxStatement.StatementType.REPLACE) {
-                inferReplaceStmt(stmtResult, auxiliaryPrefix, stmtId);
-            } else {
-                List<Integer> affectedRowIds = affectRowOnView(stmtResult, auxiliaryPrefix);
-                updateVersionTable(stmtResult, auxiliaryPrefix, stmtId, affectedRowIds);
-            }
-            dropTable(auxiliaryTableName);
-        }
-    }
-
-    private void checkDeadlock(String tableName) throws SQLException {
-        String auxiliaryVersionTable = TABLE_PREFIX + tableName + VERSION_TABLE;
-        for (TxStatementExecutionResult stmtResult : txTestResult.getStatementExecutionResults()) {
-            if (stmtResult.reportDeadlock()) {
-                int txId = stmtResult.getStatement().getTransaction().getId();
-                SQLQueryAdapter sql = new SQLQueryAdapter(
-                        String.format("DELETE FROM %s WHERE %s = %d", auxiliaryVersionTable, VERSION_TX_ID, txId));
-                sql.execute(globalState);
-            }
+            VersionedTable versionedTable = versionedTables
+                    .get(getTargetTable(stmt.getTxQueryAdapter().getQueryString()));
+            // TiDB writes the latest committed versions (MySQL would write the latest versions)
+            load(versionedTable, versionedTable.getVisibleVersions(getCommittedVisibility(curTx)));
+            executeWrite(stmtResult, versionedTable, stmtId);
         }
     }
 
-    private List<Object> getDBFinalState(String auxiliaryTable, TiDBTable targetTable) throws SQLException {
-        dropTable(auxiliaryTable);
-        readLatestVersion(auxiliaryTable, targetTable);
-        dropRowIdColumn(auxiliaryTable);
-        SQLQueryAdapter queryTableAdapter = new SQLQueryAdapter("SELECT * FROM " + auxiliaryTable);
-        List<Object> tableState = QueryResultUtil.getQueryResult(queryTableAdapter.executeAndGet(globalState));
-        return tableState;
-    }
-
-    private void readLatestVersion(String auxiliaryTable, TiDBTable targetTable) throws SQLException {
-        createTableLike(auxiliaryTable, targetTable.getName());
-        String auxiliaryVersionTable = TABLE_PREFIX + targetTable.getName() + VERSION_TABLE;
-
-        SQLQueryAdapter queryRids = new SQLQueryAdapter(
-                String.format("SELECT DISTINCT %s FROM %s WHERE %s NOT IN (SELECT %s FROM %s WHERE %s = 1)",
-                        ROWID, auxiliaryVersionTable, ROWID, ROWID, auxiliaryVersionTable, VERSION_IS_DELETED));
-        List<Integer> visibleRowIds = getRowIds(queryRids);
-
-        List<String> viewColumns = new ArrayList<>();
-        for (TiDBColumn tableColumn : targetTable.getColumns()) {
-            viewColumns.add(tableColumn.getName());
-        }
-        viewColumns.add(ROWID);
-        String columnNames = String.join(", ", viewColumns);
-        for (int rowId : visibleRowIds) {
-            SQLQueryAdapter insertVersionAdapter = new SQLQueryAdapter(
-                    String.format("INSERT INTO %s SELECT %s FROM %s WHERE %s = %d ORDER BY %s DESC LIMIT 1",
-                            auxiliaryTable, columnNames, auxiliaryVersionTable, ROWID, rowId, VERSION_ID));
-            insertVersionAdapter.execute(globalState);
-        }
-    }
-
-    private void readSpecificVersion(String auxiliaryTable, List<String> selectTxId, TiDBTable targetTable)
+    private void executeSelect(TxStatementExecutionResult stmtResult, List<TiDBTable> targetTables)
             throws SQLException {
-        createTableLike(auxiliaryTable, targetTable.getName());
-        String auxiliaryVersionTable = TABLE_PREFIX + targetTable.getName() + VERSION_TABLE;
-
-        String selectTxIdName = String.join(", ", selectTxId);
-        SQLQueryAdapter queryRids = new SQLQueryAdapter(
-                String.format("SELECT DISTINCT %s FROM %s WHERE %s NOT IN (SELECT %s FROM %s WHERE %s = 1 AND %s IN (%s))",
-                        ROWID, auxiliaryVersionTable, ROWID, ROWID, auxiliaryVersionTable,
-                        VERSION_IS_DELETED, VERSION_TX_ID, selectTxIdName));
-        List<Integer> visibleRowIds = getRowIds(queryRids);
-
-        List<String> viewColumns = new ArrayList<>();
-        for (TiDBColumn tableColumn : targetTable.getColumns()) {
-            viewColumns.add(tableColumn.getName());
-        }
-        viewColumns.add(ROWID);
-        String columnNames = String.join(", ", viewColumns);
-
-        String insertVersionSql;
-        for (int rowId : visibleRowIds) {
-            insertVersionSql = String.format("INSERT INTO %s SELECT %s FROM %s WHERE %s = %d AND %s IN (%s) ORDER BY %s DESC LIMIT 1",
-                    auxiliaryTable, columnNames, auxiliaryVersionTable, ROWID, rowId,
-                    VERSION_TX_ID, selectTxIdName, VERSION_ID);
-            SQLQueryAdapter insertVersionAdapter = new SQLQueryAdapter(insertVersionSql);
-            insertVersionAdapter.execute(globalState);
-        }
-    }
-
-    private void readCommittedVersion(String auxiliaryTable, Transaction curTx, TiDBTable targetTable) throws SQLException {
-        List<String> selectTxId = new ArrayList<>();
-        selectTxId.add("0");
-        selectTxId.add(String.valueOf(curTx.getId()));
-        for (Transaction committedTx : committedTxs) {
-            selectTxId.add(String.valueOf(committedTx.getId()));
-        }
-
-        readSpecificVersion(auxiliaryTable, selectTxId, targetTable);
-    }
-
-    private void readSnapshotVersion(String auxiliaryTable, Transaction curTx, TiDBTable targetTable) throws SQLException {
-        List<String> selectTxId = new ArrayList<>();
-        selectTxId.add("0");
-        selectTxId.add(String.valueOf(curTx.getId()));
-        for (Transaction committedTx : committedTxs) {
-            int committedTxId = committedTx.getId();
-            if (snapshotTxs.get(curTx).isEmpty() || snapshotTxs.get(curTx).contains(committedTxId)) {
-                selectTxId.add(String.valueOf(committedTxId));
-            }
-        }
-
-        readSpecificVersion(auxiliaryTable, selectTxId, targetTable);
-    }
-
-    private List<Object> selectExecuteOnView(TxStatementExecutionResult stmtResult, String auxiliaryPrefix,
-                                             List<String> targetTableNames) throws SQLException {
         TxSQLQueryAdapter initSelectAdapter = stmtResult.getStatement().getTxQueryAdapter();
-        String selectStmt = initSelectAdapter.getQueryString();
-        for (String targetTableName : targetTableNames) {
-            String auxiliaryTable = auxiliaryPrefix + "_" + targetTableName;
-            dropRowIdColumn(auxiliaryTable);
-            selectStmt = selectStmt.replace(targetTableName, auxiliaryTable);
+        // the model is executed without concurrent transactions, so the rows need not be locked
+        String selectStmt = initSelectAdapter.getUnterminatedQueryString();
+        if (selectStmt.endsWith(" FOR UPDATE")) {
+            selectStmt = selectStmt.substring(0, selectStmt.length() - " FOR UPDATE".length());
+        }
+        List<String> targetTableNames = new ArrayList<>();
+        for (TiDBTable targetTable : targetTables) {
+            VersionedTable versionedTable = versionedTables.get(targetTable);
+            copyToQueryTable(versionedTable);
+            targetTableNames.add(targetTable.getName());
+            selectStmt = selectStmt.replace(targetTable.getName(), versionedTable.queryTable);
         }
 
         TxSQLQueryAdapter selectAdapter = new TxSQLQueryAdapter(selectStmt, initSelectAdapter.getExpectedErrors());
@@ -344,266 +363,204 @@ public class TiDBTxInfer {
         try {
             queryResult = selectAdapter.executeAndGet(globalState, true);
         } catch (SQLException e) {
-            String errorInfo = e.getMessage();
-            for (String targetTableName : targetTableNames) {
-                String auxiliaryTable = auxiliaryPrefix + "_" + targetTableName;
-                errorInfo = errorInfo.replace(auxiliaryTable, targetTableName);
-            }
-            stmtResult.setErrorInfo(errorInfo);
+            stmtResult.setErrorInfo(restoreTableNames(e.getMessage(), targetTableNames));
         }
-        return QueryResultUtil.getQueryResult(queryResult);
+        stmtResult.setResult(QueryResultUtil.getQueryResult(queryResult));
+        queryWarningInfo(stmtResult, targetTableNames);
     }
 
-    private void inferReplaceStmt(TxStatementExecutionResult stmtResult, String auxiliaryPrefix, int stmtId)
+    /**
+     * Executes a write on the scratch table and records a new version of each row that it inserted, updated, or
+     * deleted.
+     */
+    private void executeWrite(TxStatementExecutionResult stmtResult, VersionedTable versionedTable, int stmtId)
             throws SQLException {
-        // support REPLACE statement
         TxStatement stmt = stmtResult.getStatement();
-        String sql = stmt.getTxQueryAdapter().getQueryString();
-        TiDBTable targetTable = getTargetTable(sql);
-        String targetTableName = targetTable.getName();
-        String auxiliaryTable = auxiliaryPrefix + "_" + targetTableName;
-        sql = sql.replace(targetTableName, auxiliaryTable);
-
-        int columnIndex = sql.indexOf(auxiliaryTable) + auxiliaryTable.length();
-        if (!sql.substring(columnIndex, columnIndex + 1).equals("(")) {
-            String beforeStr = sql.substring(0, columnIndex);
-            String afterStr = sql.substring(columnIndex);
-            List<String> columns = new ArrayList<>();
-            for (TiDBColumn tableColumn : targetTable.getColumns()) {
-                columns.add(tableColumn.getName());
+        String targetTableName = versionedTable.table.getName();
+        String sql = stmt.getTxQueryAdapter().getQueryString().replace(targetTableName, versionedTable.scratchTable);
+        if (stmt.getType() == TxStatement.StatementType.UPDATE) {
+            // marks the matched rows, which get a new version even if their values do not change
+            String setUpdated = String.format(", %s = %d", UPDATED_BY, stmtId);
+            int whereId = sql.indexOf(" WHERE");
+            if (whereId != -1) {
+                sql = sql.substring(0, whereId) + setUpdated + sql.substring(whereId);
+            } else {
+                sql = sql.replaceAll(";$", "") + setUpdated;
+            }
+        } else if (stmt.getType() != TxStatement.StatementType.DELETE) {
+            // Handle INSERT without specified columns `INSERT INTO t VALUES()`
+            int columnIndex = sql.indexOf(versionedTable.scratchTable) + versionedTable.scratchTable.length();
+            if (!sql.substring(columnIndex, columnIndex + 1).equals("(")) {
+                sql = sql.substring(0, columnIndex) + "(" + versionedTable.columnNames + ")"
+                        + sql.substring(columnIndex);
             }
-            String columnNames = String.join(", ", columns);
-            sql = beforeStr + "(" + columnNames + ")" + afterStr;
         }
 
-        SQLQueryAdapter queryRids = new SQLQueryAdapter(String.format("SELECT %s FROM %s", ROWID, auxiliaryTable));
-        List<Integer> replaceBeforeRowIds = getRowIds(queryRids);
-        TxSQLQueryAdapter replaceStmt = new TxSQLQueryAdapter(sql, stmt.getTxQueryAdapter().getExpectedErrors());
-        executeTxStatement(stmtResult, replaceStmt, auxiliaryPrefix, targetTableName);
-        List<Integer> replaceAfterRowIds = getRowIds(queryRids);
-
-        List<Integer> deleteRowIds = new ArrayList<>();
-        for (int rid : replaceBeforeRowIds) {
-            if (!replaceAfterRowIds.contains(rid)) {
-                deleteRowIds.add(rid);
-            }
+        TxSQLQueryAdapter writeStmt = new TxSQLQueryAdapter(sql, stmt.getTxQueryAdapter().getExpectedErrors());
+        try {
+            writeStmt.execute(globalState, true);
+        } catch (SQLException e) {
+            stmtResult.setErrorInfo(restoreTableNames(e.getMessage(), List.of(targetTableName)));
+        }
+        queryWarningInfo(stmtResult, List.of(targetTableName));
+        if (stmtResult.reportError()) {
+            return; // a failing statement does not change any row
         }
-        List<Integer> newRowIds = fillEmptyRowIds(auxiliaryTable);
 
-        if (!deleteRowIds.isEmpty() || !newRowIds.isEmpty()) {
-            String auxiliaryReplaceTable = TABLE_PREFIX + targetTableName + "_replace";
-            readCommittedVersion(auxiliaryReplaceTable, stmt.getTransaction(), targetTable);
+        // Handle INSERT multiple rows `INSERT INTO t() VALUES(), ()`, and REPLACE, which inserts the replaced rows
+        while (execute(String.format("UPDATE %s SET %s = %d WHERE %s IS NULL LIMIT 1", versionedTable.scratchTable,
+                ROWID, uniqueRowId, ROWID)) == 1) {
+            uniqueRowId++;
+        }
+        int nrColumns = versionedTable.table.getColumns().size();
+        Map<Integer, List<Object>> rowsAfter = readRows(String.format("SELECT %s, %s, %s FROM %s",
+                versionedTable.columnNames, ROWID, UPDATED_BY, versionedTable.scratchTable), nrColumns, 1);
 
-            String auxiliaryVersionTable = TABLE_PREFIX + targetTableName + VERSION_TABLE;
-            List<String> viewColumns = new ArrayList<>();
-            for (TiDBColumn col : targetTable.getColumns()) {
-                viewColumns.add(col.getName());
+        Map<Integer, RowVersion> rowsBefore = versionedTable.loadedVersions;
+        Map<Integer, RowVersion> rowsLoaded = new TreeMap<>();
+        List<Integer> writtenRowIds = new ArrayList<>();
+        for (Map.Entry<Integer, RowVersion> row : rowsBefore.entrySet()) {
+            if (!rowsAfter.containsKey(row.getKey())) {
+                versionedTable.addVersion(row.getKey(), new RowVersion(stmtId, stmt.getTransaction(), true, null));
             }
-            viewColumns.add(ROWID);
-            String columnNames = String.join(", ", viewColumns);
-            for (int rowId : deleteRowIds) {
-                SQLQueryAdapter insertVersionTable = new SQLQueryAdapter(
-                        String.format("INSERT INTO %s (%s) SELECT * FROM %s WHERE %s = %d", auxiliaryVersionTable,
-                                columnNames, auxiliaryReplaceTable, ROWID, rowId));
-                insertVersionTable.execute(globalState);
-            }
-            SQLQueryAdapter updateVersion = new SQLQueryAdapter(
-                    String.format("UPDATE %s SET %s = %d, %s = %d, %s = %d WHERE %s IS NULL", auxiliaryVersionTable,
-                            VERSION_ID, stmtId, VERSION_IS_DELETED, 1, VERSION_TX_ID,
-                            stmt.getTransaction().getId(), VERSION_ID));
-            updateVersion.execute(globalState);
-            dropTable(auxiliaryReplaceTable);
-
-            for (int rowId : newRowIds) {
-                SQLQueryAdapter insertVersionTable = new SQLQueryAdapter(
-                        String.format("INSERT INTO %s (%s) SELECT * FROM %s WHERE %s = %d", auxiliaryVersionTable,
-                                columnNames, auxiliaryTable, ROWID, rowId));
-                insertVersionTable.execute(globalState);
+        }
+        for (Map.Entry<Integer, List<Object>> row : rowsAfter.entrySet()) {
+            RowVersion before = rowsBefore.get(row.getKey());
+            List<Object> values = row.getValue().subList(0, nrColumns);
+            boolean isMatched = String.valueOf(stmtId).equals(String.valueOf(row.getValue().get(nrColumns)));
+            if (before == null || isMatched || !before.values.equals(values)) {
+                RowVersion version = new RowVersion(stmtId, stmt.getTransaction(), false, values);
+                versionedTable.addVersion(row.getKey(), version);
+                rowsLoaded.put(row.getKey(), version);
+                writtenRowIds.add(row.getKey());
+            } else {
+                rowsLoaded.put(row.getKey(), before);
             }
-            updateVersion = new SQLQueryAdapter(
-                    String.format("UPDATE %s SET %s = %d, %s = %d, %s = %d WHERE %s IS NULL", auxiliaryVersionTable,
-                            VERSION_ID, stmtId, VERSION_IS_DELETED, 0, VERSION_TX_ID,
-                            stmtResult.getStatement().getTransaction().getId(), VERSION_ID));
-            updateVersion.execute(globalState);
+        }
+        versionedTable.loadedVersions = rowsLoaded;
+        if (!writtenRowIds.isEmpty()) {
+            execute(String.format("INSERT INTO %s (%s, %s, %s) SELECT %s, %s, %d FROM %s WHERE %s IN (%s)",
+                    versionedTable.versionTable, versionedTable.columnNames, ROWID, VERSION_ID,
+                    versionedTable.columnNames, ROWID, stmtId, versionedTable.scratchTable, ROWID,
+                    writtenRowIds.stream().map(String::valueOf).collect(Collectors.joining(", "))));
         }
     }
 
-    private List<Integer> affectRowOnView(TxStatementExecutionResult stmtResult, String auxiliaryPrefix) throws SQLException {
-        List<Integer> affectedRowIds;
-        TxStatement stmt = stmtResult.getStatement();
-        String sql = stmt.getTxQueryAdapter().getQueryString();
-        TiDBTable targetTable = getTargetTable(sql);
-        String targetTableName = targetTable.getName();
-        String auxiliaryTable = auxiliaryPrefix + "_" + targetTableName;
-        sql = sql.replace(targetTableName, auxiliaryTable);
-
-        if (stmt.getType() == TxStatement.StatementType.UPDATE) {
-            String updatedColumn = "updated";
-            SQLQueryAdapter addColumnUpdated = new SQLQueryAdapter(
-                    String.format("ALTER TABLE %s ADD COLUMN %s INT DEFAULT 0", auxiliaryTable, updatedColumn));
-            addColumnUpdated.execute(globalState);
-            String setUpdated = String.format(", %s = 1", updatedColumn);
-            if (sql.contains("WHERE")) {
-                int whereId = sql.indexOf(" WHERE");
-                String updateSql = sql.substring(0, whereId) + setUpdated;
-                sql = updateSql + sql.substring(whereId);
-            } else {
-                sql = sql.replaceAll(";", setUpdated + ";");
-            }
-            TxSQLQueryAdapter updateStmt = new TxSQLQueryAdapter(sql,
-                    stmtResult.getStatement().getTxQueryAdapter().getExpectedErrors());
-            executeTxStatement(stmtResult, updateStmt, auxiliaryPrefix, targetTableName);
-            SQLQueryAdapter selectUpdatedRids = new SQLQueryAdapter(
-                    String.format("SELECT %s FROM %s WHERE %s = 1", ROWID, auxiliaryTable, updatedColumn));
-            affectedRowIds = getRowIds(selectUpdatedRids);
-            SQLQueryAdapter dropColumnUpdated = new SQLQueryAdapter(
-                    String.format("ALTER TABLE %s DROP COLUMN %s", auxiliaryTable, updatedColumn));
-            dropColumnUpdated.execute(globalState);
-        } else if (stmt.getType() == TxStatement.StatementType.DELETE) {
-            SQLQueryAdapter queryRids = new SQLQueryAdapter(String.format("SELECT %s FROM %s", ROWID, auxiliaryTable));
-            affectedRowIds = getRowIds(queryRids);
-
-            TxSQLQueryAdapter deleteStmt = new TxSQLQueryAdapter(sql, stmt.getTxQueryAdapter().getExpectedErrors());
-            executeTxStatement(stmtResult, deleteStmt, auxiliaryPrefix, targetTableName);
-
-            if (!stmtResult.reportError()) {
-                List<Integer> resRowIds = getRowIds(queryRids);
-                affectedRowIds.removeAll(resRowIds);
-            } else {
-                affectedRowIds.clear();
-            }
-            readCommittedVersion(auxiliaryTable, stmt.getTransaction(), targetTable);
-        } else {
-            int columnIndex = sql.indexOf(auxiliaryTable) + auxiliaryTable.length();
+    /**
+     * Fills the scratch table with the given versions, unless it already holds them.
+     */
+    private void load(VersionedTable versionedTable, Map<Integer, RowVersion> versions) throws SQLException {
+        if (versions.equals(versionedTable.loadedVersions)) {
+            return;
+        }
+        versionedTable.loadedVersions = null;
+        execute(String.format("DELETE FROM %s", versionedTable.scratchTable));
+        if (!versions.isEmpty()) {
+            // in the order of the row IDs, so that a table without a primary key keeps the order of the rows
+            String versionIds = versions.entrySet().stream()
+                    .map(v -> String.format("(%d, %d)", v.getKey(), v.getValue().versionId))
+                    .collect(Collectors.joining(", "));
+            execute(String.format("INSERT INTO %s (%s, %s) SELECT %s, %s FROM %s WHERE (%s, %s) IN (%s) ORDER BY %s",
+                    versionedTable.scratchTable, versionedTable.columnNames, ROWID, versionedTable.columnNames,
+                    ROWID, versionedTable.versionTable, ROWID, VERSION_ID, versionIds, ROWID));
+        }
+        versionedTable.loadedVersions = new TreeMap<>(versions);
+    }
 
-            // Handle INSERT without specified columns `INSERT INTO t VALUES()`
-            if (!sql.substring(columnIndex, columnIndex + 1).equals("(")) {
-                String beforeStr = sql.substring(0, columnIndex);
-                String afterStr = sql.substring(columnIndex);
-                List<String> columns = new ArrayList<>();
-                for (TiDBColumn tableColumn : targetTable.getColumns()) {
-                    columns.add(tableColumn.getName());
+    private void removeDeadlockedVersions() {
+        for (TxStatementExecutionResult stmtResult : txTestResult.getStatementExecutionResults()) {
+            if (stmtResult.reportDeadlock()) {
+                for (VersionedTable versionedTable : versionedTables.values()) {
+                    versionedTable.removeVersions(stmtResult.getStatement().getTransaction());
                 }
-                String columnNames = String.join(", ", columns);
-                sql = beforeStr + "(" + columnNames + ")" + afterStr;
             }
+        }
+    }
 
-            // Handle `INSERT ... ON DUPLICATE KEY UPDATE ...`
-            SQLQueryAdapter queryTableStmt = new SQLQueryAdapter(String.format("SELECT * FROM %s", auxiliaryTable));
-            List<Object> tableBeforeResult = QueryResultUtil.getQueryResult(queryTableStmt.executeAndGet(globalState));
-
-            TxSQLQueryAdapter insertStmt = new TxSQLQueryAdapter(sql, stmt.getTxQueryAdapter().getExpectedErrors());
-            executeTxStatement(stmtResult, insertStmt, auxiliaryPrefix, targetTableName);
+    /**
+     * Copies the rows of the scratch table into the query table, unless it already holds them.
+     */
+    private void copyToQueryTable(VersionedTable versionedTable) {
+        if (versionedTable.loadedVersions != null && versionedTable.loadedVersions == versionedTable.queriedVersions) {
+            return;
+        }
+        versionedTable.queriedVersions = null;
+        execute(String.format("DELETE FROM %s", versionedTable.queryTable));
+        // in the order of the row IDs, so that a table without a primary key keeps the order of the rows
+        execute(String.format("INSERT INTO %s (%s) SELECT %s FROM %s ORDER BY %s", versionedTable.queryTable,
+                versionedTable.columnNames, versionedTable.columnNames, versionedTable.scratchTable, ROWID));
+        versionedTable.queriedVersions = versionedTable.loadedVersions;
+    }
 
-            // Handle `INSERT ... ON DUPLICATE KEY UPDATE ...`
-            List<Object> tableAfterResult = QueryResultUtil.getQueryResult(queryTableStmt.executeAndGet(globalState));
-            affectedRowIds = new ArrayList<>(computeAffectedRowIds(tableBeforeResult, tableAfterResult, targetTable));
+    private List<Object> getDBFinalState(VersionedTable versionedTable) throws SQLException {
+        load(versionedTable, versionedTable.getVisibleVersions(tx -> true));
+        copyToQueryTable(versionedTable);
+        SQLQueryAdapter queryTableAdapter = new SQLQueryAdapter("SELECT * FROM " + versionedTable.queryTable);
+        return QueryResultUtil.getQueryResult(queryTableAdapter.executeAndGet(globalState));
+    }
 
-            // Handle INSERT multiple rows `INSERT INTO t() VALUES(), ()`
-            if (!stmtResult.reportError()) {
-                List<Integer> newRowIds = fillEmptyRowIds(auxiliaryTable);
-                affectedRowIds.addAll(newRowIds);
-            }
-        }
-        return affectedRowIds;
+    private Predicate<Transaction> getCommittedVisibility(Transaction curTx) {
+        Set<Transaction> visibleTxs = new HashSet<>(committedTxs);
+        visibleTxs.add(curTx);
+        return visibleTxs::contains;
     }
 
-    private List<Integer> computeAffectedRowIds(List<Object> tableBeforeResult, List<Object> tableAfterResult,
-                                                TiDBTable targetTable) {
-        List<Integer> affectedRowIds = new ArrayList<>();
-        List<String> beforeResults = preprocessResultSet(tableBeforeResult);
-        List<String> afterResults = preprocessResultSet(tableAfterResult);
-        int columnNum = targetTable.getColumns().size() + 1;
-        int j = 1;
-        for (int i = 0; i < tableBeforeResult.size(); i++) {
-            if (!beforeResults.get(i).equals(afterResults.get(i))) {
-                if (j == columnNum) {
-                    throw new AssertionError("Executing sql wrongly");
-                }
-                int rowId = i + columnNum - j;
-                affectedRowIds.add(Integer.parseInt(afterResults.get(rowId)));
-            }
-            if (j == columnNum) {
-                j = 1;
-            } else {
-                j++;
+    private Predicate<Transaction> getSnapshotVisibility(Transaction curTx) {
+        Set<Transaction> snapshot = snapshots.get(curTx);
+        Set<Transaction> visibleTxs = new HashSet<>();
+        for (Transaction committedTx : committedTxs) {
+            if (snapshot == null || snapshot.contains(committedTx)) {
+                visibleTxs.add(committedTx);
             }
         }
-        return affectedRowIds;
+        visibleTxs.add(curTx);
+        return visibleTxs::contains;
     }
 
-    private void executeTxStatement(TxStatementExecutionResult stmtResult, TxSQLQueryAdapter txStmt,
-                                    String auxiliaryPrefix, String targetTableName)
-            throws SQLException {
-        String auxiliaryTable = auxiliaryPrefix + "_" + targetTableName;
-        try {
-            txStmt.execute(globalState, true);
-        } catch (SQLException e) {
-            String errorInfo = e.getMessage().replace(auxiliaryTable, targetTableName);
-            stmtResult.setErrorInfo(errorInfo);
-        }
-        List<String> targetTableNames = new ArrayList<>();
-        targetTableNames.add(targetTableName);
-        queryWarningInfo(stmtResult, auxiliaryPrefix, targetTableNames);
+    private void createSnapshot(Transaction curTx) {
+        snapshots.put(curTx, new HashSet<>(committedTxs));
     }
 
-    private void updateVersionTable(TxStatementExecutionResult stmtResult, String auxiliaryPrefix, int stmtId,
-                                    List<Integer> affectedRowIds) throws SQLException {
-        TiDBTable targetTable = getTargetTable(stmtResult.getStatement().getTxQueryAdapter().getQueryString());
-        String targetTableName = targetTable.getName();
-        String auxiliaryVersionTable = TABLE_PREFIX + targetTableName + VERSION_TABLE;
-        String auxiliaryTable = auxiliaryPrefix + "_" + targetTableName;
-        List<String> viewColumns = new ArrayList<>();
-        for (TiDBColumn col : targetTable.getColumns()) {
-            viewColumns.add(col.getName());
-        }
-        viewColumns.add(ROWID);
-        String columnNames = String.join(", ", viewColumns);
-        for (int rowId : affectedRowIds) {
-            SQLQueryAdapter insertVersionTable = new SQLQueryAdapter(
-                    String.format("INSERT INTO %s (%s) SELECT * FROM %s WHERE %s = %d", auxiliaryVersionTable,
-                            columnNames, auxiliaryTable, ROWID, rowId));
-            insertVersionTable.execute(globalState);
-        }
-        int isDeleted = 0;
-        if (stmtResult.getStatement().getType() == TxStatement.StatementType.DELETE) {
-            isDeleted = 1;
-        }
-        SQLQueryAdapter updateVersion = new SQLQueryAdapter(
-                String.format("UPDATE %s SET %s = %d, %s = %d, %s = %d WHERE %s IS NULL", auxiliaryVersionTable,
-                        VERSION_ID, stmtId, VERSION_IS_DELETED, isDeleted, VERSION_TX_ID,
-                        stmtResult.getStatement().getTransaction().getId(), VERSION_ID));
-        updateVersion.execute(globalState);
+    /**
+     * Reads the rows of a query whose columns are the table's columns, the row ID, and the given number of extra
+     * columns.
+     *
+     * @return the values of the table's columns and the extra columns by row ID
+     */
+    private Map<Integer, List<Object>> readRows(String query, int nrColumns, int nrExtraColumns) throws SQLException {
+        int rowLength = nrColumns + 1 + nrExtraColumns;
+        List<Object> values = QueryResultUtil.getQueryResult(new SQLQueryAdapter(query).executeAndGet(globalState));
+        Map<Integer, List<Object>> rows = new TreeMap<>();
+        for (int i = 0; i < values.size(); i += rowLength) {
+            List<Object> row = new ArrayList<>(values.subList(i, i + nrColumns));
+            row.addAll(values.subList(i + nrColumns + 1, i + rowLength));
+            rows.put(Integer.parseInt(values.get(i + nrColumns).toString()), row);
+        }
+        return rows;
     }
 
-    private void queryWarningInfo(TxStatementExecutionResult stmtResult, String auxiliaryPrefix,
-                                  List<String> targetTableNames) throws SQLException {
+    private void queryWarningInfo(TxStatementExecutionResult stmtResult, List<String> targetTableNames)
+            throws SQLException {
         SQLQueryAdapter sql = new SQLQueryAdapter("SHOW WARNINGS");
         List<Object> warnings = QueryResultUtil.getQueryResult(sql.executeAndGet(globalState));
         if (!warnings.isEmpty()) {
             for (int i = 0; i < warnings.size(); i++) {
                 if ((i + 1) % 3 == 0) {
-                    String warningInfo = warnings.get(i).toString();
-                    for (String tableName : targetTableNames) {
-                        String auxiliaryTable = auxiliaryPrefix + "_" + tableName;
-                        warningInfo = warningInfo.replace(auxiliaryTable, tableName);
-
-                    }
-                    warnings.set(i, warningInfo);
+                    warnings.set(i, restoreTableNames(warnings.get(i).toString(), targetTableNames));
                 }
             }
         }
         stmtResult.setWarningInfo(warnings);
     }
 
-    private static List<String> preprocessResultSet(List<Object> resultSet) {
-        return resultSet.stream().map(o -> {
-            if (o == null) {
-                return "[NULL]";
-            } else {
-                return o.toString();
-            }
-        }).collect(Collectors.toList());
+    // replaces the names of the scratch and query tables in a message by the names of the tables
+    private static String restoreTableNames(String message, List<String> targetTableNames) {
+        String restored = message;
+        for (String tableName : targetTableNames) {
+            String scratchTable = TABLE_PREFIX + tableName;
+            restored = restored.replace(scratchTable + QUERY_TABLE, tableName).replace(scratchTable, tableName);
+        }
+        return restored;
     }
 
     private List<TxStatementExecutionResult> scheduleClone(List<TxStatementExecutionResult> stmtExecutionResults) {
@@ -616,30 +573,6 @@ public class TiDBTxInfer {
         return copiedOrder;
     }
 
-    private void createSnapshot(Transaction curTx) {
-        List<Integer> snapTx = snapshotTxs.get(curTx);
-        snapTx.add(curTx.getId());
-        if (!committedTxs.isEmpty()) {
-            for (Transaction transaction : committedTxs) {
-                snapTx.add(transaction.getId());
-            }
-        }
-        snapshotTxs.put(curTx, snapTx);
-    }
-
-    private List<Integer> getRowIds(SQLQueryAdapter sql) throws SQLException {
-        List<Integer> rowIds = new ArrayList<>();
-        try (SQLancerResultSet results = sql.executeAndGet(globalState)) {
-            if (results != null) {
-                while (results.next()) {
-                    rowIds.add(results.getInt(ROWID));
-                }
-                Collections.sort(rowIds);
-            }
-        }
-        return rowIds;
-    }
-
     private TiDBTable getTargetTable(String sql) {
         TiDBTable targetTable = null;
         for (TiDBTable t : tables) {
@@ -660,21 +593,30 @@ public class TiDBTxInfer {
         return targetTables;
     }
 
-    private void createTableLike(String auxiliaryTable, String tableName) throws SQLException {
-        dropTable(auxiliaryTable);
-        SQLQueryAdapter createTable = new SQLQueryAdapter(
-                String.format("CREATE TABLE %s LIKE %s", auxiliaryTable, tableName), true);
-        createTable.execute(globalState);
+    /**
+     * Executes an auxiliary statement of the model.
+     *
+     * @return the number of affected rows
+     */
+    private int execute(String sql) {
+        try (Statement s = globalState.getConnection().createStatement()) {
+            s.execute(sql);
+            return s.getUpdateCount();
+        } catch (SQLException e) {
+            throw new AssertionError(sql, e);
+        }
     }
 
-    private void dropRowIdColumn(String tableName) throws SQLException {
-        SQLQueryAdapter dropRowId = new SQLQueryAdapter(
-                String.format("ALTER TABLE %s DROP COLUMN %s", tableName, ROWID));
-        dropRowId.execute(globalState);
+    @Override
+    public void close() {
+        for (VersionedTable versionedTable : versionedTables.values()) {
+            dropAuxiliaryTables(versionedTable);
+        }
+        versionedTables.clear();
     }
 
-    private void dropTable(String tableName) throws SQLException {
-        SQLQueryAdapter dropTableAdapter = new SQLQueryAdapter(String.format("DROP TABLE IF EXISTS %s", tableName));
-        dropTableAdapter.execute(globalState);
+    private void dropAuxiliaryTables(VersionedTable versionedTable) {
+        execute(String.format("DROP TABLE IF EXISTS %s, %s, %s", versionedTable.scratchTable,
+                versionedTable.queryTable, versionedTable.versionTable));
     }
 }
@@ -12,6 +12,7 @@ import sqlancer.tidb.TiDBSchema.TiDBTable;
 import sqlancer.tidb.transaction.TxTestExecutionResult;
 import sqlancer.tidb.transaction.TiDBTxTestExecutor;
 import sqlancer.tidb.transaction.Transaction;
+import sqlancer.tidb.transaction.TxDatabaseSnapshot;
 import sqlancer.tidb.transaction.TxStatement;
 import sqlancer.tidb.transaction.TiDBIsolation.TiDBIsolationLevel;
 import sqlancer.tidb.transaction.TxTestGenerator;
@@ -35,7 +36,8 @@ public class TiDBTxInferOracle extends TxBase<TiDBGlobalState> {
         }
         List<List<TxStatement>> schedules = txTestGenerator.genSchedules(transactions);
 
-        try {
+        try (TxDatabaseSnapshot snapshot = TxDatabaseSnapshot.capture(state, state.getSchema().getDatabaseTables());
+                TiDBTxInfer infer = new TiDBTxInfer(state, snapshot)) {
             for (List<TxStatement> schedule : schedules) {
                 logger.writeCurrent("Input schedule: " + schedule.stream().map(o -> o.getStmtId()).
                         collect(Collectors.joining(", ", "[", "]")));
@@ -44,10 +46,8 @@ public class TiDBTxInferOracle extends TxBase<TiDBGlobalState> {
                 TiDBTxTestExecutor testExecutor = new TiDBTxTestExecutor(state, transactions, schedule, isoLevel);
                 TxTestExecutionResult testResult = testExecutor.execute();
 
-                reproduceDatabase(state.getState().getStatements());
-                dropViewTable();
-                TiDBTxInfer infer = new TiDBTxInfer(state, transactions, testResult, isoLevel);
-                TxTestExecutionResult oracleResult = infer.inferOracle();
+                snapshot.restore();
+                TxTestExecutionResult oracleResult = infer.inferOracle(testResult, isoLevel);
                 String compareResultInfo = compareAllResults(testResult, oracleResult);
                 if (compareResultInfo.equals("")) {
                     state.getLogger().writeCurrent("============Is Same============");
@@ -65,13 +65,6 @@ public class TiDBTxInferOracle extends TxBase<TiDBGlobalState> {
                     state.getState().getLocalState().log(oracleResult.toString());
                     throw new AssertionError("Transaction execution mismatches its oracle");
                 }
-
-                reproduceDatabase(state.getState().getStatements());
-                dropViewTable();
-            }
-        } finally {
-            for (Transaction tx : transactions) {
-                tx.closeConnection();
             }
         }
     }
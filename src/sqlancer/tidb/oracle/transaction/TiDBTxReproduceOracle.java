@@ -20,6 +20,7 @@ import sqlancer.tidb.TiDBSchema.TiDBTable;
 import sqlancer.tidb.transaction.TxTestExecutionResult;
 import sqlancer.tidb.transaction.TiDBTxTestExecutor;
 import sqlancer.tidb.transaction.Transaction;
+import sqlancer.tidb.transaction.TxDatabaseSnapshot;
 import sqlancer.tidb.transaction.TxSQLQueryAdapter;
 import sqlancer.tidb.transaction.TxStatement;
 import sqlancer.tidb.transaction.TiDBIsolation.TiDBIsolationLevel;
@@ -51,18 +52,18 @@ public class TiDBTxReproduceOracle extends TxBase<TiDBGlobalState> {
         // String temp = scanner.nextLine();
         List<Transaction> transactions = new ArrayList<>();
         for (int i = 0; i < state.getDbmsSpecificOptions().getNrTransactions(); i++) {
-            transactions.add(readTransactionFromScanner(scanner));
+            transactions.add(readTransactionFromScanner(scanner, i));
         }
         String scheduleStr = readOrderFromScanner(scanner);
         List<TxStatement> schedule = checkOrder(scheduleStr, transactions);
         boolean detectBug = false;
-        try {
+        try (TxDatabaseSnapshot snapshot = TxDatabaseSnapshot.capture(state, state.getSchema().getDatabaseTables());
+                TiDBTxInfer infer = new TiDBTxInfer(state, snapshot)) {
             for (TiDBIsolationLevel level : TiDBIsolationLevel.values()) {
                 TiDBTxTestExecutor testExecutor = new TiDBTxTestExecutor(state, transactions, schedule, level);
                 TxTestExecutionResult testResult = testExecutor.execute();
-                reproduceDatabase(dbInitQueries);
-                TiDBTxInfer infer = new TiDBTxInfer(state, transactions, testResult, level);
-                TxTestExecutionResult oracleResult = infer.inferOracle();
+                snapshot.restore();
+                TxTestExecutionResult oracleResult = infer.inferOracle(testResult, level);
                 String compareResultInfo = compareAllResults(testResult, oracleResult);
                 if (compareResultInfo.equals("")) {
                     state.getLogger().writeCurrent("============Is Same============");
@@ -84,16 +85,11 @@ public class TiDBTxReproduceOracle extends TxBase<TiDBGlobalState> {
                     state.getState().getLocalState().log(oracleResult.toString());
                     detectBug = true;
                 }
-                reproduceDatabase(dbInitQueries);
-            }
-            if (detectBug) {
-                throw new AssertionError("Transaction execution mismatches its oracle");
-            }
-        } finally {
-            for (Transaction tx : transactions) {
-                tx.closeConnection();
             }
         }
+        if (detectBug) {
+            throw new AssertionError("Transaction execution mismatches its oracle");
+        }
         System.exit(0);
     }
 
@@ -148,8 +144,8 @@ public class TiDBTxReproduceOracle extends TxBase<TiDBGlobalState> {
         return dbInitQueries;
     }
 
-    private Transaction readTransactionFromScanner(Scanner input) throws SQLException {
-        Transaction transaction = new Transaction(state.createConnection());
+    private Transaction readTransactionFromScanner(Scanner input, int index) throws SQLException {
+        Transaction transaction = new Transaction(state.getTxExecutionEngine().getConnection(index));
         List<TxStatement> statementList = new ArrayList<>();
         String txId = input.nextLine();
         transaction.setId(Integer.parseInt(txId));
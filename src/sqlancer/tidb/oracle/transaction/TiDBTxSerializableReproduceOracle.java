@@ -19,6 +19,7 @@ import sqlancer.tidb.TiDBSchema.TiDBTable;
 import sqlancer.tidb.transaction.TiDBIsolation.TiDBIsolationLevel;
 import sqlancer.tidb.transaction.TiDBTxTestExecutor;
 import sqlancer.tidb.transaction.Transaction;
+import sqlancer.tidb.transaction.TxDatabaseSnapshot;
 import sqlancer.tidb.transaction.TxSQLQueryAdapter;
 import sqlancer.tidb.transaction.TxStatement;
 import sqlancer.tidb.transaction.TxTestExecutionResult;
@@ -50,21 +51,22 @@ public class TiDBTxSerializableReproduceOracle extends TiDBTxWriteSerializableOr
         // String temp = scanner.nextLine();
         List<Transaction> transactions = new ArrayList<>();
         for (int i = 0; i < state.getDbmsSpecificOptions().getNrTransactions(); i++) {
-            transactions.add(readTransactionFromScanner(scanner));
+            transactions.add(readTransactionFromScanner(scanner, i));
         }
         String scheduleStr = readOrderFromScanner(scanner);
         List<TxStatement> schedule = checkOrder(scheduleStr, transactions);
         boolean detectBug = false;
-        try {
+        try (TxDatabaseSnapshot snapshot = TxDatabaseSnapshot.capture(state,
+                state.getSchema().getDatabaseTables())) {
             for (TiDBIsolationLevel level : TiDBIsolationLevel.values()) {
                 TiDBTxTestExecutor testExecutor = new TiDBTxTestExecutor(state, transactions, schedule, level);
                 TxTestExecutionResult testResult = testExecutor.execute();
-                reproduceDatabase(dbInitQueries);
+                snapshot.restore();
 
                 List<TxStatement> oracleSchedule = genOracleSchedule(testResult);
                 TiDBTxTestExecutor oracleExecutor = new TiDBTxTestExecutor(state, transactions, oracleSchedule, level);
                 TxTestExecutionResult oracleResult = oracleExecutor.execute();
-                reproduceDatabase(dbInitQueries);
+                snapshot.restore();
                 String compareResultInfo = compareAllResults(testResult, oracleResult);
                 if (compareResultInfo.equals("")) {
                     state.getLogger().writeCurrent("============Is Same============");
@@ -87,13 +89,9 @@ public class TiDBTxSerializableReproduceOracle extends TiDBTxWriteSerializableOr
                     detectBug = true;
                 }
             }
-            if (detectBug) {
-                throw new AssertionError("Transaction execution mismatches its oracle");
-            }
-        } finally {
-            for (Transaction tx : transactions) {
-                tx.closeConnection();
-            }
+        }
+        if (detectBug) {
+            throw new AssertionError("Transaction execution mismatches its oracle");
         }
         System.exit(0);
     }
@@ -149,8 +147,8 @@ public class TiDBTxSerializableReproduceOracle extends TiDBTxWriteSerializableOr
         return dbInitQueries;
     }
 
-    private Transaction readTransactionFromScanner(Scanner input) throws SQLException {
-        Transaction transaction = new Transaction(state.createConnection());
+    private Transaction readTransactionFromScanner(Scanner input, int index) throws SQLException {
+        Transaction transaction = new Transaction(state.getTxExecutionEngine().getConnection(index));
         List<TxStatement> statementList = new ArrayList<>();
         String txId = input.nextLine();
         transaction.setId(Integer.parseInt(txId));
@@ -11,6 +11,7 @@ import sqlancer.tidb.TiDBProvider.TiDBGlobalState;
 import sqlancer.tidb.transaction.TiDBIsolation.TiDBIsolationLevel;
 import sqlancer.tidb.transaction.TiDBTxTestExecutor;
 import sqlancer.tidb.transaction.Transaction;
+import sqlancer.tidb.transaction.TxDatabaseSnapshot;
 import sqlancer.tidb.transaction.TxSQLQueryAdapter;
 import sqlancer.tidb.transaction.TxStatement;
 import sqlancer.tidb.transaction.TxStatementExecutionResult;
@@ -33,7 +34,8 @@ public class TiDBTxWriteSerializableOracle extends TxBase<TiDBGlobalState> {
         }
         List<List<TxStatement>> schedules = txTestGenerator.genSchedules(transactions);
 
-        try {
+        try (TxDatabaseSnapshot snapshot = TxDatabaseSnapshot.capture(state,
+                state.getSchema().getDatabaseTables())) {
             for (List<TxStatement> schedule : schedules) {
                 logger.writeCurrent("Input schedule: " + schedule.stream().map(TxStatement::getStmtId).
                         collect(Collectors.joining(", ", "[", "]")));
@@ -42,12 +44,13 @@ public class TiDBTxWriteSerializableOracle extends TxBase<TiDBGlobalState> {
                 TiDBTxTestExecutor testExecutor = new TiDBTxTestExecutor(state, transactions, schedule, isoLevel);
 
                 TxTestExecutionResult testResult = testExecutor.execute();
-                reproduceDatabase(state.getState().getStatements());
+                snapshot.restore();
                 
                 List<TxStatement> oracleSchedule = genOracleSchedule(testResult);
-                TiDBTxTestExecutor oracleExecutor = new TiDBTxTestExecutor(state, transactions, oracleSchedule, isoLevel);
+                TiDBTxTestExecutor oracleExecutor = new TiDBTxTestExecutor(state, transactions, oracleSchedule,
+                        isoLevel);
                 TxTestExecutionResult oracleResult = oracleExecutor.execute();
-                reproduceDatabase(state.getState().getStatements());
+                snapshot.restore();
                 
                 String compareResultInfo = compareFinalDBState(testResult, oracleResult);
                 if (!compareResultInfo.equals("")) {
@@ -55,8 +58,8 @@ public class TiDBTxWriteSerializableOracle extends TxBase<TiDBGlobalState> {
                     for (Transaction tx : transactions) {
                         state.getState().getLocalState().log(tx.toString());
                     }
-                    state.getState().getLocalState().log("Input schedule: " + schedule.stream().map(TxStatement::getStmtId).
-                            collect(Collectors.joining(", ", "[", "]")));
+                    state.getState().getLocalState().log("Input schedule: " + schedule.stream()
+                            .map(TxStatement::getStmtId).collect(Collectors.joining(", ", "[", "]")));
                     state.getState().getLocalState().log(compareResultInfo);
                     state.getState().getLocalState().log("Execution Result:");
                     state.getState().getLocalState().log(testResult.toString());
@@ -67,10 +70,6 @@ public class TiDBTxWriteSerializableOracle extends TxBase<TiDBGlobalState> {
                     state.getLogger().writeCurrent("============Is Same============");
                 }
             }
-        } finally {
-            for (Transaction tx : transactions) {
-                tx.closeConnection();
-            }
         }
     }
 
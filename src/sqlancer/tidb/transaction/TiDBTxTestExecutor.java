@@ -9,7 +9,6 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -23,8 +22,11 @@ import sqlancer.tidb.transaction.TiDBIsolation.TiDBIsolationLevel;
 
 public class TiDBTxTestExecutor {
 
-    private static final int WAIT_THRESHOLD = 2;
-    
+    private static final long MIN_POLL_MILLIS = 1;
+    private static final long MAX_POLL_MILLIS = 16;
+    // the time that a killed session takes at most to return from its statement
+    private static final long MAX_ABORT_MILLIS = 1000;
+
     private final TiDBGlobalState globalState;
     private final List<Transaction> transactions;
     private final List<TxStatement> schedule;
@@ -39,18 +41,23 @@ public class TiDBTxTestExecutor {
     }
 
     public TxTestExecutionResult execute() throws SQLException {
-        ExecutorService executor = Executors.newFixedThreadPool(transactions.size());
+        TxExecutionEngine engine = globalState.getTxExecutionEngine();
+        ExecutorService executor = engine.getWorkers(transactions.size());
         Map<Transaction, Future<TxStatementExecutionResult>> blockedTxs = new HashMap<>();
 
         List<TxStatement> submittedStmts = new ArrayList<>();
         List<TxStatementExecutionResult> stmtExecutionResults = new ArrayList<>();
 
+        TxLockWaitDetector lockWaitDetector = globalState.getLockWaitDetector();
+        Map<Transaction, Long> sessionIds = new HashMap<>();
         TiDBIsolationLevelGenerator isoLevelGenerator = new TiDBIsolationLevelGenerator(isoLevel);
+        engine.resetSessions(transactions);
         for (Transaction tx : transactions) {
             TxSQLQueryAdapter isoQuery = new TxSQLQueryAdapter(isoLevelGenerator.getQuery());
             isoQuery.execute(tx);
+            sessionIds.put(tx, lockWaitDetector.getSessionId(tx));
         }
-        
+
         while (submittedStmts.size() != schedule.size()) {
             for (TxStatement curStmt : schedule) {
                 if (submittedStmts.contains(curStmt)) {
@@ -63,22 +70,18 @@ public class TiDBTxTestExecutor {
                 }
 
                 submittedStmts.add(curStmt);
+                long submitTime = System.nanoTime();
                 Future<TxStatementExecutionResult> stmtFuture = executor.submit(new TxStmtExecutor(curStmt));
-                TxStatementExecutionResult stmtResult;
-                try {
-                    stmtResult = stmtFuture.get(WAIT_THRESHOLD, TimeUnit.SECONDS);
-                } catch (TimeoutException e) {
+                TxStatementExecutionResult stmtResult = awaitUnlessBlocked(stmtFuture, sessionIds.get(curTx));
+                if (stmtResult == null) {
                     // add blocked stmt into execution order
                     TxStatementExecutionResult blockedStmtResult = new TxStatementExecutionResult(curStmt);
                     blockedStmtResult.setBlocked(true);
                     blockedTxs.put(curTx, stmtFuture);
                     stmtExecutionResults.add(blockedStmtResult);
                     continue;
-                } catch (ExecutionException e) {
-                    throw new RuntimeException("Transaction statement returning result exception: ", e);
-                } catch (InterruptedException e) {
-                    throw new RuntimeException("Transaction statement interrupted exception: ", e);
                 }
+                lockWaitDetector.recordLatency(System.nanoTime() - submitTime);
 
                 if (stmtResult != null) {
                     stmtExecutionResults.add(stmtResult);
@@ -88,16 +91,8 @@ public class TiDBTxTestExecutor {
                     while (txIterator.hasNext()) {
                         Transaction blockedTx = txIterator.next();
                         Future<TxStatementExecutionResult> blockedStmtFuture = blockedTxs.get(blockedTx);
-                        TxStatementExecutionResult blockedStmtResult = null;
-                        try {
-                            blockedStmtResult = blockedStmtFuture.get(WAIT_THRESHOLD, TimeUnit.SECONDS);
-                        } catch (TimeoutException e) {
-                            // ignore
-                        } catch (ExecutionException e) {
-                            throw new RuntimeException("Transaction blocked statement returning result exception: ", e);
-                        } catch (InterruptedException e) {
-                            throw new RuntimeException("Transaction blocked statement interrupted exception: ", e);
-                        }
+                        TxStatementExecutionResult blockedStmtResult = awaitUnlessBlocked(blockedStmtFuture,
+                                sessionIds.get(blockedTx));
 
                         if (blockedStmtResult != null) {
                             hasResumedTxs = true;
@@ -116,9 +111,92 @@ public class TiDBTxTestExecutor {
         txResult.setIsolationLevel(isoLevel);
         txResult.setStatementExecutionResults(stmtExecutionResults);
         txResult.setDbFinalStates(getDBState());
+        awaitBlockedStatements(engine, blockedTxs, sessionIds);
         return txResult;
     }
 
+    /**
+     * Waits for the statements that are still blocked after the schedule, so that their workers and connections are
+     * idle for the next schedule. The sessions of the other transactions are rolled back first, which releases the
+     * locks that the blocked statements wait for, and the session of each resumed statement is rolled back as well,
+     * since another blocked statement might wait for its locks. A statement that is still blocked after the timeout is
+     * aborted by killing its session.
+     */
+    private void awaitBlockedStatements(TxExecutionEngine engine,
+            Map<Transaction, Future<TxStatementExecutionResult>> blockedTxs, Map<Transaction, Long> sessionIds)
+            throws SQLException {
+        List<Transaction> idleTxs = new ArrayList<>(transactions);
+        idleTxs.removeAll(blockedTxs.keySet());
+        engine.resetSessions(idleTxs);
+        Map<Transaction, Future<TxStatementExecutionResult>> pendingTxs = new HashMap<>(blockedTxs);
+        long deadline = System.nanoTime() + globalState.getLockWaitDetector().getTimeoutNanos();
+        while (!pendingTxs.isEmpty()) {
+            List<Transaction> resumedTxs = new ArrayList<>();
+            for (Map.Entry<Transaction, Future<TxStatementExecutionResult>> pendingTx : pendingTxs.entrySet()) {
+                if (pendingTx.getValue().isDone()) {
+                    resumedTxs.add(pendingTx.getKey());
+                }
+            }
+            pendingTxs.keySet().removeAll(resumedTxs);
+            engine.resetSessions(resumedTxs);
+            if (pendingTxs.isEmpty()) {
+                break;
+            }
+            if (System.nanoTime() >= deadline) {
+                for (Map.Entry<Transaction, Future<TxStatementExecutionResult>> pendingTx : pendingTxs.entrySet()) {
+                    engine.killSession(sessionIds.get(pendingTx.getKey()));
+                    awaitAbortedStatement(pendingTx.getValue());
+                    engine.replaceConnection(pendingTx.getKey());
+                }
+                break;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(MAX_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Transaction statement interrupted exception: ", e);
+            }
+        }
+    }
+
+    private static void awaitAbortedStatement(Future<TxStatementExecutionResult> stmtFuture) {
+        try {
+            stmtFuture.get(MAX_ABORT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // the result is not part of the schedule's result anymore
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Transaction statement interrupted exception: ", e);
+        }
+    }
+
+    /**
+     * Waits for the result of a statement until it completes or is recognized as blocked. The future is polled with
+     * an increasing interval, and in between, the server is asked whether the transaction waits for a lock.
+     *
+     * @return the result, or null if the statement is blocked
+     */
+    private TxStatementExecutionResult awaitUnlessBlocked(Future<TxStatementExecutionResult> stmtFuture,
+            long sessionId) {
+        TxLockWaitDetector lockWaitDetector = globalState.getLockWaitDetector();
+        long startTime = System.nanoTime();
+        long pollMillis = MIN_POLL_MILLIS;
+        while (true) {
+            try {
+                return stmtFuture.get(pollMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // check below whether it is blocked
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Transaction statement returning result exception: ", e);
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Transaction statement interrupted exception: ", e);
+            }
+            if (lockWaitDetector.isWaitingForLock(globalState.getConnection(), sessionId)
+                    || System.nanoTime() - startTime >= lockWaitDetector.getTimeoutNanos()) {
+                return null;
+            }
+            pollMillis = Math.min(pollMillis * 2, MAX_POLL_MILLIS);
+        }
+    }
+
     class TxStmtExecutor implements Callable<TxStatementExecutionResult> {
         private TxStatement txStmt;
 
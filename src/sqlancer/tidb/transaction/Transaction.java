@@ -53,6 +53,10 @@ public class Transaction {
     public SQLConnection getConnection() {
         return connection;
     }
+
+    public void setConnection(SQLConnection connection) {
+        this.connection = connection;
+    }
     
     @Override
     public String toString() {
@@ -0,0 +1,159 @@
+package sqlancer.tidb.transaction;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Determines which statements of different transactions conflict, i.e., whose order in a schedule may change the
+ * result. Two statements conflict if one of them writes a table that the other one reads or writes. The read and write
+ * sets are determined at table granularity from the query strings, since the rows that a statement accesses depend on
+ * the data:
+ * <ul>
+ * <li>SELECT reads the tables it mentions.</li>
+ * <li>SELECT ... FOR UPDATE locks rows, so it writes the tables it mentions.</li>
+ * <li>INSERT, REPLACE, UPDATE, and DELETE write their target table (the first table mentioned) and read the
+ * others.</li>
+ * <li>BEGIN takes the snapshot of all tables that its transaction accesses.</li>
+ * <li>COMMIT and ROLLBACK publish the writes and release the locks of their transaction, so they access everything
+ * that their transaction accesses.</li>
+ * <li>Any other statement conflicts with every statement.</li>
+ * </ul>
+ * Schedules that order all conflicting statements the same are equivalent, so only one of them needs to be executed.
+ */
+final class TxConflicts {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("\\w+");
+
+    private static final class Access {
+        private final Set<String> reads = new HashSet<>();
+        private final Set<String> writes = new HashSet<>();
+        private boolean accessesEverything;
+    }
+
+    private final Map<TxStatement, Access> accesses = new IdentityHashMap<>();
+
+    /**
+     * @param transactions
+     *            the transactions, whose statements are analyzed
+     * @param tableNames
+     *            the names of the tables and views of the database
+     */
+    TxConflicts(Collection<Transaction> transactions, Collection<String> tableNames) {
+        Set<String> names = new HashSet<>();
+        for (String tableName : tableNames) {
+            names.add(tableName.toLowerCase(Locale.ROOT));
+        }
+        for (Transaction tx : transactions) {
+            Access txAccess = new Access();
+            for (TxStatement stmt : tx.getStatements()) {
+                Access access = analyze(stmt, names);
+                if (access != null) {
+                    txAccess.reads.addAll(access.reads);
+                    txAccess.writes.addAll(access.writes);
+                    txAccess.accessesEverything |= access.accessesEverything;
+                    accesses.put(stmt, access);
+                }
+            }
+            for (TxStatement stmt : tx.getStatements()) {
+                switch (stmt.getType()) {
+                case BEGIN:
+                    Access snapshot = new Access();
+                    snapshot.reads.addAll(txAccess.reads);
+                    snapshot.reads.addAll(txAccess.writes);
+                    snapshot.accessesEverything = txAccess.accessesEverything;
+                    accesses.put(stmt, snapshot);
+                    break;
+                case COMMIT:
+                case ROLLBACK:
+                    accesses.put(stmt, txAccess);
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+    }
+
+    // returns null for the statements whose accesses depend on their transaction
+    private static Access analyze(TxStatement stmt, Set<String> tableNames) {
+        Access access = new Access();
+        Set<String> mentioned = new HashSet<>();
+        String target = null;
+        Matcher matcher = IDENTIFIER.matcher(stmt.getTxQueryAdapter().getQueryString());
+        while (matcher.find()) {
+            String identifier = matcher.group().toLowerCase(Locale.ROOT);
+            if (tableNames.contains(identifier)) {
+                if (target == null) {
+                    target = identifier;
+                }
+                mentioned.add(identifier);
+            }
+        }
+        switch (stmt.getType()) {
+        case BEGIN:
+        case COMMIT:
+        case ROLLBACK:
+            return null;
+        case SELECT:
+            access.reads.addAll(mentioned);
+            break;
+        case SELECT_FOR_UPDATE:
+            access.writes.addAll(mentioned);
+            break;
+        case INSERT:
+        case REPLACE:
+        case UPDATE:
+        case DELETE:
+            access.reads.addAll(mentioned);
+            if (target == null) {
+                access.accessesEverything = true;
+            } else {
+                access.writes.add(target);
+            }
+            break;
+        default:
+            access.accessesEverything = true;
+            break;
+        }
+        return access;
+    }
+
+    /**
+     * Determines whether the order of the given statements matters.
+     *
+     * @param a
+     *            a statement
+     * @param b
+     *            another statement
+     *
+     * @return true if both statements belong to different transactions and their order may change the result
+     */
+    boolean conflict(TxStatement a, TxStatement b) {
+        if (a.getTransaction() == b.getTransaction()) {
+            return false;
+        }
+        Access accessA = accesses.get(a);
+        Access accessB = accesses.get(b);
+        if (accessA.accessesEverything || accessB.accessesEverything) {
+            return true;
+        }
+        return intersect(accessA.writes, accessB.writes) || intersect(accessA.writes, accessB.reads)
+                || intersect(accessA.reads, accessB.writes);
+    }
+
+    private static boolean intersect(Set<String> a, Set<String> b) {
+        for (String s : a) {
+            if (b.contains(s)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,233 @@
+package sqlancer.tidb.transaction;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import sqlancer.tidb.TiDBProvider.TiDBGlobalState;
+import sqlancer.tidb.TiDBSchema.TiDBTable;
+
+/**
+ * A copy of the rows of the tables, which restores the tables to their initial state after a schedule has been
+ * executed. Restoring a table takes a DELETE and an INSERT ... SELECT from its shadow table (and, for a table with an
+ * AUTO_INCREMENT column, an ALTER TABLE that rewinds its allocator), independently of how many statements created the
+ * database, whereas replaying the statements that created the database takes as many statements as were logged. The
+ * shadow tables are not part of the schema, since they are created and dropped directly on the connection.
+ *
+ * A restored table must also behave like the initial one for the rows that a schedule inserts: the rows are restored
+ * in the order of their handles (i.e., of _tidb_rowid if the table has no clustered primary key), and the
+ * AUTO_INCREMENT allocator is rewound to the ID that it would have allocated next when the snapshot was captured. If
+ * the server cannot rewind the allocator (FORCE AUTO_INCREMENT), a table with an AUTO_INCREMENT column is recreated
+ * instead, which starts a new allocator. The tables are restored once when the snapshot is captured, so that the first
+ * schedule starts from the same state as the later ones.
+ */
+public class TxDatabaseSnapshot implements AutoCloseable {
+
+    private static final String TABLE_PREFIX = "_snapshot_";
+    private static final long NO_AUTO_ID = -1;
+    private static final int PARSE_ERROR = 1064;
+
+    private static final class ShadowTable {
+
+        private final String shadowTable;
+        // the columns that can be inserted, i.e., the non-generated ones
+        private final String columnNames;
+        // the ORDER BY clause that sorts the rows by their handles, or an empty string for a clustered primary key
+        private final String rowOrder;
+        private final long nextAutoId;
+
+        ShadowTable(String shadowTable, String columnNames, String rowOrder, long nextAutoId) {
+            this.shadowTable = shadowTable;
+            this.columnNames = columnNames;
+            this.rowOrder = rowOrder;
+            this.nextAutoId = nextAutoId;
+        }
+    }
+
+    private final TiDBGlobalState globalState;
+    private final Map<String, ShadowTable> shadowTables = new LinkedHashMap<>();
+    private boolean canRewindAutoId = true;
+
+    private TxDatabaseSnapshot(TiDBGlobalState globalState) {
+        this.globalState = globalState;
+    }
+
+    /**
+     * Copies the rows of the tables (but not of the views) into shadow tables, and restores the tables from them.
+     *
+     * @param globalState
+     *            the state, whose connection is used
+     * @param tables
+     *            the tables to be restored later
+     *
+     * @return the snapshot, which must be closed to drop the shadow tables
+     *
+     * @throws SQLException
+     *             if a shadow table cannot be created
+     */
+    public static TxDatabaseSnapshot capture(TiDBGlobalState globalState, List<TiDBTable> tables)
+            throws SQLException {
+        TxDatabaseSnapshot snapshot = new TxDatabaseSnapshot(globalState);
+        try {
+            for (TiDBTable table : tables) {
+                if (!table.isView()) {
+                    snapshot.captureTable(table.getName());
+                }
+            }
+            snapshot.restore();
+        } catch (SQLException e) {
+            snapshot.close();
+            throw e;
+        }
+        return snapshot;
+    }
+
+    private void captureTable(String tableName) throws SQLException {
+        String rowOrder = "";
+        long nextAutoId = NO_AUTO_ID;
+        try (Statement s = globalState.getConnection().createStatement();
+                ResultSet rs = s.executeQuery(String.format("SELECT TIDB_PK_TYPE, AUTO_INCREMENT FROM "
+                        + "information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = '%s'",
+                        tableName))) {
+            if (rs.next()) {
+                if (!"CLUSTERED".equals(rs.getString(1))) {
+                    rowOrder = "ORDER BY _tidb_rowid";
+                }
+                nextAutoId = rs.getLong(2);
+                if (rs.wasNull()) {
+                    nextAutoId = NO_AUTO_ID;
+                }
+            }
+        }
+        List<String> columns = new ArrayList<>();
+        try (Statement s = globalState.getConnection().createStatement();
+                ResultSet rs = s.executeQuery(String.format("SELECT COLUMN_NAME, EXTRA FROM information_schema.COLUMNS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = '%s' ORDER BY ORDINAL_POSITION",
+                        tableName))) {
+            boolean hasAutoIncrement = false;
+            while (rs.next()) {
+                String extra = rs.getString(2).toLowerCase(Locale.ROOT);
+                if (!extra.contains("generated")) {
+                    columns.add(rs.getString(1));
+                }
+                hasAutoIncrement |= extra.contains("auto_increment");
+            }
+            if (!hasAutoIncrement) {
+                nextAutoId = NO_AUTO_ID;
+            }
+        }
+        String columnNames = String.join(", ", columns);
+        String shadowTable = TABLE_PREFIX + tableName;
+        execute(String.format("DROP TABLE IF EXISTS %s", shadowTable));
+        execute(String.format("CREATE TABLE %s LIKE %s", shadowTable, tableName));
+        shadowTables.put(tableName, new ShadowTable(shadowTable, columnNames, rowOrder, nextAutoId));
+        execute(String.format("INSERT INTO %s (%s) SELECT %s FROM %s %s", shadowTable, columnNames, columnNames,
+                tableName, rowOrder));
+    }
+
+    /**
+     * Restores the rows and the AUTO_INCREMENT allocators of the tables. The tables are not truncated, since TRUNCATE
+     * is a DDL statement, which waits for the schema change to be applied and discards the statistics of the table.
+     * However, rewinding the allocator of a table with an AUTO_INCREMENT column (ALTER TABLE ... FORCE
+     * AUTO_INCREMENT) is a DDL statement as well, which also waits for the schema change, so that restoring such a
+     * table costs a DDL statement for each schedule (or, if the server cannot rewind the allocator, the table is
+     * dropped and recreated). Tables without an AUTO_INCREMENT column are restored by DML statements only.
+     *
+     * @throws SQLException
+     *             if a table cannot be restored
+     */
+    public void restore() throws SQLException {
+        for (Map.Entry<String, ShadowTable> entry : shadowTables.entrySet()) {
+            String tableName = entry.getKey();
+            ShadowTable shadowTable = entry.getValue();
+            execute(String.format("DELETE FROM %s", tableName));
+            // before the rows are inserted, which might take their row IDs from the same allocator
+            if (!rewindAutoId(tableName, tableName)) {
+                execute(String.format("DROP TABLE %s", tableName));
+                execute(String.format("CREATE TABLE %s LIKE %s", tableName, shadowTable.shadowTable));
+            }
+            execute(String.format("INSERT INTO %s (%s) SELECT %s FROM %s %s", tableName, shadowTable.columnNames,
+                    shadowTable.columnNames, shadowTable.shadowTable, shadowTable.rowOrder));
+        }
+    }
+
+    /**
+     * Rewinds the AUTO_INCREMENT allocator of a table, or of a copy of it, to the ID that the table would have
+     * allocated next when the snapshot was captured.
+     *
+     * @param tableName
+     *            the captured table
+     * @param targetName
+     *            the table itself or its copy, which must be empty
+     *
+     * @return false if the table has an AUTO_INCREMENT column, but its allocator cannot be rewound, so that the target
+     *         must be recreated to start a new allocator
+     *
+     * @throws SQLException
+     *             if the allocator cannot be rewound although the server supports it
+     */
+    public boolean rewindAutoId(String tableName, String targetName) throws SQLException {
+        long nextAutoId = shadowTables.get(tableName).nextAutoId;
+        if (nextAutoId == NO_AUTO_ID) {
+            return true;
+        }
+        if (!canRewindAutoId) {
+            return false;
+        }
+        try {
+            execute(String.format("ALTER TABLE %s FORCE AUTO_INCREMENT = %d", targetName, nextAutoId));
+        } catch (SQLException e) {
+            if (e.getErrorCode() != PARSE_ERROR) {
+                throw e;
+            }
+            canRewindAutoId = false; // FORCE AUTO_INCREMENT is only supported by newer versions
+        }
+        return canRewindAutoId;
+    }
+
+    /**
+     * Returns the shadow table of a table, from which the rows of the initial state can be read.
+     *
+     * @param tableName
+     *            the captured table
+     *
+     * @return the name of the shadow table
+     */
+    public String getShadowTable(String tableName) {
+        return shadowTables.get(tableName).shadowTable;
+    }
+
+    /**
+     * Returns the ORDER BY clause that sorts the rows of the table (or its shadow table) as the table stores them.
+     *
+     * @param tableName
+     *            the captured table
+     *
+     * @return the clause, or an empty string if the rows are sorted by their primary key anyway
+     */
+    public String getRowOrder(String tableName) {
+        return shadowTables.get(tableName).rowOrder;
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement s = globalState.getConnection().createStatement()) {
+            s.execute(sql);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (!shadowTables.isEmpty()) {
+            execute(String.format("DROP TABLE IF EXISTS %s", shadowTables.values().stream()
+                    .map(t -> t.shadowTable).collect(Collectors.joining(", "))));
+            shadowTables.clear();
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+package sqlancer.tidb.transaction;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import sqlancer.SQLConnection;
+import sqlancer.tidb.TiDBProvider.TiDBGlobalState;
+
+/**
+ * Executes the statements of the transactions of all schedules that are tested on a database. The worker threads and
+ * the connections of the transactions are kept until the database is finished, so that a schedule neither starts
+ * threads nor establishes connections. Since a schedule might leave a transaction open (e.g., if a statement failed),
+ * the session state of the connections is reset before each schedule.
+ */
+public class TxExecutionEngine implements AutoCloseable {
+
+    private final TiDBGlobalState globalState;
+    private final ThreadPoolExecutor workers;
+    private final List<SQLConnection> connections = new ArrayList<>();
+
+    public TxExecutionEngine(TiDBGlobalState globalState) {
+        this.globalState = globalState;
+        String threadName = Thread.currentThread().getName();
+        this.workers = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, threadName + "-tx");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the connection of a transaction, which is opened on first use and kept for the later schedules.
+     *
+     * @param index
+     *            the index of the transaction in its schedule
+     *
+     * @return the connection, which must not be closed by the caller
+     *
+     * @throws SQLException
+     *             if a new connection cannot be established
+     */
+    public SQLConnection getConnection(int index) throws SQLException {
+        while (connections.size() <= index) {
+            connections.add(null);
+        }
+        if (connections.get(index) == null) {
+            connections.set(index, globalState.createConnection());
+        }
+        return connections.get(index);
+    }
+
+    /**
+     * Returns the worker threads, of which there are at least as many as transactions, so that a blocked statement
+     * never delays the statements of the other transactions.
+     *
+     * @param nrTransactions
+     *            the number of transactions of the schedule
+     *
+     * @return the workers
+     */
+    public ThreadPoolExecutor getWorkers(int nrTransactions) {
+        if (workers.getMaximumPoolSize() < nrTransactions) {
+            workers.setMaximumPoolSize(nrTransactions);
+            workers.setCorePoolSize(nrTransactions);
+        }
+        workers.prestartAllCoreThreads();
+        return workers;
+    }
+
+    /**
+     * Rolls back the open transactions and restores autocommit on the connections of the given transactions. The
+     * isolation level is set by each schedule. A connection whose session cannot be reset is replaced by a new one.
+     *
+     * @param transactions
+     *            the transactions of the next schedule
+     *
+     * @throws SQLException
+     *             if a new connection cannot be established
+     */
+    public void resetSessions(List<Transaction> transactions) throws SQLException {
+        for (Transaction tx : transactions) {
+            try (Statement s = tx.getConnection().createStatement()) {
+                s.execute("ROLLBACK");
+                s.execute("SET SESSION autocommit = 1");
+            } catch (SQLException e) {
+                replaceConnection(tx);
+            }
+        }
+    }
+
+    /**
+     * Aborts the statement that a transaction executes by killing its session on the server. Its connection must be
+     * replaced once the statement has returned.
+     *
+     * @param sessionId
+     *            the session ID of the transaction's connection
+     *
+     * @throws SQLException
+     *             if the session cannot be killed
+     */
+    public void killSession(long sessionId) throws SQLException {
+        try (Statement s = globalState.getConnection().createStatement()) {
+            s.execute("KILL " + sessionId);
+        }
+    }
+
+    /**
+     * Closes the connection of a transaction, e.g., after its session has been killed, and binds the transaction to a
+     * new connection, since the transaction is executed again by the later schedules.
+     *
+     * @param tx
+     *            the transaction, which must not execute a statement anymore
+     *
+     * @throws SQLException
+     *             if a new connection cannot be established
+     */
+    public void replaceConnection(Transaction tx) throws SQLException {
+        SQLConnection con = tx.getConnection();
+        int index = connections.indexOf(con);
+        try {
+            con.close();
+        } catch (SQLException e) {
+            // the connection is not used anymore anyway
+        }
+        if (index == -1) {
+            throw new AssertionError("the connection of the transaction has not been opened by the engine");
+        }
+        connections.set(index, null);
+        tx.setConnection(getConnection(index));
+    }
+
+    @Override
+    public void close() throws SQLException {
+        workers.shutdownNow();
+        SQLException exception = null;
+        for (SQLConnection con : connections) {
+            if (con == null) {
+                continue;
+            }
+            try {
+                con.close();
+            } catch (SQLException e) {
+                exception = e;
+            }
+        }
+        connections.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package sqlancer.tidb.transaction;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import sqlancer.SQLConnection;
+
+/**
+ * Determines whether a transaction statement is blocked, i.e., waits for a lock that another, still active
+ * transaction holds.
+ *
+ * The lock waits are read from information_schema.DATA_LOCK_WAITS and TIDB_TRX, so that a blocked statement is
+ * recognized within milliseconds. A waiter whose lock holder has already finished is about to resume, so it is not
+ * reported. If the lock waits cannot be read (e.g., since the user lacks the PROCESS privilege), a statement is
+ * considered blocked once it takes much longer than the statements that have completed so far.
+ */
+public class TxLockWaitDetector {
+
+    // the time after which a statement is considered blocked at the latest
+    private static final long MAX_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long MIN_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int LATENCY_FACTOR = 10;
+    private static final int MIN_LATENCY_SAMPLES = 8;
+    private static final int LATENCY_WINDOW = 64;
+
+    private static final String LOCK_WAITS_QUERY = "SELECT waiter.SESSION_ID FROM information_schema.DATA_LOCK_WAITS w "
+            + "JOIN information_schema.TIDB_TRX waiter ON w.TRX_ID = waiter.ID "
+            + "JOIN information_schema.TIDB_TRX holder ON w.CURRENT_HOLDING_TRX_ID = holder.ID";
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int nrLatencies;
+    private boolean canReadLockWaits;
+
+    /**
+     * @param useLockWaits
+     *            whether the lock waits should be read from the server
+     */
+    public TxLockWaitDetector(boolean useLockWaits) {
+        this.canReadLockWaits = useLockWaits;
+    }
+
+    /**
+     * Reads the session ID of a transaction's connection, which identifies the transaction in the lock waits.
+     *
+     * @param tx
+     *            the transaction, whose connection must not execute a statement
+     *
+     * @return the session ID
+     *
+     * @throws SQLException
+     *             if the session ID cannot be read
+     */
+    public long getSessionId(Transaction tx) throws SQLException {
+        try (Statement s = tx.getConnection().createStatement();
+                ResultSet rs = s.executeQuery("SELECT CONNECTION_ID()")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Determines whether the session waits for a lock that is held by an active transaction.
+     *
+     * @param con
+     *            a connection that is not used by any of the transactions
+     * @param sessionId
+     *            the session ID of the transaction
+     *
+     * @return true if the session is blocked, false if it is not blocked or the lock waits cannot be read
+     */
+    public boolean isWaitingForLock(SQLConnection con, long sessionId) {
+        if (!canReadLockWaits) {
+            return false;
+        }
+        Set<Long> waitingSessions = new HashSet<>();
+        try (Statement s = con.createStatement(); ResultSet rs = s.executeQuery(LOCK_WAITS_QUERY)) {
+            while (rs.next()) {
+                waitingSessions.add(rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            canReadLockWaits = false; // fall back to the timeout
+            return false;
+        }
+        return waitingSessions.contains(sessionId);
+    }
+
+    /**
+     * Records the latency of a statement that has not been blocked.
+     *
+     * @param nanos
+     *            the time from submitting the statement to receiving its result
+     */
+    public void recordLatency(long nanos) {
+        latencies[nrLatencies++ % LATENCY_WINDOW] = nanos;
+    }
+
+    /**
+     * Returns the time after which a statement that has not been recognized as waiting for a lock is considered
+     * blocked.
+     *
+     * @return the timeout in nanoseconds
+     */
+    public long getTimeoutNanos() {
+        if (canReadLockWaits || nrLatencies < MIN_LATENCY_SAMPLES) {
+            return MAX_TIMEOUT_NANOS;
+        }
+        long maxLatency = 0;
+        for (int i = 0; i < Math.min(nrLatencies, LATENCY_WINDOW); i++) {
+            maxLatency = Math.max(maxLatency, latencies[i]);
+        }
+        return Math.min(MAX_TIMEOUT_NANOS, Math.max(MIN_TIMEOUT_NANOS, maxLatency * LATENCY_FACTOR));
+    }
+
+}
@@ -1,21 +1,40 @@
 package sqlancer.tidb.transaction;
 
 import java.math.BigInteger;
-import java.math.RoundingMode;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-
-import com.datastax.oss.driver.shaded.guava.common.math.BigIntegerMath;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import sqlancer.Randomly;
 import sqlancer.tidb.TiDBProvider.TiDBGlobalState;
+import sqlancer.tidb.TiDBSchema.TiDBTable;
 import sqlancer.tidb.gen.transaction.TiDBTransactionProvider;
 
+/**
+ * Generates transactions and the schedules in which their statements are interleaved.
+ *
+ * An interleaving is identified by its rank, i.e., its index in the lexicographic order of all interleavings, where
+ * an interleaving is the sequence of the indexes of the transactions whose next statement is executed. The
+ * interleavings are drawn by their ranks without replacement, so that no interleaving is generated twice. Of the
+ * interleavings that order all conflicting statements alike (see {@link TxConflicts}), only the first one is kept, so
+ * that each schedule covers a new conflict order. The conflict order is identified by the rank of its canonical
+ * interleaving, which always executes the statement of the first transaction that does not depend on a statement not
+ * executed yet.
+ */
 public class TxTestGenerator {
 
+    // if there are at most so many interleavings, all of them are drawn if necessary
+    private static final int MAX_EXHAUSTIVE_INTERLEAVINGS = 1 << 16;
+    // otherwise, most interleavings might be equivalent, so the drawing stops once no new conflict order is found
+    private static final int MAX_CONSECUTIVE_EQUIVALENT_DRAWS = 256;
+
     private final TiDBGlobalState globalState;
     
     public TxTestGenerator(TiDBGlobalState globalState) {
@@ -29,68 +48,246 @@ public class TxTestGenerator {
         if (globalState.getDbmsSpecificOptions().useFixedNumTransaction()) {
             txNum = globalState.getDbmsSpecificOptions().getNrTransactions();
         }
-        for (int i = 1; i <= txNum; i++) {
-            transactions.add(TiDBTransactionProvider.generateTransaction(globalState));
+        TxExecutionEngine engine = globalState.getTxExecutionEngine();
+        for (int i = 0; i < txNum; i++) {
+            transactions.add(TiDBTransactionProvider.generateTransaction(globalState, engine.getConnection(i)));
         }
         return transactions;
     }
 
-    public static List<TxStatement> genOneSchedule(List<Transaction> transactions) {
-        List<Transaction> txs = new ArrayList<Transaction>(transactions);
-        List<TxStatement> schedule = new ArrayList<>();
-        Map<Transaction, Integer> stmtIndexes = new HashMap<>();
-        for (Transaction tx : txs) {
-            stmtIndexes.put(tx, 0);
+    public List<List<TxStatement>> genSchedules(List<Transaction> transactions) {
+        int num = globalState.getDbmsSpecificOptions().getNrSchedules();
+        int[] sizes = new int[transactions.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = transactions.get(i).getStatements().size();
         }
+        BigInteger nrInterleavings = countInterleavings(sizes);
+        Iterator<BigInteger> ranks;
+        int maxEquivalentDraws;
+        if (nrInterleavings.compareTo(BigInteger.valueOf(MAX_EXHAUSTIVE_INTERLEAVINGS)) <= 0) {
+            ranks = new ShuffledRanks(nrInterleavings.intValueExact());
+            maxEquivalentDraws = Integer.MAX_VALUE;
+        } else {
+            ranks = new RandomRanks(nrInterleavings);
+            maxEquivalentDraws = MAX_CONSECUTIVE_EQUIVALENT_DRAWS;
+        }
+        TxConflicts conflicts = new TxConflicts(transactions, globalState.getSchema().getDatabaseTables().stream()
+                .map(TiDBTable::getName).collect(Collectors.toList()));
 
-        while (!txs.isEmpty()) {
-            Transaction tx = Randomly.fromList(txs);
-            int stmtIndex = stmtIndexes.get(tx);
-            schedule.add(tx.getStatements().get(stmtIndex));
-            if (stmtIndex + 1 < tx.getStatements().size()) {
-                stmtIndexes.put(tx, stmtIndex + 1);
+        List<List<TxStatement>> schedules = new ArrayList<>();
+        Set<BigInteger> conflictOrders = new HashSet<>();
+        int equivalentDraws = 0;
+        while (schedules.size() < num && ranks.hasNext() && equivalentDraws < maxEquivalentDraws) {
+            int[] interleaving = unrank(ranks.next(), sizes);
+            List<TxStatement> schedule = toSchedule(interleaving, transactions);
+            if (conflictOrders.add(rank(canonicalize(interleaving, schedule, conflicts), sizes))) {
+                schedules.add(schedule);
+                equivalentDraws = 0;
             } else {
-                txs.remove(tx);
+                equivalentDraws++;
+            }
+        }
+        return schedules;
+    }
+
+    /**
+     * Computes the number of interleavings of transactions with the given numbers of statements, which is the
+     * multinomial coefficient of the sizes.
+     */
+    static BigInteger countInterleavings(int[] sizes) {
+        BigInteger count = BigInteger.ONE;
+        int nrStatements = 0;
+        for (int size : sizes) {
+            for (int i = 1; i <= size; i++) {
+                nrStatements++;
+                count = count.multiply(BigInteger.valueOf(nrStatements)).divide(BigInteger.valueOf(i));
+            }
+        }
+        return count;
+    }
+
+    static BigInteger rank(int[] interleaving, int[] sizes) {
+        int[] remaining = sizes.clone();
+        BigInteger count = countInterleavings(sizes);
+        BigInteger rank = BigInteger.ZERO;
+        for (int i = 0; i < interleaving.length; i++) {
+            int left = interleaving.length - i;
+            for (int tx = 0; tx < interleaving[i]; tx++) {
+                rank = rank.add(countWithNext(count, remaining, tx, left));
+            }
+            count = countWithNext(count, remaining, interleaving[i], left);
+            remaining[interleaving[i]]--;
+        }
+        return rank;
+    }
+
+    static int[] unrank(BigInteger rank, int[] sizes) {
+        int[] remaining = sizes.clone();
+        BigInteger count = countInterleavings(sizes);
+        int nrStatements = 0;
+        for (int size : sizes) {
+            nrStatements += size;
+        }
+        int[] interleaving = new int[nrStatements];
+        BigInteger r = rank;
+        for (int i = 0; i < nrStatements; i++) {
+            int left = nrStatements - i;
+            int tx = 0;
+            while (true) {
+                BigInteger countForTx = countWithNext(count, remaining, tx, left);
+                if (r.compareTo(countForTx) < 0) {
+                    count = countForTx;
+                    break;
+                }
+                r = r.subtract(countForTx);
+                tx++;
             }
+            interleaving[i] = tx;
+            remaining[tx]--;
         }
+        return interleaving;
+    }
+
+    // the number of the given interleavings that continue with a statement of the given transaction
+    private static BigInteger countWithNext(BigInteger count, int[] remaining, int tx, int left) {
+        return count.multiply(BigInteger.valueOf(remaining[tx])).divide(BigInteger.valueOf(left));
+    }
 
+    private static List<TxStatement> toSchedule(int[] interleaving, List<Transaction> transactions) {
+        int[] nextStatements = new int[transactions.size()];
+        List<TxStatement> schedule = new ArrayList<>(interleaving.length);
+        for (int tx : interleaving) {
+            schedule.add(transactions.get(tx).getStatements().get(nextStatements[tx]++));
+        }
         return schedule;
     }
 
-    public List<List<TxStatement>> genSchedules(List<Transaction> transactions) {
-        List<List<TxStatement>> schedules = new ArrayList<>();
-        int num = globalState.getDbmsSpecificOptions().getNrSchedules();
-        Integer maxNum = countSchedules(transactions);
-        num = Math.min(num, maxNum);
-        
-        int count = 0;
-        while (count < num) {
-            List<TxStatement> schedule = genOneSchedule(transactions);
-            if (!schedules.contains(schedule)) {
-                schedules.add(schedule);
-                count++;
+    /**
+     * Computes the canonical interleaving of the schedule's conflict order, which executes the statement of the first
+     * transaction whose next statement does not conflict with a statement that precedes it in the schedule and that is
+     * not executed yet.
+     */
+    private static int[] canonicalize(int[] interleaving, List<TxStatement> schedule, TxConflicts conflicts) {
+        int nrTransactions = 0;
+        for (int tx : interleaving) {
+            nrTransactions = Math.max(nrTransactions, tx + 1);
+        }
+        List<List<Integer>> positions = new ArrayList<>();
+        for (int tx = 0; tx < nrTransactions; tx++) {
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < interleaving.length; i++) {
+            positions.get(interleaving[i]).add(i);
+        }
+        boolean[][] conflicting = new boolean[interleaving.length][];
+        for (int i = 0; i < interleaving.length; i++) {
+            conflicting[i] = new boolean[i];
+            for (int j = 0; j < i; j++) {
+                conflicting[i][j] = conflicts.conflict(schedule.get(j), schedule.get(i));
             }
         }
-        return schedules;
+        int[] nextStatements = new int[nrTransactions];
+        boolean[] executed = new boolean[interleaving.length];
+        int[] canonical = new int[interleaving.length];
+        for (int i = 0; i < canonical.length; i++) {
+            for (int tx = 0; tx < nrTransactions; tx++) {
+                if (nextStatements[tx] == positions.get(tx).size()) {
+                    continue;
+                }
+                int position = positions.get(tx).get(nextStatements[tx]);
+                if (dependsOnPending(position, executed, conflicting)) {
+                    continue;
+                }
+                executed[position] = true;
+                nextStatements[tx]++;
+                canonical[i] = tx;
+                break;
+            }
+        }
+        return canonical;
     }
-    
-    public Integer countSchedules(List<Transaction> txs) {
-        int totalStmts = 0;
-        for (Transaction tx : txs) {
-            totalStmts += tx.getStatements().size();
+
+    private static boolean dependsOnPending(int position, boolean[] executed, boolean[][] conflicting) {
+        for (int i = 0; i < position; i++) {
+            if (!executed[i] && conflicting[position][i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Draws all ranks below a bound in random order by a Fisher-Yates shuffle, which only stores the swapped ranks.
+     */
+    private static final class ShuffledRanks implements Iterator<BigInteger> {
+
+        private final int bound;
+        private final Map<Integer, Integer> swapped = new HashMap<>();
+        private int next;
+
+        ShuffledRanks(int bound) {
+            this.bound = bound;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < bound;
+        }
+
+        @Override
+        public BigInteger next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int i = (int) Randomly.getNotCachedInteger(next, bound);
+            int rank = swapped.getOrDefault(i, i);
+            swapped.put(i, swapped.getOrDefault(next, next));
+            next++;
+            return BigInteger.valueOf(rank);
+        }
+    }
+
+    /**
+     * Draws distinct random ranks below a bound, which is much larger than the number of draws.
+     */
+    private static final class RandomRanks implements Iterator<BigInteger> {
+
+        private final BigInteger bound;
+        private final Set<BigInteger> drawn = new HashSet<>();
+
+        RandomRanks(BigInteger bound) {
+            this.bound = bound;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return true;
         }
 
-        BigInteger totalSchedules = BigIntegerMath.factorial(totalStmts);
-        for (Transaction tx : txs) {
-            totalSchedules = BigIntegerMath.divide(totalSchedules, BigIntegerMath.factorial(tx.getStatements().size()),
-                    RoundingMode.DOWN);
+        @Override
+        public BigInteger next() {
+            BigInteger rank;
+            do {
+                rank = getRandomBelow(bound);
+            } while (!drawn.add(rank));
+            return rank;
         }
 
-        int refinedNum = Integer.MAX_VALUE;
-        try {
-            refinedNum = totalSchedules.intValueExact();
-        } catch (Exception ignored) {
+        private static BigInteger getRandomBelow(BigInteger bound) {
+            int bitLength = bound.bitLength();
+            BigInteger value;
+            do {
+                value = BigInteger.ZERO;
+                for (int bits = 0; bits < bitLength; bits += Long.SIZE) {
+                    long word = Randomly.getNonCachedInteger();
+                    int nrBits = Math.min(Long.SIZE, bitLength - bits);
+                    if (nrBits < Long.SIZE) {
+                        word &= (1L << nrBits) - 1;
+                    }
+                    value = value.shiftLeft(nrBits).or(new BigInteger(Long.toUnsignedString(word)));
+                }
+            } while (value.compareTo(bound) >= 0);
+            return value;
         }
-        return refinedNum;
     }
 }